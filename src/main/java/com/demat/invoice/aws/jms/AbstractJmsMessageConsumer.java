@@ -1,12 +1,11 @@
 package com.demat.invoice.aws.jms;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
-import com.demat.invoice.utils.GsonHelper;
+import com.google.gson.JsonParseException;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
 
 public abstract class AbstractJmsMessageConsumer {
 
@@ -15,13 +14,31 @@ public abstract class AbstractJmsMessageConsumer {
 
   protected <T extends GnxSnsNotification<M>, M> T processMessage(final Message<String> message,
       Class<T> type, Class<M> messageType) {
-    T snsNotification = createSnsNotification(message.getPayload(), type, messageType);
-    if (snsNotification == null) {
+    final GnxSnsEnvelope envelope;
+    try {
+      envelope = GnxSnsEnvelope.read(message);
+    }
+    catch (JsonParseException ex) {
+      log.error("An error occured while reading the SnsNotification. Cannot read snsNotification format");
       log.debug("Dismissed malformed message");
       return null;
     }
-    if (StringUtils.equals(latestMessageId, snsNotification.getMessageId())) {
-      log.debug("Dismissed message (" + snsNotification.getSubject() + ") id:" + latestMessageId);
+    return processMessage(envelope, type, messageType);
+  }
+
+  /**
+   * @return the notification of the envelope, <code>null</code> if it is malformed or already processed. The inner message of a
+   *         dismissed notification is not decoded.
+   */
+  protected <T extends GnxSnsNotification<M>, M> T processMessage(final GnxSnsEnvelope envelope,
+      Class<T> type, Class<M> messageType) {
+    if (StringUtils.equals(latestMessageId, envelope.getMessageId())) {
+      log.debug("Dismissed message (" + envelope.getSubject() + ") id:" + latestMessageId);
+      return null;
+    }
+    T snsNotification = createSnsNotification(envelope, type, messageType);
+    if (snsNotification == null) {
+      log.debug("Dismissed malformed message");
       return null;
     }
     latestMessageId = snsNotification.getMessageId();
@@ -30,21 +47,31 @@ public abstract class AbstractJmsMessageConsumer {
 
   protected static <T extends GnxSnsNotification<M>, M> T createSnsNotification(String snsNotification, Class<T> type,
       Class<M> messageType) {
-    Gson gson = GsonHelper.getGson();
+    try {
+      return createSnsNotification(GnxSnsEnvelope.read(new GenericMessage<>(snsNotification)), type, messageType);
+    }
+    catch (JsonParseException ex) {
+      log.error("An error occured while reading the SnsNotification. Cannot read snsNotification format");
+      return null;
+    }
+  }
+
+  protected static <T extends GnxSnsNotification<M>, M> T createSnsNotification(GnxSnsEnvelope envelope, Class<T> type,
+      Class<M> messageType) {
     T notif = null;
     try {
-      notif = gson.fromJson(snsNotification, type);
+      notif = envelope.toNotification(type);
     }
-    catch (JsonSyntaxException ex) {
+    catch (JsonParseException ex) {
       log.error("An error occured while reading the SnsNotification. Cannot read snsNotification format");
       return null;
     }
 
     try {
-      notif.setNotificationMessage(gson.fromJson(notif.getMesage(), messageType));
+      notif.setNotificationMessage(envelope.getMessage(messageType));
       return notif;
     }
-    catch (JsonSyntaxException ex) {
+    catch (JsonParseException ex) {
       log.error("An error occured while reading the SnsNotification. Malformed body message: {}", notif.getMesage());
       return null;
     }
@@ -4,10 +4,33 @@ import org.springframework.messaging.Message;
 
 import java.util.List;
 
+/**
+ * Consumer of the SNS notifications routed by {@link JmsMessageConsumer} according to their subject.
+ * <p>
+ * The routing decodes the SNS envelope once and passes it to {@link #handleNotification(GnxSnsEnvelope)}. Two caveats when moving a
+ * consumer to the envelope:
+ * <ul>
+ * <li>the default {@link #handleNotification(GnxSnsEnvelope)} calls {@link #handleNotification(Message)} with the JMS message, whose
+ * payload is then parsed again: the consumers not overriding it do not benefit from the single parsing;</li>
+ * <li>{@link GnxSnsEnvelope#toNotification(Class)} only sets the SNS header fields ({@code Type}, {@code MessageId}, {@code TopicArn},
+ * {@code Subject}, {@code Timestamp}) and the raw {@code Message}: the other fields a {@link GnxSnsNotification} subclass maps with
+ * {@code @SerializedName} stay <code>null</code>, such a consumer has to read them from {@link GnxSnsEnvelope#getJmsMessage()}.</li>
+ * </ul>
+ */
 public interface GnxJmsConsumer {
 
   public List<String> getSubjectNames();
 
   public void handleNotification(final Message<String> message);
 
+  /**
+   * Handles a notification already decoded by the routing. Override it to use the envelope instead of decoding the JMS message again
+   * (see the limits of {@link GnxSnsEnvelope#toNotification(Class)}).
+   *
+   * @param envelope the SNS envelope of the JMS message
+   */
+  public default void handleNotification(final GnxSnsEnvelope envelope) {
+    handleNotification(envelope.getJmsMessage());
+  }
+
 }
@@ -0,0 +1,162 @@
+package com.demat.invoice.aws.jms;
+
+import com.demat.invoice.utils.GsonHelper;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.springframework.messaging.Message;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * SNS notification envelope of a JMS message, decoded once and shared by the routing and the consumers. Only the header fields are read,
+ * the reading stopping as soon as they are all found (the signature fields following them are not read), and the inner message is kept
+ * as a string, decoded when a consumer asks for it.
+ * <p>
+ * An envelope may be shared by consumers running on several threads: the last decoded message is published with its type as a single
+ * immutable value, so a consumer never gets a message decoded for another type.
+ */
+public class GnxSnsEnvelope {
+
+  public static final String TYPE = "Type";
+  public static final String MESSAGE_ID = "MessageId";
+  public static final String TOPIC_ARN = "TopicArn";
+  public static final String SUBJECT = "Subject";
+  public static final String MESSAGE = "Message";
+  public static final String TIMESTAMP = "Timestamp";
+
+  private static final Set<String> HEADERS = Set.of(TYPE, MESSAGE_ID, TOPIC_ARN, SUBJECT, MESSAGE, TIMESTAMP);
+
+  private final Message<String> jmsMessage;
+
+  /** Header fields, but the message */
+  private final JsonObject headers;
+
+  private final String message;
+
+  /** Last decoded inner message */
+  private volatile Decoded decoded;
+
+  private GnxSnsEnvelope(Message<String> jmsMessage, JsonObject headers, String message) {
+    this.jmsMessage = jmsMessage;
+    this.headers = headers;
+    this.message = message;
+  }
+
+  /**
+   * @param jmsMessage The JMS message holding the SNS notification.
+   * @return the envelope of the notification.
+   * @throws JsonParseException if the payload is not a JSON object.
+   */
+  public static GnxSnsEnvelope read(Message<String> jmsMessage) {
+    if (jmsMessage == null || jmsMessage.getPayload() == null)
+      throw new JsonParseException("No SNS notification payload");
+    final JsonObject headers = new JsonObject();
+    String message = null;
+    try (JsonReader in = new JsonReader(new StringReader(jmsMessage.getPayload()))) {
+      in.setLenient(true);
+      in.beginObject();
+      int remaining = HEADERS.size();
+      while (remaining > 0 && in.hasNext()) {
+        final String name = in.nextName();
+        if (!HEADERS.contains(name) || in.peek() == JsonToken.NULL) {
+          in.skipValue();
+          continue;
+        }
+        remaining--;
+        if (MESSAGE.equals(name))
+          message = in.nextString();
+        else
+          headers.add(name, new JsonPrimitive(in.nextString()));
+      }
+    }
+    catch (IOException | IllegalStateException | NumberFormatException e) {
+      throw new JsonParseException("Malformed SNS notification: " + e.getMessage(), e);
+    }
+    return new GnxSnsEnvelope(jmsMessage, headers, message);
+  }
+
+  public Message<String> getJmsMessage() {
+    return jmsMessage;
+  }
+
+  public String getType() {
+    return getHeader(TYPE);
+  }
+
+  public String getMessageId() {
+    return getHeader(MESSAGE_ID);
+  }
+
+  public String getTopicArn() {
+    return getHeader(TOPIC_ARN);
+  }
+
+  public String getSubject() {
+    return getHeader(SUBJECT);
+  }
+
+  public Date getTimestamp() {
+    return headers.has(TIMESTAMP) ? GsonHelper.getGson()
+        .fromJson(headers.get(TIMESTAMP), Date.class) : null;
+  }
+
+  /**
+   * @return the inner message, not decoded.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * @param type The type of the inner message.
+   * @return the inner message decoded once by type, <code>null</code> if there is no inner message.
+   * @throws JsonParseException if the inner message cannot be decoded.
+   */
+  @SuppressWarnings("unchecked")
+  public <M> M getMessage(Class<M> type) {
+    if (message == null)
+      return null;
+    Decoded last = decoded;
+    if (last == null || last.type != type) {
+      last = new Decoded(type, GsonHelper.getGson()
+          .fromJson(message, type));
+      decoded = last;
+    }
+    return (M) last.value;
+  }
+
+  /**
+   * @param type The notification type.
+   * @return the notification holding the header fields and the raw inner message, its notification message not being set. The other
+   *         fields mapped by the notification type are not read from the payload and stay <code>null</code>.
+   */
+  public <T extends GnxSnsNotification<?>> T toNotification(Class<T> type) {
+    final T notification = GsonHelper.getGson()
+        .fromJson(headers, type);
+    notification.setMesage(message);
+    return notification;
+  }
+
+  private String getHeader(String name) {
+    return headers.has(name) ? headers.get(name)
+        .getAsString() : null;
+  }
+
+  private static final class Decoded {
+
+    private final Class<?> type;
+
+    private final Object value;
+
+    Decoded(Class<?> type, Object value) {
+      this.type = type;
+      this.value = value;
+    }
+  }
+}
@@ -1,9 +1,6 @@
 package com.demat.invoice.aws.jms;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.demat.invoice.utils.GsonHelper;
+import com.google.gson.JsonParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +11,6 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
-import java.util.Optional;
 
 /**
  * JMS message consumer that will process messages from ${aws.core.sqs.queue} queue and will try to process them using the corresponding
@@ -36,13 +32,14 @@ public class JmsMessageConsumer {
 
     try {
       // this is in case the message is an SNS notification
-      String subject = getElement(message, "Subject");
+      GnxSnsEnvelope envelope = getEnvelope(message);
+      String subject = envelope.getSubject();
       gnxConsumers.stream()
           .filter(consumer -> consumer.getSubjectNames()
               .contains(subject))
           .findAny()
           .orElseThrow(() -> new UnknownSubjectException(subject))
-          .handleNotification(message);
+          .handleNotification(envelope);
 
     }
     catch (UnknownSubjectException ex) {
@@ -58,14 +55,16 @@ public class JmsMessageConsumer {
 
   }
 
-  private String getElement(final Message<String> message, String key) throws UnsupportedMessageException {
-    Gson gson = GsonHelper.getGson();
-    return Optional.ofNullable(message)
-        .map(Message::getPayload)
-        .map(payload -> gson.fromJson(payload, JsonObject.class))
-        .map(jsonObject -> jsonObject.get(key))
-        .map(JsonElement::getAsString)
-        .orElseThrow(() -> new UnsupportedMessageException());
+  private GnxSnsEnvelope getEnvelope(final Message<String> message) throws UnsupportedMessageException {
+    try {
+      GnxSnsEnvelope envelope = GnxSnsEnvelope.read(message);
+      if (envelope.getSubject() == null)
+        throw new UnsupportedMessageException();
+      return envelope;
+    }
+    catch (JsonParseException ex) {
+      throw new UnsupportedMessageException();
+    }
   }
 
   private class UnsupportedMessageException extends Exception {
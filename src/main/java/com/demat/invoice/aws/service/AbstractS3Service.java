@@ -4,6 +4,7 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
 import com.amazonaws.services.s3.transfer.*;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
@@ -11,30 +12,198 @@ import com.amazonaws.services.s3control.AWSS3Control;
 import com.amazonaws.services.s3control.model.*;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.model.GetCallerIdentityRequest;
-import com.amazonaws.util.Md5Utils;
 import com.demat.invoice.aws.utils.AmazonArchivingHelper;
 import com.demat.invoice.aws.utils.AwsHelper;
 import com.demat.invoice.aws.utils.UnhandledCharacterException;
 import com.demat.invoice.utils.FileHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public abstract class AbstractS3Service implements S3Service {
 
   protected static final Logger log = LoggerFactory.getLogger(AbstractS3Service.class);
 
+  protected static final int DEFAULT_ASYNC_CONCURRENCY = 16;
+
+  protected static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1000;
+
+  protected static final long DEFAULT_CLIENT_COPY_THRESHOLD = 1000;
+
+  protected static final Duration DEFAULT_BATCH_POLL_INTERVAL = Duration.ofSeconds(10);
+
+  /** Maximum number of keys of a multi-object delete request */
+  protected static final int MAX_DELETE_BATCH_SIZE = 1000;
+
   protected AmazonS3 awsS3Client;
 
+  @Autowired(required = false)
+  protected MeterRegistry meterRegistry;
+
+  @Autowired(required = false)
+  protected S3TransferMonitor transferMonitor;
+
+  /** Transfer manager shared by all the transfers of this service */
+  private TransferManager transferManager;
+
+  /** Uploads of the object lock buckets, computing the MD5 of each part while reading the file */
+  private DigestingUploader digestingUploader;
+
+  /** Number of uploads and downloads currently in progress */
+  private final AtomicInteger activeTransfers = new AtomicInteger();
+
+  /** Bounded executor running the asynchronous operations, rejects new operations when saturated */
+  private ExecutorService asyncExecutor;
+
+  /** Optional cache of the archive existence checks, keyed by {@code bucket/key} */
+  private Cache<String, Boolean> existenceCache;
+
+  /** Account owning the batch operations jobs, resolved once */
+  private volatile String accountId;
+
+  private S3BatchCopyEngine batchCopyEngine;
+
+  private ScheduledExecutorService batchScheduler;
+
+  /** Content addressed stores, shared per {@code bucket/contentPrefix} */
+  private final Map<String, DeduplicatingArchiveStore> deduplicatingStores = new ConcurrentHashMap<>();
+
   @Override
   public abstract void init() throws Exception;
 
+  /**
+   * Creates the long-lived {@link TransferManager} of this service. Must be called once the S3 client is created.
+   *
+   * @param name The service name used to name the transfer threads and to tag the metrics.
+   * @param threads The number of threads of the transfer pool.
+   * @param multipartThreshold The size threshold (in bytes) from which an upload is split in parts.
+   * @param minimumPartSize The minimum size (in bytes) of each part of a multipart upload.
+   */
+  protected void initTransferManager(String name, int threads, long multipartThreshold, long minimumPartSize) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory(name + "-transfer-"));
+    if (meterRegistry != null) {
+      executor = ExecutorServiceMetrics.monitor(meterRegistry, executor, name + ".transfer");
+      Gauge.builder("s3.transfers.active", activeTransfers, AtomicInteger::get)
+          .description("Number of S3 uploads and downloads in progress")
+          .tags("service", name)
+          .register(meterRegistry);
+    }
+    final ExecutorService transferExecutor = executor;
+    this.transferManager = TransferManagerBuilder.standard()
+        .withS3Client(awsS3Client)
+        .withExecutorFactory(() -> transferExecutor)
+        .withMultipartUploadThreshold(multipartThreshold)
+        .withMinimumUploadPartSize(minimumPartSize)
+        .build();
+    this.digestingUploader = new DigestingUploader(awsS3Client, transferExecutor, threads, multipartThreshold, minimumPartSize);
+    log.info("\t Transfer manager : {} threads, multipart threshold {} bytes, part size {} bytes", threads, multipartThreshold,
+        minimumPartSize);
+  }
+
+  /**
+   * Creates the bounded executor of the asynchronous operations ({@link #uploadArchiveAsync(String, File)}...).
+   *
+   * @param name The service name used to name the threads and to tag the metrics.
+   * @param concurrency The maximum number of asynchronous operations running at the same time.
+   * @param queueCapacity The maximum number of asynchronous operations waiting to be run. Beyond that, new operations are rejected.
+   */
+  protected void initAsyncExecutor(String name, int concurrency, int queueCapacity) {
+    ExecutorService executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory(name + "-async-"));
+    if (meterRegistry != null) {
+      executor = ExecutorServiceMetrics.monitor(meterRegistry, executor, name + ".async");
+    }
+    this.asyncExecutor = executor;
+    log.info("\t Asynchronous operations : {} concurrent, {} queued", concurrency, queueCapacity);
+  }
+
+  /**
+   * Creates the cache of the archive existence checks ({@link #hasArchive(String, String)}).
+   *
+   * @param name The service name used to tag the metrics.
+   * @param maxSize The maximum number of cached checks, {@code 0} disables the cache.
+   * @param ttl The time a check (positive or negative) is kept in the cache.
+   */
+  protected void initExistenceCache(String name, long maxSize, Duration ttl) {
+    if (maxSize <= 0) {
+      return;
+    }
+    this.existenceCache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    if (meterRegistry != null) {
+      CaffeineCacheMetrics.monitor(meterRegistry, existenceCache, name + ".existence");
+    }
+    log.info("\t Existence cache : {} entries, ttl {}", maxSize, ttl);
+  }
+
+  /**
+   * Creates the engine of the batch copies ({@link #batchCopy(BatchCopyRequest)}). Must be called once the S3 clients are created.
+   *
+   * @param name The service name used to name the polling thread.
+   * @param clientCopyThreshold The maximum number of objects copied by the client instead of a S3 Batch Operations job.
+   * @param pollInterval The delay between two polls of a job status.
+   */
+  protected void initBatchCopyEngine(String name, long clientCopyThreshold, Duration pollInterval) {
+    AWSS3Control controlClient;
+    try {
+      controlClient = getS3ControlClient();
+    }
+    catch (UnsupportedOperationException e) {
+      // S3 compatible endpoint without batch operations: always copies on the client side
+      controlClient = null;
+    }
+    this.batchScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(name + "-batch-"));
+    this.batchCopyEngine = new S3BatchCopyEngine(awsS3Client, controlClient, this::getAccountId, batchScheduler, getAsyncExecutor(),
+        meterRegistry, clientCopyThreshold, pollInterval);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (batchScheduler != null) {
+      batchScheduler.shutdownNow();
+      batchScheduler = null;
+    }
+    if (asyncExecutor != null) {
+      asyncExecutor.shutdown();
+      asyncExecutor = null;
+    }
+    if (transferManager != null) {
+      // the S3 client is kept alive, only the transfer threads are released
+      transferManager.shutdownNow(false);
+      transferManager = null;
+      digestingUploader = null;
+    }
+  }
+
+  public int getActiveTransfers() {
+    return activeTransfers.get();
+  }
+
   @Override
   public void checkIfBucketExist(String name) {
     if (awsS3Client != null && !awsS3Client.doesBucketExistV2(name)) {
@@ -43,27 +212,10 @@ public abstract class AbstractS3Service implements S3Service {
   }
 
   @Override
-  public void deleteBucketContents(String name) {
-    try {
-      ObjectListing objectListing = awsS3Client.listObjects(name);
-      while (true) {
-        for (Iterator<S3ObjectSummary> iterator = objectListing.getObjectSummaries()
-            .iterator(); iterator.hasNext();) {
-          S3ObjectSummary summary = iterator.next();
-          awsS3Client.deleteObject(name, summary.getKey());
-        }
-
-        if (objectListing.isTruncated()) {
-          objectListing = awsS3Client.listNextBatchOfObjects(objectListing);
-        }
-        else {
-          break;
-        }
-      }
-    }
-    catch (AmazonServiceException e) {
-      log.error("Failed to delete bucket", e);
-    }
+  public DeleteReport deleteBucketContents(String name) {
+    DeleteReport report = deleteArchivesByPrefix(name, null);
+    log.debug("Bucket {} contents deletion : {}", name, report);
+    return report;
   }
 
   @Override
@@ -88,39 +240,191 @@ public abstract class AbstractS3Service implements S3Service {
 
   @Override
   public UploadResult uploadArchive(String bucket, String key, File archive, Map<String, String> metadatas, List<Tag> tags) {
-    TransferManager xferMgr = getTransferManager();
-    UploadResult result = null;
-    try (InputStream is = new FileInputStream(archive)) {
+    return uploadArchive(bucket, key, archive, metadatas, tags, null);
+  }
 
+  /**
+   * Uploads the archive with the transfer manager, or with the {@link DigestingUploader} for the object lock buckets so the MD5 of the
+   * archive (or of each of its parts) is computed while reading it for the upload instead of reading it a second time.
+   */
+  @Override
+  public UploadResult uploadArchive(String bucket, String key, File archive, Map<String, String> metadatas, List<Tag> tags,
+      String contentMd5) {
+    UploadResult result = null;
+    activeTransfers.incrementAndGet();
+    try {
       ObjectMetadata metadata = new ObjectMetadata();
       //metadata.setSSEAlgorithm(getSseAlgorithm());
-      metadata.setContentLength(FileHelper.sizeOf(archive));
+      long size = FileHelper.sizeOf(archive);
+      metadata.setContentLength(size);
 
       if (MapUtils.isNotEmpty(metadatas)) {
         AmazonArchivingHelper.populateMetadata(metadata, metadatas);
       }
+      ObjectTagging tagging = CollectionUtils.isNotEmpty(tags) ? new ObjectTagging(tags) : null;
 
-      PutObjectRequest putObjectRequest = new PutObjectRequest(bucket, "invoices", is, metadata);
-      if (CollectionUtils.isNotEmpty(tags)) {
-        putObjectRequest.setTagging(new ObjectTagging(tags));
+      if (isObjectLock()) {
+        result = digestArchive(bucket, key, archive, metadata, tagging, contentMd5, null);
+        invalidateExistence(bucket, key);
+        log.debug("Upload of {}/{} done with algorithm encryption {}", bucket, key, metadata.getSSEAlgorithm());
+      }
+      else {
+        result = transferArchive(bucket, key, archive, metadata, tagging, contentMd5);
       }
+    }
+    catch (UnhandledCharacterException e) {
+      throw new UnhandledCharacterException(
+          "unhandled character");
+    }
+    catch (AmazonServiceException | IOException e) {
+      log.error(String.format("Failed to upload archive %s/%s", bucket, key), e);
+    }
+    finally {
+      activeTransfers.decrementAndGet();
+    }
+    return result;
+  }
 
-      if (isObjectLock()) {
-        try {
-          String contentMd5_b64 = Md5Utils.md5AsBase64(archive);
-          metadata.setContentMD5(contentMd5_b64);
-        }
-        catch (Exception e) {
-          throw new SdkClientException(
-              "Unable to calculate MD5 hash: " + e.getMessage(), e);
-        }
+  /**
+   * Uploads the archive with the {@link DigestingUploader}, the errors being handled as those of the transfer manager uploads
+   * ({@link AmazonArchivingHelper#waitForUploadResult(Transfer)}).
+   *
+   * @return the upload result, {@code null} if the upload failed.
+   */
+  private UploadResult digestArchive(String bucket, String key, File archive, ObjectMetadata metadata, ObjectTagging tagging,
+      String contentMd5, MessageDigest contentDigest) throws IOException {
+    TransferProgress progress = new TransferProgress();
+    long tracking = transferMonitor == null ? 0 : transferMonitor.track(getClass().getSimpleName(),
+        String.format("Uploading to %s/%s", bucket, key), progress);
+    try {
+      return getDigestingUploader().upload(bucket, key, archive, metadata, tagging, contentMd5, progress, contentDigest);
+    }
+    catch (AmazonS3Exception e) {
+      throw new UnhandledCharacterException("unhandled character");
+    }
+    catch (AmazonServiceException e) {
+      log.error("Archiving service error", e);
+    }
+    catch (SdkClientException e) {
+      log.error("Archiving client error", e);
+    }
+    finally {
+      untrack(tracking);
+    }
+    return null;
+  }
+
+  /**
+   * Uploads a content already read in memory with a single PUT, sent with its MD5.
+   *
+   * @return the upload result, {@code null} if the upload failed.
+   */
+  UploadResult uploadContent(String bucket, String key, byte[] content, Map<String, String> metadatas, List<Tag> tags,
+      String contentMd5) {
+    activeTransfers.incrementAndGet();
+    try {
+      ObjectMetadata metadata = new ObjectMetadata();
+      if (MapUtils.isNotEmpty(metadatas)) {
+        AmazonArchivingHelper.populateMetadata(metadata, metadatas);
+      }
+      ObjectTagging tagging = CollectionUtils.isNotEmpty(tags) ? new ObjectTagging(tags) : null;
+      UploadResult result = getDigestingUploader().upload(bucket, key, content, metadata, tagging, contentMd5);
+      invalidateExistence(bucket, key);
+      return result;
+    }
+    catch (SdkClientException e) {
+      log.error(String.format("Failed to upload content %s/%s", bucket, key), e);
+      return null;
+    }
+    finally {
+      activeTransfers.decrementAndGet();
+    }
+  }
+
+  /**
+   * Uploads an archive with the {@link DigestingUploader}, whatever the bucket, the given digest being updated with the content of the
+   * archive as it is read for the upload.
+   *
+   * @return the upload result, {@code null} if the upload failed.
+   */
+  UploadResult uploadDigesting(String bucket, String key, File archive, Map<String, String> metadatas, List<Tag> tags,
+      MessageDigest contentDigest) {
+    activeTransfers.incrementAndGet();
+    try {
+      ObjectMetadata metadata = new ObjectMetadata();
+      metadata.setContentLength(FileHelper.sizeOf(archive));
+      if (MapUtils.isNotEmpty(metadatas)) {
+        AmazonArchivingHelper.populateMetadata(metadata, metadatas);
+      }
+      ObjectTagging tagging = CollectionUtils.isNotEmpty(tags) ? new ObjectTagging(tags) : null;
+      UploadResult result = digestArchive(bucket, key, archive, metadata, tagging, null, contentDigest);
+      invalidateExistence(bucket, key);
+      return result;
+    }
+    catch (IOException e) {
+      log.error(String.format("Failed to upload archive %s/%s", bucket, key), e);
+      return null;
+    }
+    finally {
+      activeTransfers.decrementAndGet();
+    }
+  }
+
+  /**
+   * Copies an object within a bucket, server side, with its metadata and its tags. The objects larger than the multipart copy threshold
+   * of the transfer manager are copied by parts.
+   *
+   * @return {@code true} if the object has been copied.
+   */
+  boolean copyArchive(String bucket, String sourceKey, String targetKey) {
+    Copy copy = getTransferManager().copy(new CopyObjectRequest(bucket, sourceKey, bucket, targetKey));
+    long tracking = track(copy);
+    try {
+      copy.waitForCopyResult();
+      return true;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      log.error("Interrupted copy of {}/{} to {}", bucket, sourceKey, targetKey);
+      return false;
+    }
+    catch (SdkClientException e) {
+      log.error(String.format("Failed to copy %s/%s to %s", bucket, sourceKey, targetKey), e);
+      return false;
+    }
+    finally {
+      untrack(tracking);
+      invalidateExistence(bucket, targetKey);
+    }
+  }
+
+  private UploadResult transferArchive(String bucket, String key, File archive, ObjectMetadata metadata, ObjectTagging tagging,
+      String contentMd5) throws IOException {
+    TransferManager xferMgr = getTransferManager();
+    UploadResult result;
+    try (InputStream is = new FileInputStream(archive)) {
+      PutObjectRequest putObjectRequest = new PutObjectRequest(bucket, key, is, metadata);
+      putObjectRequest.setTagging(tagging);
+
+      // a whole file MD5 is only valid for a single PUT, not for the parts of a multipart upload
+      if (contentMd5 != null && metadata.getContentLength() < xferMgr.getConfiguration()
+          .getMultipartUploadThreshold()) {
+        metadata.setContentMD5(contentMd5);
       }
 
       Upload xfer = xferMgr.upload(putObjectRequest);
 
       AmazonArchivingHelper.showTransferDetails(xfer);
-      result = AmazonArchivingHelper.waitForUploadResult(xfer);
+      long tracking = track(xfer);
+      try {
+        result = AmazonArchivingHelper.waitForUploadResult(xfer);
+      }
+      finally {
+        untrack(tracking);
+      }
 
+      invalidateExistence(bucket, key);
       if (xfer.getState() == TransferState.Failed || xfer.getState() == TransferState.Canceled) {
         log.error("Transfer state : {} ", xfer.getState());
         result = null;
@@ -129,19 +433,25 @@ public abstract class AbstractS3Service implements S3Service {
         log.debug("Transfer state : {} with algorithm encryption {}", xfer.getState(), metadata.getSSEAlgorithm());
       }
     }
-    catch (UnhandledCharacterException e) {
-      throw new UnhandledCharacterException(
-          "unhandled character");
-    }
-    catch (AmazonServiceException | IOException e) {
-      log.error(String.format("Failed to upload archive %s/%s", bucket, key), e);
-    }
-    finally {
-      xferMgr.shutdownNow(false);
-    }
     return result;
   }
 
+  @Override
+  public CompletableFuture<UploadResult> uploadArchiveAsync(String key, File archive) {
+    return uploadArchiveAsync(this.getBucket(), key, archive, null, null);
+  }
+
+  @Override
+  public CompletableFuture<UploadResult> uploadArchiveAsync(String bucket, String key, File archive) {
+    return uploadArchiveAsync(bucket, key, archive, null, null);
+  }
+
+  @Override
+  public CompletableFuture<UploadResult> uploadArchiveAsync(String bucket, String key, File archive, Map<String, String> metadatas,
+      List<Tag> tags) {
+    return supplyAsync(() -> uploadArchive(bucket, key, archive, metadatas, tags));
+  }
+
   @Override
   public void uploadArchiveFolder(String key, File folder) {
     uploadArchiveFolder(getBucket(), key, folder, null);
@@ -160,6 +470,7 @@ public abstract class AbstractS3Service implements S3Service {
   @Override
   public void uploadArchiveFolder(String bucket, String key, File folder, Map<String, String> metadatas) {
     TransferManager xferMgr = getTransferManager();
+    activeTransfers.incrementAndGet();
     try {
       MultipleFileUpload multiUpload;
       if (MapUtils.isNotEmpty(metadatas)) {
@@ -173,14 +484,21 @@ public abstract class AbstractS3Service implements S3Service {
       else {
         multiUpload = xferMgr.uploadDirectory(bucket, key, folder, true);
       }
-      AmazonArchivingHelper.showMultiTransferProgress(multiUpload);
-      AmazonArchivingHelper.waitForCompletion(multiUpload);
+      AmazonArchivingHelper.showTransferDetails(multiUpload);
+      long tracking = track(multiUpload);
+      try {
+        AmazonArchivingHelper.waitForCompletion(multiUpload);
+      }
+      finally {
+        untrack(tracking);
+      }
+      invalidateExistences(bucket, key);
     }
     catch (AmazonServiceException e) {
       log.error(String.format("Failed to upload folder %s/%s", bucket, key), e);
     }
     finally {
-      xferMgr.shutdownNow(false);
+      activeTransfers.decrementAndGet();
     }
   }
 
@@ -192,19 +510,38 @@ public abstract class AbstractS3Service implements S3Service {
   @Override
   public boolean downloadArchive(String bucket, String key, String path) {
     TransferManager xferMgr = getTransferManager();
+    activeTransfers.incrementAndGet();
     try {
       Download xfer = xferMgr.download(bucket, key, new File(path));
       AmazonArchivingHelper.showTransferDetails(xfer);
-      AmazonArchivingHelper.waitForCompletion(xfer);
+      long tracking = track(xfer);
+      try {
+        AmazonArchivingHelper.waitForCompletion(xfer);
+      }
+      finally {
+        untrack(tracking);
+      }
     }
     catch (AmazonServiceException e) {
       log.error(String.format("Failed to download archive %s/%s", bucket, key), e);
       return false;
     }
-    xferMgr.shutdownNow(false);
+    finally {
+      activeTransfers.decrementAndGet();
+    }
     return true;
   }
 
+  @Override
+  public CompletableFuture<Boolean> downloadArchiveAsync(String key, String path) {
+    return downloadArchiveAsync(getBucket(), key, path);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> downloadArchiveAsync(String bucket, String key, String path) {
+    return supplyAsync(() -> downloadArchive(bucket, key, path));
+  }
+
   @Override
   public void downloadArchiveFolder(String key, String path) {
     downloadArchiveFolder(getBucket(), key, path);
@@ -213,27 +550,36 @@ public abstract class AbstractS3Service implements S3Service {
   @Override
   public void downloadArchiveFolder(String bucket, String key, String path) {
     TransferManager xferMgr = getTransferManager();
+    activeTransfers.incrementAndGet();
     try {
       MultipleFileDownload xfer = xferMgr.downloadDirectory(bucket, key, new File(path));
       AmazonArchivingHelper.showTransferDetails(xfer);
-      AmazonArchivingHelper.waitForCompletion(xfer);
+      long tracking = track(xfer);
+      try {
+        AmazonArchivingHelper.waitForCompletion(xfer);
+      }
+      finally {
+        untrack(tracking);
+      }
     }
     catch (AmazonServiceException e) {
       log.error(String.format("Failed to download folder %s/%s", bucket, key), e);
     }
-    xferMgr.shutdownNow(false);
+    finally {
+      activeTransfers.decrementAndGet();
+    }
   }
 
   @Override
   public Optional<String> readArchive(String bucket, String key, Charset charset, String lineSeparator) {
     Objects.requireNonNull(charset);
     Objects.requireNonNull(lineSeparator);
-    S3Object object = awsS3Client.getObject(new GetObjectRequest(bucket, key));
-    if (object == null) { // Happens either if the object is absent or if the client is not allowed to read the object
+    Optional<InputStream> content = readArchiveStream(bucket, key);
+    if (!content.isPresent()) {
       return Optional.empty();
     }
     StringBuilder str = new StringBuilder();
-    try (BufferedReader reader = new BufferedReader(new InputStreamReader(object.getObjectContent(), charset))) {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(content.get(), charset))) {
       String line = reader.readLine();
       while (line != null) {
         str.append(line)
@@ -248,6 +594,45 @@ public abstract class AbstractS3Service implements S3Service {
     }
   }
 
+  @Override
+  public Optional<InputStream> readArchiveStream(String bucket, String key) {
+    return getObjectContent(new GetObjectRequest(bucket, key));
+  }
+
+  @Override
+  public Optional<InputStream> readArchiveStream(String bucket, String key, long offset, long length) {
+    if (offset < 0 || length <= 0) {
+      throw new IllegalArgumentException("Invalid range: offset " + offset + ", length " + length);
+    }
+    // the range end is inclusive
+    return getObjectContent(new GetObjectRequest(bucket, key).withRange(offset, offset + length - 1));
+  }
+
+  @Override
+  public CompletableFuture<Optional<InputStream>> readArchiveStreamAsync(String bucket, String key) {
+    return supplyAsync(() -> readArchiveStream(bucket, key));
+  }
+
+  /**
+   * @return the content of the requested S3 object, to be closed by the caller. Or an empty optional if the object does not exist or if
+   *         the application has not the read right on the object.
+   */
+  private Optional<InputStream> getObjectContent(GetObjectRequest request) {
+    S3Object object;
+    try {
+      object = awsS3Client.getObject(request);
+    }
+    catch (AmazonServiceException e) {
+      if (e.getStatusCode() != 404 && e.getStatusCode() != 403) {
+        throw e;
+      }
+      log.debug("S3 Object {}/{} not readable ({})", request.getBucketName(), request.getKey(), e.getErrorCode());
+      return Optional.empty();
+    }
+    // null happens either if the object is absent or if the client is not allowed to read the object
+    return object == null ? Optional.empty() : Optional.of(object.getObjectContent());
+  }
+
   @Override
   public boolean deleteArchive(String archiveKey) {
     return deleteArchive(getBucket(), archiveKey);
@@ -262,26 +647,106 @@ public abstract class AbstractS3Service implements S3Service {
       log.error(String.format("Failed to delete archive %s/%s", bucket, archiveKey), e);
       return false;
     }
+    finally {
+      invalidateExistence(bucket, archiveKey);
+      invalidateContents(bucket, archiveKey);
+    }
     return true;
   }
 
   @Override
-  public void deleteArchiveFolder(String archiveKey) {
-    deleteArchiveFolder(getBucket(), archiveKey);
+  public CompletableFuture<Boolean> deleteArchiveAsync(String archiveKey) {
+    return deleteArchiveAsync(getBucket(), archiveKey);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> deleteArchiveAsync(String bucket, String archiveKey) {
+    return supplyAsync(() -> deleteArchive(bucket, archiveKey));
+  }
+
+  @Override
+  public DeleteReport deleteArchiveFolder(String archiveKey) {
+    return deleteArchiveFolder(getBucket(), archiveKey);
   }
 
   @Override
-  public void deleteArchiveFolder(String bucket, String archiveKey) {
+  public DeleteReport deleteArchiveFolder(String bucket, String archiveKey) {
+    DeleteReport report = deleteArchivesByPrefix(bucket, archiveKey);
+    log.debug("Folder {}/{} deletion : {}", bucket, archiveKey, report);
+    return report;
+  }
+
+  /**
+   * Deletes all the objects of a bucket starting with the given prefix. Every listed page (up to {@value #MAX_DELETE_BATCH_SIZE} keys) is
+   * removed with a single multi-object delete request, the batches being submitted in parallel on the asynchronous executor (or run by the
+   * caller when this executor is saturated).
+   *
+   * @param bucket The bucket of the objects to delete.
+   * @param prefix The prefix of the keys to delete, {@code null} to empty the whole bucket.
+   * @return the report of the deletion.
+   */
+  protected DeleteReport deleteArchivesByPrefix(String bucket, String prefix) {
+    DeleteReport report = new DeleteReport();
+    List<CompletableFuture<Void>> batches = new ArrayList<>();
     try {
-      List<S3ObjectSummary> objects = awsS3Client.listObjects(bucket, archiveKey)
-          .getObjectSummaries();
-      if (CollectionUtils.isNotEmpty(objects)) {
-        objects.forEach(obj -> deleteArchive(bucket, obj.getKey()));
+      ListObjectsV2Request request = new ListObjectsV2Request()
+          .withBucketName(bucket)
+          .withPrefix(prefix)
+          .withMaxKeys(MAX_DELETE_BATCH_SIZE);
+      ListObjectsV2Result listing;
+      do {
+        listing = awsS3Client.listObjectsV2(request);
+        List<KeyVersion> keys = new ArrayList<>(listing.getObjectSummaries()
+            .size());
+        for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+          keys.add(new KeyVersion(summary.getKey()));
+        }
+        if (!keys.isEmpty()) {
+          CompletableFuture<Void> batch = supplyAsync(() -> deleteBatch(bucket, keys, report));
+          if (batch.isCompletedExceptionally()) {
+            // rejected: too many pending operations, runs the batch in the caller thread
+            deleteBatch(bucket, keys, report);
+          }
+          else {
+            batches.add(batch);
+          }
+        }
+        request.setContinuationToken(listing.getNextContinuationToken());
       }
+      while (listing.isTruncated());
     }
     catch (AmazonServiceException e) {
-      log.error(String.format("Failed to delete folder %s/%s", bucket, archiveKey), e);
+      log.error(String.format("Failed to list objects %s/%s", bucket, prefix), e);
+      report.setComplete(false);
+    }
+    CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+        .join();
+    invalidateExistences(bucket, prefix);
+    invalidateContents(bucket, prefix);
+    return report;
+  }
+
+  private Void deleteBatch(String bucket, List<KeyVersion> keys, DeleteReport report) {
+    try {
+      // quiet mode: only the errors are returned
+      awsS3Client.deleteObjects(new DeleteObjectsRequest(bucket)
+          .withKeys(keys)
+          .withQuiet(true));
+      report.addDeleted(keys.size());
+    }
+    catch (MultiObjectDeleteException e) {
+      report.addDeleted((long) keys.size() - e.getErrors()
+          .size());
+      e.getErrors()
+          .forEach(error -> report.addFailedKey(error.getKey()));
+      log.error("Failed to delete {} objects of bucket {} (first error: {})", e.getErrors()
+          .size(), bucket, e.getErrorMessage());
+    }
+    catch (SdkClientException e) {
+      keys.forEach(key -> report.addFailedKey(key.getKey()));
+      log.error(String.format("Failed to delete a batch of %d objects of bucket %s", keys.size(), bucket), e);
     }
+    return null;
   }
 
   @Override
@@ -295,24 +760,120 @@ public abstract class AbstractS3Service implements S3Service {
     return ol.getObjectSummaries();
   }
 
+  @Override
+  public Stream<S3ObjectSummary> streamArchives(String bucket, String prefix) {
+    return streamArchives(new ListObjectsV2Request()
+        .withBucketName(bucket)
+        .withPrefix(prefix), false);
+  }
+
+  @Override
+  public Stream<S3ObjectSummary> streamArchives(ListObjectsV2Request request, boolean prefetch) {
+    S3ObjectListingIterator iterator = new S3ObjectListingIterator(awsS3Client, request, prefetch ? this::supplyAsync : null);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(iterator::close);
+  }
+
   @Override
   public boolean hasArchive(String key) {
     return hasArchive(this.getBucket(), key);
   }
 
+  /**
+   * Checks the archive existence with a single HEAD request, going through the existence cache when enabled.
+   */
   @Override
   public boolean hasArchive(String bucket, String key) {
-    return findAllArchives(bucket).stream()
-        .filter(obj -> obj.getKey()
-            .equals(key))
-        .findAny()
-        .isPresent();
+    if (existenceCache == null) {
+      return awsS3Client.doesObjectExist(bucket, key);
+    }
+    return existenceCache.get(bucket + "/" + key, k -> awsS3Client.doesObjectExist(bucket, key));
   }
 
-  protected TransferManager getTransferManager() {
-    return TransferManagerBuilder.standard()
-        .withS3Client(awsS3Client)
-        .build();
+  private long track(Transfer transfer) {
+    return transferMonitor == null ? 0 : transferMonitor.track(getClass().getSimpleName(), transfer);
+  }
+
+  private void untrack(long tracking) {
+    if (transferMonitor != null) {
+      transferMonitor.untrack(tracking);
+    }
+  }
+
+  void invalidateExistence(String bucket, String key) {
+    if (existenceCache != null) {
+      existenceCache.invalidate(bucket + "/" + key);
+    }
+  }
+
+  private void invalidateExistences(String bucket, String prefix) {
+    if (existenceCache != null) {
+      String cachePrefix = bucket + "/" + (prefix == null ? "" : prefix);
+      existenceCache.asMap()
+          .keySet()
+          .removeIf(cacheKey -> cacheKey.startsWith(cachePrefix));
+    }
+  }
+
+  /**
+   * Drops the deleted contents from the index of the deduplicating stores.
+   */
+  private void invalidateContents(String bucket, String prefix) {
+    deduplicatingStores.values()
+        .forEach(store -> store.invalidate(bucket, prefix));
+  }
+
+  /**
+   * @return the shared transfer manager of this service. Falls back to a default configured one if
+   *         {@link #initTransferManager(String, int, long, long)} has not been called.
+   */
+  protected synchronized TransferManager getTransferManager() {
+    if (transferManager == null) {
+      transferManager = TransferManagerBuilder.standard()
+          .withS3Client(awsS3Client)
+          .build();
+    }
+    return transferManager;
+  }
+
+  /**
+   * @return the uploader of the object lock buckets. Falls back to one uploading the parts from the calling thread if
+   *         {@link #initTransferManager(String, int, long, long)} has not been called.
+   */
+  protected synchronized DigestingUploader getDigestingUploader() {
+    if (digestingUploader == null) {
+      TransferManagerConfiguration configuration = getTransferManager().getConfiguration();
+      digestingUploader = new DigestingUploader(awsS3Client, null, 1, configuration.getMultipartUploadThreshold(),
+          configuration.getMinimumUploadPartSize());
+    }
+    return digestingUploader;
+  }
+
+  /**
+   * @return the executor of the asynchronous operations. Falls back to a default bounded one if
+   *         {@link #initAsyncExecutor(String, int, int)} has not been called.
+   */
+  protected synchronized ExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      initAsyncExecutor(getClass().getSimpleName(), DEFAULT_ASYNC_CONCURRENCY, DEFAULT_ASYNC_QUEUE_CAPACITY);
+    }
+    return asyncExecutor;
+  }
+
+  /**
+   * Runs the given blocking operation on the asynchronous executor, so the caller thread (e.g. a WebFlux event loop) is never parked.
+   *
+   * @return the future result of the operation, completed exceptionally with a {@link RejectedExecutionException} if too many operations
+   *         are already pending.
+   */
+  protected <T> CompletableFuture<T> supplyAsync(Supplier<T> operation) {
+    try {
+      return CompletableFuture.supplyAsync(operation, getAsyncExecutor());
+    }
+    catch (RejectedExecutionException e) {
+      log.warn("Asynchronous S3 operation rejected, too many pending operations");
+      return CompletableFuture.failedFuture(e);
+    }
   }
 
   protected AWSS3Control getS3ControlClient() {
@@ -323,6 +884,17 @@ public abstract class AbstractS3Service implements S3Service {
     throw new UnsupportedOperationException("Retrieval of aws security token service not implemented.");
   }
 
+  /**
+   * @return the account id of the service credentials, resolved with STS on the first call only.
+   */
+  protected String getAccountId() {
+    if (accountId == null) {
+      accountId = getAwsSecurity().getCallerIdentity(new GetCallerIdentityRequest())
+          .getAccount();
+    }
+    return accountId;
+  }
+
   protected abstract String getBucket();
 
   protected abstract String getSseAlgorithm();
@@ -342,8 +914,7 @@ public abstract class AbstractS3Service implements S3Service {
       String username, String batchOperationRole,
       String tempBucketTargetPrefix, String tempBucketReportPrefix) {
 
-    String account = getAwsSecurity().getCallerIdentity(new GetCallerIdentityRequest())
-        .getAccount();
+    String account = getAccountId();
     CreateJobResult result = getS3ControlClient().createJob(new CreateJobRequest()
         .withAccountId(account)
         .withOperation(AwsHelper.createJobOperation(
@@ -365,4 +936,20 @@ public abstract class AbstractS3Service implements S3Service {
     log.info("Start batch operations with id {} successfully", result.getJobId());
     return Optional.ofNullable(result);
   }
+
+  @Override
+  public DeduplicatingArchiveStore deduplicatingStore(String bucket, String contentPrefix) {
+    return deduplicatingStores.computeIfAbsent(bucket + "/" + contentPrefix,
+        k -> new DeduplicatingArchiveStore(this, bucket, contentPrefix, meterRegistry));
+  }
+
+  @Override
+  public CompletableFuture<BatchCopyReport> batchCopy(BatchCopyRequest request) {
+    synchronized (this) {
+      if (batchCopyEngine == null) {
+        initBatchCopyEngine(getClass().getSimpleName(), DEFAULT_CLIENT_COPY_THRESHOLD, DEFAULT_BATCH_POLL_INTERVAL);
+      }
+    }
+    return batchCopyEngine.copy(request);
+  }
 }
@@ -5,12 +5,12 @@ package com.demat.invoice.aws.service;
 
 import com.amazonaws.services.s3control.AWSS3Control;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
-import com.amazonaws.services.securitytoken.model.GetCallerIdentityRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import javax.annotation.PostConstruct;
+import java.time.Duration;
 
 import static com.demat.invoice.aws.utils.AwsHelper.*;
 import static java.lang.System.currentTimeMillis;
@@ -47,6 +47,34 @@ public class AmazonS3ServiceImpl extends AbstractS3Service {
   @Value("${aws.archiving.s3.bucket:}")
   private String bucket;
 
+  // Transfer configuration
+  @Value("${aws.archiving.s3.transfer.threads:10}")
+  private int transferThreads;
+
+  @Value("${aws.archiving.s3.transfer.multipart-threshold:16777216}")
+  private long multipartThreshold;
+
+  @Value("${aws.archiving.s3.transfer.part-size:5242880}")
+  private long partSize;
+
+  @Value("${aws.archiving.s3.async.concurrency:16}")
+  private int asyncConcurrency;
+
+  @Value("${aws.archiving.s3.async.queue-capacity:1000}")
+  private int asyncQueueCapacity;
+
+  @Value("${aws.archiving.s3.existence-cache.max-size:0}")
+  private long existenceCacheMaxSize;
+
+  @Value("${aws.archiving.s3.existence-cache.ttl-seconds:300}")
+  private long existenceCacheTtl;
+
+  @Value("${aws.archiving.s3.batch.client-copy-threshold:1000}")
+  private long clientCopyThreshold;
+
+  @Value("${aws.archiving.s3.batch.poll-interval-seconds:10}")
+  private long batchPollInterval;
+
   private boolean isS3ArchiveServiceAvailable = false;
 
   private AWSS3Control s3ControlClient;
@@ -76,9 +104,12 @@ public class AmazonS3ServiceImpl extends AbstractS3Service {
       log.info("\t Region : {}", region);
       this.awsS3Client = getAmazonS3Client(accessKey, secretKey, region);
       this.awsSecurity = getAmazonSecurityTokenService(accessKey, secretKey, region);
-      String accountId = awsSecurity.getCallerIdentity(new GetCallerIdentityRequest())
-          .getAccount();
+      String accountId = getAccountId();
       this.s3ControlClient = getAmazonS3ControlClient(accessKey, secretKey, region, accountId);
+      initTransferManager(SERVICE_NAME, transferThreads, multipartThreshold, partSize);
+      initAsyncExecutor(SERVICE_NAME, asyncConcurrency, asyncQueueCapacity);
+      initExistenceCache(SERVICE_NAME, existenceCacheMaxSize, Duration.ofSeconds(existenceCacheTtl));
+      initBatchCopyEngine(SERVICE_NAME, clientCopyThreshold, Duration.ofSeconds(batchPollInterval));
     }
     catch (Exception e) {
       log.error(String.format("AMAZON ARCHIVING SERVICES NOT STARTED in %d ms.", currentTimeMillis() - start), e);
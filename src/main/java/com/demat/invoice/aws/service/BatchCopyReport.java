@@ -0,0 +1,107 @@
+package com.demat.invoice.aws.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Result of a {@link BatchCopyRequest}. Client side copies run in parallel, so the counters are thread safe.
+ */
+public class BatchCopyReport {
+
+  /** Id of the S3 Batch Operations job, {@code null} if the copy was done by the client */
+  private final String jobId;
+
+  private String status;
+
+  private long totalTasks;
+
+  private final AtomicLong succeededTasks = new AtomicLong();
+
+  private final AtomicLong failedTasks = new AtomicLong();
+
+  private final Queue<String> failedKeys = new ConcurrentLinkedQueue<>();
+
+  private final List<String> failureReasons = new ArrayList<>();
+
+  private Duration duration;
+
+  public BatchCopyReport(String jobId) {
+    this.jobId = jobId;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public boolean isClientSide() {
+    return jobId == null;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public long getTotalTasks() {
+    return totalTasks;
+  }
+
+  public void setTotalTasks(long totalTasks) {
+    this.totalTasks = totalTasks;
+  }
+
+  public long getSucceededTasks() {
+    return succeededTasks.get();
+  }
+
+  public void addSucceededTasks(long count) {
+    succeededTasks.addAndGet(count);
+  }
+
+  public long getFailedTasks() {
+    return failedTasks.get();
+  }
+
+  public void addFailedTasks(long count) {
+    failedTasks.addAndGet(count);
+  }
+
+  /**
+   * @return the keys of the objects which could not be copied (read from the job completion report for S3 Batch Operations jobs).
+   */
+  public List<String> getFailedKeys() {
+    return new ArrayList<>(failedKeys);
+  }
+
+  public void addFailedKey(String key) {
+    failedKeys.add(key);
+  }
+
+  /**
+   * @return the reasons of a job failure, as {@code code: reason}.
+   */
+  public List<String> getFailureReasons() {
+    return failureReasons;
+  }
+
+  public Duration getDuration() {
+    return duration;
+  }
+
+  public void setDuration(Duration duration) {
+    this.duration = duration;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchCopyReport [jobId=" + jobId + ", status=" + status + ", total=" + totalTasks + ", succeeded=" + succeededTasks +
+        ", failed=" + failedTasks + ", duration=" + duration + "]";
+  }
+}
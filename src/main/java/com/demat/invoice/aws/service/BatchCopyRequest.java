@@ -0,0 +1,125 @@
+package com.demat.invoice.aws.service;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Copy of a set of objects of a source bucket into a target bucket and prefix.
+ *
+ * @see S3BatchCopyEngine
+ */
+public class BatchCopyRequest {
+
+  private final String sourceBucket;
+
+  /** Keys of the objects to copy, consumed once while writing the manifest */
+  private final Stream<String> keys;
+
+  private final String targetBucket;
+
+  private final String targetPrefix;
+
+  private String manifestBucket;
+
+  private String manifestKey;
+
+  private String reportBucket;
+
+  private String reportPrefix;
+
+  private String batchOperationRole;
+
+  private int priority = 10;
+
+  public BatchCopyRequest(String sourceBucket, Stream<String> keys, String targetBucket, String targetPrefix) {
+    this.sourceBucket = sourceBucket;
+    this.keys = keys;
+    this.targetBucket = targetBucket;
+    this.targetPrefix = targetPrefix;
+  }
+
+  public String getSourceBucket() {
+    return sourceBucket;
+  }
+
+  public Stream<String> getKeys() {
+    return keys;
+  }
+
+  public String getTargetBucket() {
+    return targetBucket;
+  }
+
+  public String getTargetPrefix() {
+    return targetPrefix;
+  }
+
+  /**
+   * @return the bucket where the manifest is uploaded, the target bucket by default.
+   */
+  public String getManifestBucket() {
+    return manifestBucket == null ? targetBucket : manifestBucket;
+  }
+
+  public BatchCopyRequest withManifestBucket(String manifestBucket) {
+    this.manifestBucket = manifestBucket;
+    return this;
+  }
+
+  /**
+   * @return the key of the uploaded manifest, a random key under the report prefix by default.
+   */
+  public String getManifestKey() {
+    if (manifestKey == null) {
+      manifestKey = getReportPrefix() + "/manifest-" + UUID.randomUUID() + ".csv";
+    }
+    return manifestKey;
+  }
+
+  public BatchCopyRequest withManifestKey(String manifestKey) {
+    this.manifestKey = manifestKey;
+    return this;
+  }
+
+  /**
+   * @return the bucket of the job completion report, the target bucket by default.
+   */
+  public String getReportBucket() {
+    return reportBucket == null ? targetBucket : reportBucket;
+  }
+
+  public BatchCopyRequest withReportBucket(String reportBucket) {
+    this.reportBucket = reportBucket;
+    return this;
+  }
+
+  /**
+   * @return the prefix of the job completion report, {@code batch-reports} by default.
+   */
+  public String getReportPrefix() {
+    return reportPrefix == null ? "batch-reports" : reportPrefix;
+  }
+
+  public BatchCopyRequest withReportPrefix(String reportPrefix) {
+    this.reportPrefix = reportPrefix;
+    return this;
+  }
+
+  public String getBatchOperationRole() {
+    return batchOperationRole;
+  }
+
+  public BatchCopyRequest withBatchOperationRole(String batchOperationRole) {
+    this.batchOperationRole = batchOperationRole;
+    return this;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public BatchCopyRequest withPriority(int priority) {
+    this.priority = priority;
+    return this;
+  }
+}
@@ -0,0 +1,268 @@
+package com.demat.invoice.aws.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.ObjectTagging;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.Tag;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+import com.demat.invoice.aws.utils.AmazonArchivingHelper;
+import com.demat.invoice.aws.utils.ArchiveDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Content addressed archive store: the content of an archive is uploaded once under {@code <contentPrefix>/<sha256>}, and the key
+ * requested by the caller only holds an empty reference object pointing to this content. Identical archives are therefore stored and
+ * uploaded only once.
+ * <p>
+ * The archives up to the single PUT threshold of the service are read once in memory: their SHA-256 and MD5 (sent as {@code Content-MD5},
+ * required by the object lock buckets) are computed and the content is uploaded from this buffer. Larger archives are uploaded to a
+ * staging key under {@code <contentPrefix>/staging/} while their SHA-256 is computed, so they are read once too, then copied server side
+ * to their content key if this content is not stored yet, and the staging object is deleted. A large duplicate is therefore still
+ * transferred once, and on an object lock bucket its staging version is kept until the end of its retention.
+ * <p>
+ * A store is shared per bucket and content prefix ({@link S3Service#deduplicatingStore(String, String)}). It keeps a bounded index of the
+ * SHA-256 of the contents it has stored or found, invalidated by the deletions made through the service. The contents absent from the
+ * index are checked with {@link S3Service#hasArchive(String, String)}, which goes through the existence cache of the service. A content
+ * deleted without the service may still be reported as stored until it is evicted from the index.
+ */
+public class DeduplicatingArchiveStore {
+
+  private static final Logger log = LoggerFactory.getLogger(DeduplicatingArchiveStore.class);
+
+  /** User metadata of the reference objects holding the key of the content */
+  public static final String CONTENT_KEY_METADATA = "dedup-content-key";
+
+  /** User metadata of the reference objects holding the SHA-256 of the content */
+  public static final String SHA256_METADATA = "dedup-sha256";
+
+  private static final String EMPTY_CONTENT_MD5 = Md5Utils.md5AsBase64(new byte[0]);
+
+  private static final long DEFAULT_INDEX_SIZE = 10_000;
+
+  private final AbstractS3Service s3Service;
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final String contentPrefix;
+
+  private final Counter hits;
+
+  private final Counter misses;
+
+  /** Content key per SHA-256 of the contents known to be stored */
+  private final Cache<String, String> index;
+
+  DeduplicatingArchiveStore(AbstractS3Service s3Service, String bucket, String contentPrefix, MeterRegistry meterRegistry) {
+    this.s3Service = s3Service;
+    this.client = s3Service.awsS3Client;
+    this.bucket = bucket;
+    this.contentPrefix = contentPrefix;
+    if (meterRegistry != null) {
+      this.hits = meterRegistry.counter("s3.dedup.uploads", "bucket", bucket, "outcome", "hit");
+      this.misses = meterRegistry.counter("s3.dedup.uploads", "bucket", bucket, "outcome", "miss");
+    }
+    else {
+      this.hits = null;
+      this.misses = null;
+    }
+    this.index = Caffeine.newBuilder()
+        .maximumSize(DEFAULT_INDEX_SIZE)
+        .build();
+  }
+
+  /**
+   * Stores an archive, uploading its content only if an identical content is not already stored.
+   *
+   * @param key The key of the reference object, {@code null} to only store the content.
+   * @param archive The local file to store.
+   * @param metadatas The user metadatas of the reference object (and of the content when it is uploaded).
+   * @param tags The tags of the reference object (and of the content when it is uploaded).
+   * @return the key of the stored content, or an empty optional if the archive could not be stored.
+   */
+  public Optional<String> store(String key, File archive, Map<String, String> metadatas, List<Tag> tags) {
+    Optional<String> contentKey = archive.length() <= s3Service.getDigestingUploader()
+        .getMultipartThreshold() ? storeContent(archive, metadatas, tags) : storeStaged(archive, metadatas, tags);
+    if (contentKey.isEmpty()) {
+      return Optional.empty();
+    }
+    if (key != null && !putReference(key, contentKey.get(), contentKey.get()
+        .substring(contentPrefix.length() + 1), metadatas, tags)) {
+      return Optional.empty();
+    }
+    return contentKey;
+  }
+
+  /**
+   * Drops from the index the contents whose key starts with the given prefix.
+   *
+   * @param bucket The bucket of the deleted objects.
+   * @param prefix The key (or the prefix of the keys) of the deleted objects, {@code null} for the whole bucket.
+   */
+  void invalidate(String bucket, String prefix) {
+    if (!this.bucket.equals(bucket)) {
+      return;
+    }
+    if (prefix == null) {
+      index.invalidateAll();
+    }
+    else if (prefix.startsWith(contentPrefix) || contentPrefix.startsWith(prefix)) {
+      index.asMap()
+          .values()
+          .removeIf(contentKey -> contentKey.startsWith(prefix));
+    }
+  }
+
+  /**
+   * Stores an archive read in memory, its digests being computed on this buffer.
+   */
+  private Optional<String> storeContent(File archive, Map<String, String> metadatas, List<Tag> tags) {
+    byte[] content;
+    try {
+      content = Files.readAllBytes(archive.toPath());
+    }
+    catch (IOException e) {
+      log.error(String.format("Failed to read archive %s", archive), e);
+      return Optional.empty();
+    }
+
+    ArchiveDigest digest = ArchiveDigest.of(content);
+    String sha256 = digest.getSha256Hex();
+    String contentKey = contentPrefix + "/" + sha256;
+    if (isStored(sha256, contentKey)) {
+      increment(hits);
+    }
+    else {
+      if (s3Service.uploadContent(bucket, contentKey, content, metadatas, tags, digest.getMd5Base64()) == null) {
+        return Optional.empty();
+      }
+      index.put(sha256, contentKey);
+      increment(misses);
+    }
+    return Optional.of(contentKey);
+  }
+
+  /**
+   * Stores a large archive, uploaded to a staging key while its SHA-256 is computed, then copied server side to its content key if
+   * this content is not stored yet.
+   */
+  private Optional<String> storeStaged(File archive, Map<String, String> metadatas, List<Tag> tags) {
+    String stagingKey = contentPrefix + "/staging/" + UUID.randomUUID();
+    MessageDigest digest = ArchiveDigest.newDigest("SHA-256");
+    if (s3Service.uploadDigesting(bucket, stagingKey, archive, metadatas, tags, digest) == null) {
+      return Optional.empty();
+    }
+
+    try {
+      String sha256 = BinaryUtils.toHex(digest.digest());
+      String contentKey = contentPrefix + "/" + sha256;
+      if (isStored(sha256, contentKey)) {
+        increment(hits);
+      }
+      else {
+        if (!s3Service.copyArchive(bucket, stagingKey, contentKey)) {
+          return Optional.empty();
+        }
+        index.put(sha256, contentKey);
+        increment(misses);
+      }
+      return Optional.of(contentKey);
+    }
+    finally {
+      s3Service.deleteArchive(bucket, stagingKey);
+    }
+  }
+
+  private boolean isStored(String sha256, String contentKey) {
+    if (index.getIfPresent(sha256) != null) {
+      return true;
+    }
+    if (s3Service.hasArchive(bucket, contentKey)) {
+      index.put(sha256, contentKey);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param key The key of a reference object or of a plain archive.
+   * @return the key of the content of the archive, the given key itself if it is not a reference object.
+   */
+  public String resolve(String key) {
+    try {
+      String contentKey = client.getObjectMetadata(bucket, key)
+          .getUserMetaDataOf(CONTENT_KEY_METADATA);
+      return contentKey == null ? key : contentKey;
+    }
+    catch (AmazonServiceException e) {
+      if (e.getStatusCode() == 404) {
+        return key;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the content of an archive stored by this store, following the reference object.
+   *
+   * @see S3Service#readArchiveStream(String, String)
+   */
+  public Optional<InputStream> readArchiveStream(String key) {
+    return s3Service.readArchiveStream(bucket, resolve(key));
+  }
+
+  private boolean putReference(String key, String contentKey, String sha256, Map<String, String> metadatas, List<Tag> tags) {
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(0);
+    metadata.setContentMD5(EMPTY_CONTENT_MD5);
+    if (MapUtils.isNotEmpty(metadatas)) {
+      AmazonArchivingHelper.populateMetadata(metadata, metadatas);
+    }
+    metadata.addUserMetadata(CONTENT_KEY_METADATA, contentKey);
+    metadata.addUserMetadata(SHA256_METADATA, sha256);
+
+    PutObjectRequest request = new PutObjectRequest(bucket, key, new ByteArrayInputStream(new byte[0]), metadata);
+    if (CollectionUtils.isNotEmpty(tags)) {
+      request.setTagging(new ObjectTagging(tags));
+    }
+    try {
+      client.putObject(request);
+      s3Service.invalidateExistence(bucket, key);
+      return true;
+    }
+    catch (SdkClientException e) {
+      log.error(String.format("Failed to store reference %s/%s to %s", bucket, key, contentKey), e);
+      return false;
+    }
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.demat.invoice.aws.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Result of a bulk deletion of S3 objects. Delete batches may run in parallel, so the report is thread safe.
+ */
+public class DeleteReport {
+
+  private final AtomicLong deletedCount = new AtomicLong();
+
+  private final Queue<String> failedKeys = new ConcurrentLinkedQueue<>();
+
+  /** {@code false} if the objects listing stopped on an error, some objects may then have been left untouched */
+  private volatile boolean complete = true;
+
+  public long getDeletedCount() {
+    return deletedCount.get();
+  }
+
+  public void addDeleted(long count) {
+    deletedCount.addAndGet(count);
+  }
+
+  public List<String> getFailedKeys() {
+    return new ArrayList<>(failedKeys);
+  }
+
+  public void addFailedKey(String key) {
+    failedKeys.add(key);
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public void setComplete(boolean complete) {
+    this.complete = complete;
+  }
+
+  /**
+   * @return {@code true} if all the listed objects have been deleted.
+   */
+  public boolean isSuccessful() {
+    return complete && failedKeys.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "DeleteReport [deleted=" + deletedCount + ", failed=" + failedKeys.size() + ", complete=" + complete + "]";
+  }
+}
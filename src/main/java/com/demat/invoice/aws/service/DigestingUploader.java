@@ -0,0 +1,272 @@
+package com.demat.invoice.aws.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import com.amazonaws.util.BinaryUtils;
+import com.demat.invoice.aws.utils.ArchiveDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads a file with a {@code Content-MD5} header on each request (as required by the object lock buckets) while reading the file only
+ * once: each part is read by chunks in memory, digested, then uploaded from memory.
+ * <p>
+ * Files up to the multipart threshold are sent with a single PUT. Larger files are sent in parts, each one with its own MD5, and the
+ * composite checksum of the parts (MD5 of the concatenated part digests, suffixed by the number of parts) is checked against the ETag
+ * returned by S3, but for the SSE-KMS objects whose ETag is opaque. At most {@code maxPartsInFlight} parts, and no more than
+ * {@value #MAX_BUFFERED_BYTES} bytes of parts, are held in memory at the same time by an upload.
+ */
+class DigestingUploader {
+
+  private static final Logger log = LoggerFactory.getLogger(DigestingUploader.class);
+
+  /** Maximum size of the parts held in memory by a multipart upload */
+  static final long MAX_BUFFERED_BYTES = 64L * 1024 * 1024;
+
+  private final AmazonS3 client;
+
+  /** Executor uploading the parts, {@code null} to upload them from the calling thread */
+  private final ExecutorService executor;
+
+  private final int maxPartsInFlight;
+
+  private final long multipartThreshold;
+
+  private final long partSize;
+
+  /**
+   * @throws IllegalArgumentException if the threshold or the part size do not fit in a byte array.
+   */
+  DigestingUploader(AmazonS3 client, ExecutorService executor, int maxPartsInFlight, long multipartThreshold, long partSize) {
+    if (multipartThreshold > Integer.MAX_VALUE || partSize > Integer.MAX_VALUE || partSize <= 0) {
+      throw new IllegalArgumentException(String.format(
+          "Multipart threshold (%d) and part size (%d) of the digesting uploads must be positive and at most %d bytes",
+          multipartThreshold, partSize, Integer.MAX_VALUE));
+    }
+    this.client = client;
+    this.executor = executor;
+    this.maxPartsInFlight = (int) Math.max(1, Math.min(maxPartsInFlight, MAX_BUFFERED_BYTES / partSize));
+    this.multipartThreshold = multipartThreshold;
+    this.partSize = partSize;
+  }
+
+  /**
+   * @param metadata The metadata of the object, its content length and MD5 are set by the upload.
+   * @param tagging The tags of the object, may be {@code null}.
+   * @param contentMd5 The Base64 encoded MD5 of the file if already known, only used by single PUT uploads.
+   * @param progress The progress of the upload, updated as the content is sent, may be {@code null}.
+   */
+  UploadResult upload(String bucket, String key, File file, ObjectMetadata metadata, ObjectTagging tagging, String contentMd5,
+      TransferProgress progress) throws IOException {
+    return upload(bucket, key, file, metadata, tagging, contentMd5, progress, null);
+  }
+
+  /**
+   * @param contentDigest A digest updated with the whole content of the file, in order, as it is read for the upload, may be
+   *          {@code null}.
+   * @see #upload(String, String, File, ObjectMetadata, ObjectTagging, String, TransferProgress)
+   */
+  UploadResult upload(String bucket, String key, File file, ObjectMetadata metadata, ObjectTagging tagging, String contentMd5,
+      TransferProgress progress, MessageDigest contentDigest) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      metadata.setContentLength(size);
+      if (progress != null) {
+        progress.setTotalBytesToTransfer(size);
+      }
+      UploadResult result;
+      if (size <= multipartThreshold) {
+        byte[] content = read(channel, 0, (int) size);
+        if (contentDigest != null) {
+          contentDigest.update(content);
+        }
+        result = putObject(bucket, key, content, metadata, tagging, contentMd5);
+      }
+      else {
+        result = multipartUpload(bucket, key, channel, size, metadata, tagging, progress, contentDigest);
+      }
+      if (progress != null && size <= multipartThreshold) {
+        progress.updateProgress(size);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Uploads a content already in memory with a single PUT.
+   *
+   * @param metadata The metadata of the object, its content length and MD5 are set by the upload.
+   * @param tagging The tags of the object, may be {@code null}.
+   * @param contentMd5 The Base64 encoded MD5 of the content if already known.
+   */
+  UploadResult upload(String bucket, String key, byte[] content, ObjectMetadata metadata, ObjectTagging tagging, String contentMd5) {
+    metadata.setContentLength(content.length);
+    return putObject(bucket, key, content, metadata, tagging, contentMd5);
+  }
+
+  /**
+   * @return the size up to which a file is uploaded with a single PUT, from memory.
+   */
+  long getMultipartThreshold() {
+    return multipartThreshold;
+  }
+
+  private UploadResult putObject(String bucket, String key, byte[] content, ObjectMetadata metadata, ObjectTagging tagging,
+      String contentMd5) {
+    metadata.setContentMD5(contentMd5 != null ? contentMd5 : BinaryUtils.toBase64(md5(content)));
+
+    PutObjectRequest request = new PutObjectRequest(bucket, key, new ByteArrayInputStream(content), metadata);
+    request.setTagging(tagging);
+    PutObjectResult putResult = client.putObject(request);
+
+    UploadResult result = new UploadResult();
+    result.setBucketName(bucket);
+    result.setKey(key);
+    result.setETag(putResult.getETag());
+    result.setVersionId(putResult.getVersionId());
+    return result;
+  }
+
+  private UploadResult multipartUpload(String bucket, String key, FileChannel channel, long size, ObjectMetadata metadata,
+      ObjectTagging tagging, TransferProgress progress, MessageDigest contentDigest) throws IOException {
+    String uploadId = client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, metadata).withTagging(tagging))
+        .getUploadId();
+    MessageDigest composite = ArchiveDigest.newDigest("MD5");
+    int partCount;
+    CompleteMultipartUploadResult completeResult;
+    try {
+      Semaphore inFlight = new Semaphore(maxPartsInFlight);
+      List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+
+      int partNumber = 1;
+      for (long position = 0; position < size; position += partSize, partNumber++) {
+        int length = (int) Math.min(partSize, size - position);
+        inFlight.acquire();
+        byte[] content;
+        try {
+          content = read(channel, position, length);
+        }
+        catch (IOException e) {
+          inFlight.release();
+          throw e;
+        }
+        if (contentDigest != null) {
+          // the parts are read in order
+          contentDigest.update(content);
+        }
+        byte[] partMd5 = md5(content);
+        composite.update(partMd5);
+
+        UploadPartRequest request = new UploadPartRequest()
+            .withBucketName(bucket)
+            .withKey(key)
+            .withUploadId(uploadId)
+            .withPartNumber(partNumber)
+            .withPartSize(length)
+            .withMD5Digest(BinaryUtils.toBase64(partMd5))
+            .withInputStream(new ByteArrayInputStream(content));
+        CompletableFuture<PartETag> part = executor == null
+            ? CompletableFuture.completedFuture(uploadPart(request, inFlight, progress))
+            : CompletableFuture.supplyAsync(() -> uploadPart(request, inFlight, progress), executor);
+        parts.add(part);
+      }
+
+      List<PartETag> partETags = new ArrayList<>(parts.size());
+      for (CompletableFuture<PartETag> part : parts) {
+        partETags.add(join(part));
+      }
+      partCount = partETags.size();
+      completeResult = client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+      throw new SdkClientException("Interrupted multipart upload of " + bucket + "/" + key, e);
+    }
+    catch (IOException | RuntimeException e) {
+      client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+      throw e;
+    }
+
+    // the upload is completed: a mismatch can no longer be aborted, the parts MD5 headers were checked by S3 anyway
+    String checksum = BinaryUtils.toHex(composite.digest()) + "-" + partCount;
+    String eTag = completeResult.getETag();
+    String sseAlgorithm = completeResult.getSSEAlgorithm();
+    if (eTag != null && !checksum.equals(eTag.replace("\"", ""))) {
+      if (sseAlgorithm != null && sseAlgorithm.startsWith(SSEAlgorithm.KMS.getAlgorithm())) {
+        // SSE-KMS objects have an opaque ETag
+        log.debug("Composite checksum of {}/{} not comparable to the ETag of a {} object", bucket, key, sseAlgorithm);
+      }
+      else {
+        log.warn("Composite checksum mismatch for {}/{} : expected {}, got {}", bucket, key, checksum, eTag);
+      }
+    }
+
+    UploadResult result = new UploadResult();
+    result.setBucketName(bucket);
+    result.setKey(key);
+    result.setETag(eTag);
+    result.setVersionId(completeResult.getVersionId());
+    return result;
+  }
+
+  private PartETag uploadPart(UploadPartRequest request, Semaphore inFlight, TransferProgress progress) {
+    try {
+      PartETag partETag = client.uploadPart(request)
+          .getPartETag();
+      if (progress != null) {
+        progress.updateProgress(request.getPartSize());
+      }
+      return partETag;
+    }
+    finally {
+      inFlight.release();
+    }
+  }
+
+  private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) == -1) {
+        throw new EOFException("File truncated during the upload");
+      }
+    }
+    return buffer.array();
+  }
+
+  private static byte[] md5(byte[] content) {
+    return ArchiveDigest.newDigest("MD5")
+        .digest(content);
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
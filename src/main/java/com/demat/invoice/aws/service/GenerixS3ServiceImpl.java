@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import javax.annotation.PostConstruct;
+import java.time.Duration;
 
 import static com.demat.invoice.aws.utils.AwsHelper.getAmazonS3ClientWithEndpoint;
 import static java.lang.System.currentTimeMillis;
@@ -39,6 +40,33 @@ public class GenerixS3ServiceImpl extends AbstractS3Service {
   @Value("${gnx.archiving.s3.objectlock:false}")
   private boolean objectLock;
 
+  @Value("${gnx.archiving.s3.transfer.threads:10}")
+  private int transferThreads;
+
+  @Value("${gnx.archiving.s3.transfer.multipart-threshold:16777216}")
+  private long multipartThreshold;
+
+  @Value("${gnx.archiving.s3.transfer.part-size:5242880}")
+  private long partSize;
+
+  @Value("${gnx.archiving.s3.async.concurrency:16}")
+  private int asyncConcurrency;
+
+  @Value("${gnx.archiving.s3.async.queue-capacity:1000}")
+  private int asyncQueueCapacity;
+
+  @Value("${gnx.archiving.s3.existence-cache.max-size:0}")
+  private long existenceCacheMaxSize;
+
+  @Value("${gnx.archiving.s3.existence-cache.ttl-seconds:300}")
+  private long existenceCacheTtl;
+
+  @Value("${gnx.archiving.s3.batch.client-copy-threshold:1000}")
+  private long clientCopyThreshold;
+
+  @Value("${gnx.archiving.s3.batch.poll-interval-seconds:10}")
+  private long batchPollInterval;
+
   private boolean isS3ArchiveServiceAvailable = false;
 
   @Override
@@ -64,6 +92,10 @@ public class GenerixS3ServiceImpl extends AbstractS3Service {
       log.info("\t Region : {}", region);
       log.info("\t Endpoint : {}", endpoint);
       this.awsS3Client = getAmazonS3ClientWithEndpoint(accessKey, secretKey, region, endpoint);
+      initTransferManager(SERVICE_NAME, transferThreads, multipartThreshold, partSize);
+      initAsyncExecutor(SERVICE_NAME, asyncConcurrency, asyncQueueCapacity);
+      initExistenceCache(SERVICE_NAME, existenceCacheMaxSize, Duration.ofSeconds(existenceCacheTtl));
+      initBatchCopyEngine(SERVICE_NAME, clientCopyThreshold, Duration.ofSeconds(batchPollInterval));
     }
     catch (Exception e) {
       log.error(String.format("GENERIX S3 ARCHIVING SERVICES NOT STARTED in %d ms.", currentTimeMillis() - start), e);
@@ -0,0 +1,629 @@
+package com.demat.invoice.aws.service;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.Tag;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import com.amazonaws.services.s3control.model.CreateJobResult;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.System.currentTimeMillis;
+
+/**
+ * {@link S3Service} routing the calls between the Amazon ({@link AmazonS3ServiceImpl}) and the Generix ({@link GenerixS3ServiceImpl})
+ * services. Each backend is called through its own circuit breaker, opened when the failure rate or the slow calls rate exceeds the
+ * configured thresholds, and its average latency is tracked.
+ * <p>
+ * Routing modes:
+ * <ul>
+ * <li>{@link Mode#FAILOVER}: all the calls go to the primary backend, and to the secondary one when the primary fails or its circuit
+ * breaker is open.</li>
+ * <li>{@link Mode#DUAL_WRITE}: like {@link Mode#FAILOVER}, and the writes done on one backend are replicated on the other one. The
+ * uploads are replicated before returning, as the caller may delete its files afterwards, the deletions asynchronously.</li>
+ * <li>{@link Mode#READ_FASTEST}: like {@link Mode#DUAL_WRITE}, but the reads go first to the healthy backend with the lowest average
+ * latency.</li>
+ * </ul>
+ * Listings ({@link #streamArchives(String, String)}) are lazy, so they are routed to the first healthy backend without failover.
+ * <p>
+ * The deduplicating stores ({@link #deduplicatingStore(String, String)}) and the batch copies ({@link #batchCopy(BatchCopyRequest)}) are
+ * bound to a single backend and cannot be replicated: they are routed to the first healthy backend in {@link Mode#FAILOVER} mode and
+ * rejected in the dual write modes.
+ * <p>
+ * When the routing is disabled, all the calls are delegated to the primary backend.
+ */
+@Service(RoutingS3ServiceImpl.SERVICE_NAME)
+public class RoutingS3ServiceImpl implements S3Service {
+
+  private static final Logger log = LoggerFactory.getLogger(RoutingS3ServiceImpl.class);
+
+  public static final String SERVICE_NAME = "gnxRoutingS3Service";
+
+  public enum Mode {
+    FAILOVER,
+    DUAL_WRITE,
+    READ_FASTEST
+  }
+
+  @Value("${gnx.archiving.routing.enabled:false}")
+  private boolean enabled;
+
+  @Value("${gnx.archiving.routing.mode:FAILOVER}")
+  private Mode mode;
+
+  /** Bean name of the primary backend, the other one is the secondary */
+  @Value("${gnx.archiving.routing.primary:" + AmazonS3ServiceImpl.SERVICE_NAME + "}")
+  private String primaryName;
+
+  @Value("${gnx.archiving.routing.failure-rate-threshold:50}")
+  private float failureRateThreshold;
+
+  @Value("${gnx.archiving.routing.slow-call-threshold-ms:5000}")
+  private long slowCallThreshold;
+
+  @Value("${gnx.archiving.routing.slow-call-rate-threshold:80}")
+  private float slowCallRateThreshold;
+
+  @Value("${gnx.archiving.routing.window-size:20}")
+  private int windowSize;
+
+  @Value("${gnx.archiving.routing.open-duration-seconds:30}")
+  private long openDuration;
+
+  @Value("${gnx.archiving.routing.async.concurrency:8}")
+  private int asyncConcurrency;
+
+  @Value("${gnx.archiving.routing.async.queue-capacity:1000}")
+  private int asyncQueueCapacity;
+
+  @Autowired
+  @Qualifier(AmazonS3ServiceImpl.SERVICE_NAME)
+  private S3Service amazonS3Service;
+
+  @Autowired
+  @Qualifier(GenerixS3ServiceImpl.SERVICE_NAME)
+  private S3Service generixS3Service;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  private S3Backend primary;
+
+  private S3Backend secondary;
+
+  /** Runs the asynchronous operations and the replications of the dual write modes */
+  private ExecutorService asyncExecutor;
+
+  @Override
+  @PostConstruct
+  public void init() {
+    long start = currentTimeMillis();
+    log.info("ROUTING ARCHIVING SERVICE INITIALIZATION...");
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+        .failureRateThreshold(failureRateThreshold)
+        .slowCallDurationThreshold(Duration.ofMillis(slowCallThreshold))
+        .slowCallRateThreshold(slowCallRateThreshold)
+        .slidingWindowSize(windowSize)
+        .minimumNumberOfCalls(Math.min(windowSize, 10))
+        .waitDurationInOpenState(Duration.ofSeconds(openDuration))
+        .ignoreExceptions(EmptyResultException.class)
+        .build());
+
+    S3Backend amazon = new S3Backend(AmazonS3ServiceImpl.SERVICE_NAME, amazonS3Service,
+        registry.circuitBreaker(AmazonS3ServiceImpl.SERVICE_NAME), meterRegistry);
+    S3Backend generix = new S3Backend(GenerixS3ServiceImpl.SERVICE_NAME, generixS3Service,
+        registry.circuitBreaker(GenerixS3ServiceImpl.SERVICE_NAME), meterRegistry);
+    boolean amazonFirst = !GenerixS3ServiceImpl.SERVICE_NAME.equals(primaryName);
+    this.primary = amazonFirst ? amazon : generix;
+    // no secondary backend when disabled: the calls are delegated to the primary one
+    this.secondary = enabled ? (amazonFirst ? generix : amazon) : null;
+
+    ExecutorService executor = new ThreadPoolExecutor(asyncConcurrency, asyncConcurrency, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(asyncQueueCapacity), new CustomizableThreadFactory(SERVICE_NAME + "-async-"));
+    if (meterRegistry != null) {
+      executor = ExecutorServiceMetrics.monitor(meterRegistry, executor, SERVICE_NAME + ".async");
+    }
+    this.asyncExecutor = executor;
+
+    if (!enabled) {
+      log.info("\t Service status : disabled, delegating to {}", primary.getName());
+      return;
+    }
+    log.info("\t Mode : {}, primary : {}, secondary : {}", mode, primary.getName(), secondary.getName());
+    log.info("ROUTING ARCHIVING SERVICE STARTED in {}ms.", currentTimeMillis() - start);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (asyncExecutor != null) {
+      asyncExecutor.shutdown();
+      asyncExecutor = null;
+    }
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * @return the state of the circuit breaker and the average latency of each backend, by backend name.
+   */
+  public Map<String, String> getBackendsHealth() {
+    Map<String, String> health = new LinkedHashMap<>();
+    writeOrder().forEach(backend -> health.put(backend.getName(), backend.toString()));
+    return health;
+  }
+
+  @Override
+  public void checkIfBucketExist(String name) {
+    firstHealthy(writeOrder()).checkIfBucketExist(name);
+  }
+
+  @Override
+  public DeleteReport deleteBucketContents(String name) {
+    return write(s3 -> s3.deleteBucketContents(name), r -> !r.isSuccessful(), null);
+  }
+
+  @Override
+  public UploadResult uploadArchive(String key, File archive) {
+    return writeFiles(s3 -> s3.uploadArchive(key, archive), Objects::isNull, null);
+  }
+
+  @Override
+  public UploadResult uploadArchive(String bucket, String key, File archive) {
+    return writeFiles(s3 -> s3.uploadArchive(bucket, key, archive), Objects::isNull, null);
+  }
+
+  @Override
+  public UploadResult uploadArchive(String key, File archive, Map<String, String> metadatas) {
+    return writeFiles(s3 -> s3.uploadArchive(key, archive, metadatas), Objects::isNull, null);
+  }
+
+  @Override
+  public UploadResult uploadArchive(String key, File archive, Map<String, String> metadatas, List<Tag> tags) {
+    return writeFiles(s3 -> s3.uploadArchive(key, archive, metadatas, tags), Objects::isNull, null);
+  }
+
+  @Override
+  public UploadResult uploadArchive(String bucket, String key, File archive, Map<String, String> metadatas, List<Tag> tags) {
+    return writeFiles(s3 -> s3.uploadArchive(bucket, key, archive, metadatas, tags), Objects::isNull, null);
+  }
+
+  @Override
+  public UploadResult uploadArchive(String bucket, String key, File archive, Map<String, String> metadatas, List<Tag> tags,
+      String contentMd5) {
+    return writeFiles(s3 -> s3.uploadArchive(bucket, key, archive, metadatas, tags, contentMd5), Objects::isNull, null);
+  }
+
+  @Override
+  public CompletableFuture<UploadResult> uploadArchiveAsync(String key, File archive) {
+    return supplyAsync(() -> uploadArchive(key, archive));
+  }
+
+  @Override
+  public CompletableFuture<UploadResult> uploadArchiveAsync(String bucket, String key, File archive) {
+    return supplyAsync(() -> uploadArchive(bucket, key, archive));
+  }
+
+  @Override
+  public CompletableFuture<UploadResult> uploadArchiveAsync(String bucket, String key, File archive, Map<String, String> metadatas,
+      List<Tag> tags) {
+    return supplyAsync(() -> uploadArchive(bucket, key, archive, metadatas, tags));
+  }
+
+  @Override
+  public void uploadArchiveFolder(String key, File folder) {
+    writeFiles(s3 -> {
+      s3.uploadArchiveFolder(key, folder);
+      return Boolean.TRUE;
+    }, r -> false, null);
+  }
+
+  @Override
+  public void uploadArchiveFolder(String bucket, String key, File folder) {
+    writeFiles(s3 -> {
+      s3.uploadArchiveFolder(bucket, key, folder);
+      return Boolean.TRUE;
+    }, r -> false, null);
+  }
+
+  @Override
+  public void uploadArchiveFolder(String key, File folder, Map<String, String> metadatas) {
+    writeFiles(s3 -> {
+      s3.uploadArchiveFolder(key, folder, metadatas);
+      return Boolean.TRUE;
+    }, r -> false, null);
+  }
+
+  @Override
+  public void uploadArchiveFolder(String bucket, String key, File folder, Map<String, String> metadatas) {
+    writeFiles(s3 -> {
+      s3.uploadArchiveFolder(bucket, key, folder, metadatas);
+      return Boolean.TRUE;
+    }, r -> false, null);
+  }
+
+  /**
+   * Downloads the archive from the first backend holding it: an archive not downloaded is looked up on the other backend without being
+   * counted as a failure by the circuit breakers.
+   */
+  @Override
+  public boolean downloadArchive(String key, String path) {
+    return readExisting(s3 -> found(s3.downloadArchive(key, path))).isPresent();
+  }
+
+  @Override
+  public boolean downloadArchive(String bucket, String key, String path) {
+    return readExisting(s3 -> found(s3.downloadArchive(bucket, key, path))).isPresent();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> downloadArchiveAsync(String key, String path) {
+    return supplyAsync(() -> downloadArchive(key, path));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> downloadArchiveAsync(String bucket, String key, String path) {
+    return supplyAsync(() -> downloadArchive(bucket, key, path));
+  }
+
+  @Override
+  public void downloadArchiveFolder(String key, String path) {
+    read(s3 -> {
+      s3.downloadArchiveFolder(key, path);
+      return Boolean.TRUE;
+    }, r -> false, null);
+  }
+
+  @Override
+  public void downloadArchiveFolder(String bucket, String key, String path) {
+    read(s3 -> {
+      s3.downloadArchiveFolder(bucket, key, path);
+      return Boolean.TRUE;
+    }, r -> false, null);
+  }
+
+  /**
+   * Reads the archive from the first backend holding it: a missing archive is looked up on the other backend without being counted as a
+   * failure by the circuit breakers.
+   */
+  @Override
+  public Optional<String> readArchive(String bucket, String key, Charset charset, String lineSeparator) {
+    return readExisting(s3 -> s3.readArchive(bucket, key, charset, lineSeparator));
+  }
+
+  @Override
+  public Optional<InputStream> readArchiveStream(String bucket, String key) {
+    return readExisting(s3 -> s3.readArchiveStream(bucket, key));
+  }
+
+  @Override
+  public Optional<InputStream> readArchiveStream(String bucket, String key, long offset, long length) {
+    return readExisting(s3 -> s3.readArchiveStream(bucket, key, offset, length));
+  }
+
+  @Override
+  public CompletableFuture<Optional<InputStream>> readArchiveStreamAsync(String bucket, String key) {
+    return supplyAsync(() -> readArchiveStream(bucket, key));
+  }
+
+  @Override
+  public boolean deleteArchive(String archiveKey) {
+    return write(s3 -> s3.deleteArchive(archiveKey), r -> !r, Boolean.FALSE);
+  }
+
+  @Override
+  public boolean deleteArchive(String bucket, String archiveKey) {
+    return write(s3 -> s3.deleteArchive(bucket, archiveKey), r -> !r, Boolean.FALSE);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> deleteArchiveAsync(String archiveKey) {
+    return supplyAsync(() -> deleteArchive(archiveKey));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> deleteArchiveAsync(String bucket, String archiveKey) {
+    return supplyAsync(() -> deleteArchive(bucket, archiveKey));
+  }
+
+  @Override
+  public DeleteReport deleteArchiveFolder(String archiveKey) {
+    return write(s3 -> s3.deleteArchiveFolder(archiveKey), r -> !r.isSuccessful(), null);
+  }
+
+  @Override
+  public DeleteReport deleteArchiveFolder(String bucket, String archiveKey) {
+    return write(s3 -> s3.deleteArchiveFolder(bucket, archiveKey), r -> !r.isSuccessful(), null);
+  }
+
+  @Override
+  public List<S3ObjectSummary> findAllArchives() {
+    return read(S3Service::findAllArchives, r -> false, Collections.emptyList());
+  }
+
+  @Override
+  public List<S3ObjectSummary> findAllArchives(String bucket) {
+    return read(s3 -> s3.findAllArchives(bucket), r -> false, Collections.emptyList());
+  }
+
+  @Override
+  public Stream<S3ObjectSummary> streamArchives(String bucket, String prefix) {
+    return firstHealthy(readOrder()).streamArchives(bucket, prefix);
+  }
+
+  @Override
+  public Stream<S3ObjectSummary> streamArchives(ListObjectsV2Request request, boolean prefetch) {
+    return firstHealthy(readOrder()).streamArchives(request, prefetch);
+  }
+
+  /**
+   * Checks the archive on each backend until one holds it, an archive missing on a backend not being counted as a failure.
+   */
+  @Override
+  public boolean hasArchive(String key) {
+    return readExisting(s3 -> found(s3.hasArchive(key))).isPresent();
+  }
+
+  @Override
+  public boolean hasArchive(String bucket, String key) {
+    return readExisting(s3 -> found(s3.hasArchive(bucket, key))).isPresent();
+  }
+
+  @Override
+  public boolean isS3ArchiveServiceAvailable() {
+    return writeOrder().stream()
+        .anyMatch(backend -> backend.getService()
+            .isS3ArchiveServiceAvailable());
+  }
+
+  @Override
+  public String getDefaultBucketName() {
+    return firstHealthy(writeOrder()).getDefaultBucketName();
+  }
+
+  /**
+   * @throws UnsupportedOperationException in the dual write modes, the store writing on a single backend.
+   */
+  @Override
+  public DeduplicatingArchiveStore deduplicatingStore(String bucket, String contentPrefix) {
+    checkNotReplicated("Deduplicating store");
+    return firstHealthy(writeOrder()).deduplicatingStore(bucket, contentPrefix);
+  }
+
+  /**
+   * @throws UnsupportedOperationException in the dual write modes, the copy running on a single backend.
+   */
+  @Override
+  public CompletableFuture<BatchCopyReport> batchCopy(BatchCopyRequest request) {
+    checkNotReplicated("Batch copy");
+    return firstHealthy(writeOrder()).batchCopy(request);
+  }
+
+  @Override
+  public Optional<CreateJobResult> executeBatch(String targetBucket, String manifestKey, String manifestETag, String username,
+      String batchOperationRole, String tempBucketTargetPrefix, String tempBucketReportPrefix) {
+    return firstHealthy(writeOrder()).executeBatch(targetBucket, manifestKey, manifestETag, username, batchOperationRole,
+        tempBucketTargetPrefix, tempBucketReportPrefix);
+  }
+
+  /*
+   * ROUTING
+   */
+
+  /**
+   * Rejects an operation writing on a single backend when the writes are replicated.
+   */
+  private void checkNotReplicated(String operation) {
+    if (secondary != null && mode != Mode.FAILOVER) {
+      throw new UnsupportedOperationException(operation + " not supported in " + mode + " mode.");
+    }
+  }
+
+  private List<S3Backend> writeOrder() {
+    return secondary == null ? Collections.singletonList(primary) : Arrays.asList(primary, secondary);
+  }
+
+  /**
+   * @return the backends by increasing average latency in {@link Mode#READ_FASTEST} mode (the unhealthy ones last), the primary first
+   *         otherwise.
+   */
+  private List<S3Backend> readOrder() {
+    if (mode != Mode.READ_FASTEST || secondary == null) {
+      return writeOrder();
+    }
+    return Stream.of(primary, secondary)
+        .sorted(Comparator.comparing((S3Backend backend) -> !backend.isHealthy())
+            .thenComparingLong(S3Backend::getAverageLatency))
+        .collect(Collectors.toList());
+  }
+
+  private S3Service firstHealthy(List<S3Backend> backends) {
+    return backends.stream()
+        .filter(S3Backend::isHealthy)
+        .findFirst()
+        .orElse(backends.get(0))
+        .getService();
+  }
+
+  private <T> T read(Function<S3Service, T> operation, Predicate<T> failed, T failedValue) {
+    return route(readOrder(), operation, failed, failedValue);
+  }
+
+  private <T> Optional<T> readExisting(Function<S3Service, Optional<T>> operation) {
+    for (S3Backend backend : readOrder()) {
+      if (!backend.getService()
+          .isS3ArchiveServiceAvailable()) {
+        continue;
+      }
+      try {
+        return backend.call(() -> {
+          Optional<T> result = operation.apply(backend.getService());
+          if (!result.isPresent()) {
+            throw new EmptyResultException();
+          }
+          return result;
+        });
+      }
+      catch (EmptyResultException e) {
+        log.debug("Archive not found on {}", backend.getName());
+      }
+      catch (CallNotPermittedException e) {
+        log.debug("Circuit breaker of {} is open", backend.getName());
+      }
+      catch (RuntimeException e) {
+        log.warn("Read failed on {} : {}", backend.getName(), e.getMessage());
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Writes on the first backend accepting the operation and, in the dual write modes, replicates the write asynchronously on the other
+   * one.
+   */
+  private <T> T write(Function<S3Service, T> operation, Predicate<T> failed, T failedValue) {
+    return write(operation, failed, failedValue, false);
+  }
+
+  /**
+   * Writes the local files of the caller on the first backend accepting the operation and, in the dual write modes, replicates the write
+   * on the other one before returning, while the files still exist.
+   */
+  private <T> T writeFiles(Function<S3Service, T> operation, Predicate<T> failed, T failedValue) {
+    return write(operation, failed, failedValue, true);
+  }
+
+  private <T> T write(Function<S3Service, T> operation, Predicate<T> failed, T failedValue, boolean synchronousReplication) {
+    List<S3Backend> backends = writeOrder();
+    for (S3Backend backend : backends) {
+      Optional<T> result = attempt(backend, operation, failed);
+      if (result.isPresent()) {
+        if (mode != Mode.FAILOVER) {
+          backends.stream()
+              .filter(other -> other != backend)
+              .forEach(other -> replicate(other, operation, failed, synchronousReplication));
+        }
+        return result.get();
+      }
+    }
+    return failedValue;
+  }
+
+  private <T> T route(List<S3Backend> backends, Function<S3Service, T> operation, Predicate<T> failed, T failedValue) {
+    for (S3Backend backend : backends) {
+      Optional<T> result = attempt(backend, operation, failed);
+      if (result.isPresent()) {
+        return result.get();
+      }
+    }
+    return failedValue;
+  }
+
+  /**
+   * @return the result of the operation, or an empty optional if the backend is not available, its circuit breaker is open or the
+   *         operation failed.
+   */
+  private <T> Optional<T> attempt(S3Backend backend, Function<S3Service, T> operation, Predicate<T> failed) {
+    if (!backend.getService()
+        .isS3ArchiveServiceAvailable()) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.ofNullable(backend.call(() -> {
+        T result = operation.apply(backend.getService());
+        if (result == null || failed.test(result)) {
+          throw new FailedResultException();
+        }
+        return result;
+      }));
+    }
+    catch (FailedResultException e) {
+      log.warn("Operation failed on {}, trying the next backend", backend.getName());
+    }
+    catch (CallNotPermittedException e) {
+      log.debug("Circuit breaker of {} is open, trying the next backend", backend.getName());
+    }
+    catch (RuntimeException e) {
+      log.warn(String.format("Operation failed on %s, trying the next backend", backend.getName()), e);
+    }
+    return Optional.empty();
+  }
+
+  private <T> void replicate(S3Backend backend, Function<S3Service, T> operation, Predicate<T> failed, boolean synchronous) {
+    if (synchronous) {
+      replicated(backend, attempt(backend, operation, failed).isPresent(), null);
+    }
+    else {
+      supplyAsync(() -> attempt(backend, operation, failed)).whenComplete(
+          (result, e) -> replicated(backend, e == null && result.isPresent(), e));
+    }
+  }
+
+  private void replicated(S3Backend backend, boolean replicated, Throwable e) {
+    if (!replicated) {
+      log.warn("Replication on {} failed", backend.getName(), e);
+    }
+    if (meterRegistry != null) {
+      meterRegistry.counter("s3.routing.replications", "backend", backend.getName(), "outcome", replicated ? "success" : "failure")
+          .increment();
+    }
+  }
+
+  private <T> CompletableFuture<T> supplyAsync(Supplier<T> operation) {
+    try {
+      return CompletableFuture.supplyAsync(operation, asyncExecutor);
+    }
+    catch (RejectedExecutionException e) {
+      CompletableFuture<T> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(e);
+      return rejected;
+    }
+  }
+
+  private static Optional<Boolean> found(boolean found) {
+    return found ? Optional.of(Boolean.TRUE) : Optional.empty();
+  }
+
+  /** Operation result considered as a failure of the backend */
+  private static class FailedResultException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    FailedResultException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /** Missing archive, looked up on the next backend without being counted as a failure (ignored by the circuit breakers) */
+  private static class EmptyResultException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    EmptyResultException() {
+      super(null, null, false, false);
+    }
+  }
+}
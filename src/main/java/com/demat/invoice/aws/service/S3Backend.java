@@ -0,0 +1,106 @@
+package com.demat.invoice.aws.service;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A {@link S3Service} routed by the {@link RoutingS3ServiceImpl}, with its circuit breaker and its observed latency.
+ */
+class S3Backend {
+
+  /** Weight of the last call in the moving average of the latency */
+  private static final double LATENCY_SMOOTHING = 0.2;
+
+  private final String name;
+
+  private final S3Service service;
+
+  private final CircuitBreaker circuitBreaker;
+
+  /** Exponential moving average of the calls duration, in nanoseconds */
+  private final AtomicLong averageLatency = new AtomicLong();
+
+  private final Timer timer;
+
+  S3Backend(String name, S3Service service, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.service = service;
+    this.circuitBreaker = circuitBreaker;
+    if (meterRegistry != null) {
+      this.timer = Timer.builder("s3.routing.calls")
+          .description("Duration of the calls routed to a S3 backend")
+          .tag("backend", name)
+          .register(meterRegistry);
+      Gauge.builder("s3.routing.healthy", this, backend -> backend.isHealthy() ? 1 : 0)
+          .description("1 if the S3 backend accepts calls, 0 if it is disabled or its circuit breaker is open")
+          .tag("backend", name)
+          .register(meterRegistry);
+    }
+    else {
+      this.timer = null;
+    }
+  }
+
+  String getName() {
+    return name;
+  }
+
+  S3Service getService() {
+    return service;
+  }
+
+  CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * @return {@code true} if the backend is started and its circuit breaker lets the calls through.
+   */
+  boolean isHealthy() {
+    return service.isS3ArchiveServiceAvailable() && circuitBreaker.getState() != CircuitBreaker.State.OPEN &&
+        circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN;
+  }
+
+  /**
+   * @return the moving average of the calls duration in nanoseconds, 0 if no call has been made yet.
+   */
+  long getAverageLatency() {
+    return averageLatency.get();
+  }
+
+  /**
+   * Calls the backend through its circuit breaker, recording the latency of the call.
+   *
+   * @throws io.github.resilience4j.circuitbreaker.CallNotPermittedException if the circuit breaker is open.
+   */
+  <T> T call(Supplier<T> operation) {
+    return circuitBreaker.executeSupplier(() -> {
+      long start = System.nanoTime();
+      try {
+        return operation.get();
+      }
+      finally {
+        record(System.nanoTime() - start);
+      }
+    });
+  }
+
+  private void record(long duration) {
+    averageLatency.accumulateAndGet(duration,
+        (average, last) -> average == 0 ? last : (long) (average + LATENCY_SMOOTHING * (last - average)));
+    if (timer != null) {
+      timer.record(duration, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name + " [state=" + circuitBreaker.getState() + ", latency=" + TimeUnit.NANOSECONDS.toMillis(averageLatency.get()) + "ms]";
+  }
+}
@@ -0,0 +1,356 @@
+package com.demat.invoice.aws.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3control.AWSS3Control;
+import com.amazonaws.services.s3control.model.*;
+import com.demat.invoice.aws.utils.AwsHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Copies sets of S3 objects into a target bucket and prefix.
+ * <p>
+ * The keys are streamed into a CSV manifest. Below {@code clientCopyThreshold} objects (or when no S3 Control client is available, e.g.
+ * for a S3 compatible endpoint) the objects are copied by the client in parallel. Otherwise the manifest is uploaded and a S3 Batch
+ * Operations copy job is created, its status being polled on a scheduler so no thread waits for the job. The keys of the failed tasks
+ * are read back from the job completion report.
+ * </p>
+ * The engine only depends on the given clients, so it can run against a local S3 stand-in. No S3 call is made on the caller thread.
+ */
+public class S3BatchCopyEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(S3BatchCopyEngine.class);
+
+  private static final Set<String> TERMINAL_STATUSES = new HashSet<>(Arrays.asList(
+      JobStatus.Complete.toString(), JobStatus.Failed.toString(), JobStatus.Cancelled.toString()));
+
+  /** Column of the task status in the completion report (Bucket,Key,VersionId,TaskStatus,ErrorCode,HTTPStatusCode,ResultMessage) */
+  private static final int REPORT_TASK_STATUS_COLUMN = 3;
+
+  private final AmazonS3 s3Client;
+
+  private final AWSS3Control s3ControlClient;
+
+  private final Supplier<String> accountId;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Executor copyExecutor;
+
+  private final MeterRegistry meterRegistry;
+
+  private final long clientCopyThreshold;
+
+  private final Duration pollInterval;
+
+  /**
+   * @param s3Client The client used to upload the manifest, read the reports and copy objects.
+   * @param s3ControlClient The client used to create and describe the jobs, {@code null} to always copy on the client side.
+   * @param accountId Supplies the account id owning the jobs.
+   * @param scheduler The scheduler polling the jobs status.
+   * @param copyExecutor The executor of the client side copies. The copy is run by the caller when the executor rejects it.
+   * @param meterRegistry The registry of the throughput metrics, may be {@code null}.
+   * @param clientCopyThreshold The maximum number of objects copied on the client side.
+   * @param pollInterval The delay between two job status polls.
+   */
+  public S3BatchCopyEngine(AmazonS3 s3Client, AWSS3Control s3ControlClient, Supplier<String> accountId,
+      ScheduledExecutorService scheduler, Executor copyExecutor, MeterRegistry meterRegistry,
+      long clientCopyThreshold, Duration pollInterval) {
+    this.s3Client = s3Client;
+    this.s3ControlClient = s3ControlClient;
+    this.accountId = accountId;
+    this.scheduler = scheduler;
+    this.copyExecutor = copyExecutor;
+    this.meterRegistry = meterRegistry;
+    this.clientCopyThreshold = clientCopyThreshold;
+    this.pollInterval = pollInterval;
+  }
+
+  /**
+   * Starts the copy without blocking the caller: the keys are streamed into the manifest, and the manifest is uploaded and the job
+   * created, on the copy executor.
+   *
+   * @param request The copy to perform.
+   * @return the future report of the copy, completed once all the objects are copied or once the job reached a terminal status. Failed
+   *         if the copy executor rejects the copy.
+   */
+  public CompletableFuture<BatchCopyReport> copy(BatchCopyRequest request) {
+    final long start = System.nanoTime();
+    try {
+      return CompletableFuture.supplyAsync(() -> start(request), copyExecutor)
+          .thenCompose(Function.identity())
+          .thenApply(report -> record(report, start));
+    }
+    catch (RejectedExecutionException e) {
+      log.error("Failed to copy objects from {} to {}/{}: too many pending copies", request.getSourceBucket(),
+          request.getTargetBucket(), request.getTargetPrefix());
+      request.getKeys()
+          .close();
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private CompletableFuture<BatchCopyReport> start(BatchCopyRequest request) {
+    Path manifest = null;
+    try {
+      manifest = Files.createTempFile("batch-copy-", ".csv");
+      long count = writeManifest(request, manifest);
+      log.info("Batch copy of {} objects from {} to {}/{}", count, request.getSourceBucket(), request.getTargetBucket(),
+          request.getTargetPrefix());
+
+      if (s3ControlClient == null || count <= clientCopyThreshold) {
+        final Path clientManifest = manifest;
+        manifest = null; // deleted once the copies are done
+        return copyClientSide(request, clientManifest, count)
+            .whenComplete((report, error) -> deleteQuietly(clientManifest));
+      }
+      return startJob(request, manifest, count);
+    }
+    catch (IOException | RuntimeException e) {
+      log.error(String.format("Failed to copy objects from %s to %s/%s", request.getSourceBucket(), request.getTargetBucket(),
+          request.getTargetPrefix()), e);
+      throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+    }
+    finally {
+      deleteQuietly(manifest);
+    }
+  }
+
+  /*
+   * MANIFEST
+   */
+
+  private static long writeManifest(BatchCopyRequest request, Path manifest) throws IOException {
+    long count = 0;
+    try (BufferedWriter writer = Files.newBufferedWriter(manifest, UTF_8)) {
+      for (Iterator<String> keys = request.getKeys()
+          .iterator(); keys.hasNext();) {
+        writer.write(request.getSourceBucket());
+        writer.write(',');
+        writer.write(encodeKey(keys.next()));
+        writer.newLine();
+        count++;
+      }
+    }
+    finally {
+      request.getKeys()
+          .close();
+    }
+    return count;
+  }
+
+  /** The manifest and report keys are URL encoded */
+  private static String encodeKey(String key) {
+    return URLEncoder.encode(key, UTF_8)
+        .replace("+", "%20")
+        .replace("%2F", "/");
+  }
+
+  private static String decodeKey(String key) {
+    return URLDecoder.decode(key.replace("+", "%2B"), UTF_8);
+  }
+
+  /*
+   * CLIENT SIDE
+   */
+
+  private CompletableFuture<BatchCopyReport> copyClientSide(BatchCopyRequest request, Path manifest, long count) throws IOException {
+    BatchCopyReport report = new BatchCopyReport(null);
+    report.setTotalTasks(count);
+    List<CompletableFuture<Void>> copies = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(manifest, UTF_8)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String key = decodeKey(StringUtils.substringAfter(line, ","));
+        Runnable copy = () -> copyObject(request, key, report);
+        try {
+          copies.add(CompletableFuture.runAsync(copy, copyExecutor));
+        }
+        catch (RejectedExecutionException e) {
+          // too many pending copies: the caller does the work
+          copy.run();
+        }
+      }
+    }
+    return CompletableFuture.allOf(copies.toArray(new CompletableFuture[0]))
+        .thenApply(v -> {
+          report.setStatus(JobStatus.Complete.toString());
+          return report;
+        });
+  }
+
+  private void copyObject(BatchCopyRequest request, String key, BatchCopyReport report) {
+    String targetKey = StringUtils.isEmpty(request.getTargetPrefix())
+        ? key
+        : StringUtils.removeEnd(request.getTargetPrefix(), "/") + "/" + key;
+    try {
+      s3Client.copyObject(request.getSourceBucket(), key, request.getTargetBucket(), targetKey);
+      report.addSucceededTasks(1);
+    }
+    catch (SdkClientException e) {
+      log.warn("Failed to copy {}/{} to {}/{} ({})", request.getSourceBucket(), key, request.getTargetBucket(), targetKey,
+          e.getMessage());
+      report.addFailedTasks(1);
+      report.addFailedKey(key);
+    }
+  }
+
+  /*
+   * BATCH OPERATIONS JOB
+   */
+
+  private CompletableFuture<BatchCopyReport> startJob(BatchCopyRequest request, Path manifest, long count) {
+    String eTag = s3Client.putObject(request.getManifestBucket(), request.getManifestKey(), manifest.toFile())
+        .getETag();
+    String account = accountId.get();
+    CreateJobResult job = s3ControlClient.createJob(new CreateJobRequest()
+        .withAccountId(account)
+        .withOperation(AwsHelper.createJobOperation(request.getTargetBucket(), request.getTargetPrefix()))
+        .withManifest(AwsHelper.createJobManifest(request.getManifestBucket(), request.getManifestKey(), eTag,
+            JobManifestFormat.S3BatchOperations_CSV_20180820))
+        .withReport(AwsHelper.createJobReport(request.getReportBucket(), request.getReportPrefix(),
+            JobReportFormat.Report_CSV_20180820, JobReportScope.FailedTasksOnly))
+        .withPriority(request.getPriority())
+        .withRoleArn(AwsHelper.createRoleArn(account, request.getBatchOperationRole()))
+        .withClientRequestToken(UUID.randomUUID()
+            .toString())
+        .withDescription("Copy Batch Operation")
+        .withConfirmationRequired(false));
+    log.info("Start batch operations with id {} successfully ({} objects)", job.getJobId(), count);
+
+    CompletableFuture<BatchCopyReport> result = new CompletableFuture<>();
+    schedulePoll(request, job.getJobId(), result);
+    return result;
+  }
+
+  private void schedulePoll(BatchCopyRequest request, String jobId, CompletableFuture<BatchCopyReport> result) {
+    scheduler.schedule(() -> poll(request, jobId, result), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void poll(BatchCopyRequest request, String jobId, CompletableFuture<BatchCopyReport> result) {
+    if (result.isDone()) {
+      // cancelled by the caller
+      return;
+    }
+    try {
+      JobDescriptor job = s3ControlClient.describeJob(new DescribeJobRequest()
+          .withAccountId(accountId.get())
+          .withJobId(jobId))
+          .getJob();
+      if (!TERMINAL_STATUSES.contains(job.getStatus())) {
+        log.debug("Batch operations {} status: {}", jobId, job.getStatus());
+        schedulePoll(request, jobId, result);
+        return;
+      }
+      result.complete(createReport(request, job));
+    }
+    catch (RuntimeException e) {
+      log.error("Failed to poll batch operations " + jobId, e);
+      result.completeExceptionally(e);
+    }
+  }
+
+  private BatchCopyReport createReport(BatchCopyRequest request, JobDescriptor job) {
+    BatchCopyReport report = new BatchCopyReport(job.getJobId());
+    report.setStatus(job.getStatus());
+    JobProgressSummary progress = job.getProgressSummary();
+    if (progress != null) {
+      report.setTotalTasks(valueOf(progress.getTotalNumberOfTasks()));
+      report.addSucceededTasks(valueOf(progress.getNumberOfTasksSucceeded()));
+      report.addFailedTasks(valueOf(progress.getNumberOfTasksFailed()));
+    }
+    if (job.getFailureReasons() != null) {
+      for (JobFailure failure : job.getFailureReasons()) {
+        report.getFailureReasons()
+            .add(failure.getFailureCode() + ": " + failure.getFailureReason());
+      }
+    }
+    if (report.getFailedTasks() > 0) {
+      readFailedKeys(request, job.getJobId(), report);
+    }
+    log.info("Batch operations {} done: {}", job.getJobId(), report);
+    return report;
+  }
+
+  /**
+   * Reads the keys of the failed tasks from the CSV results of the job completion report.
+   */
+  private void readFailedKeys(BatchCopyRequest request, String jobId, BatchCopyReport report) {
+    String resultsPrefix = StringUtils.removeEnd(request.getReportPrefix(), "/") + "/job-" + jobId + "/results/";
+    S3ObjectListingIterator results = new S3ObjectListingIterator(s3Client, new ListObjectsV2Request()
+        .withBucketName(request.getReportBucket())
+        .withPrefix(resultsPrefix), null);
+    while (results.hasNext()) {
+      S3ObjectSummary result = results.next();
+      try (S3Object object = s3Client.getObject(result.getBucketName(), result.getKey());
+          BufferedReader reader = new BufferedReader(new InputStreamReader(object.getObjectContent(), UTF_8))) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          String[] columns = line.split(",", REPORT_TASK_STATUS_COLUMN + 2);
+          if (columns.length > REPORT_TASK_STATUS_COLUMN && "failed".equalsIgnoreCase(columns[REPORT_TASK_STATUS_COLUMN])) {
+            report.addFailedKey(decodeKey(columns[1]));
+          }
+        }
+      }
+      catch (IOException | SdkClientException e) {
+        log.error(String.format("Failed to read batch operations report %s/%s", result.getBucketName(), result.getKey()), e);
+      }
+    }
+  }
+
+  /*
+   * UTILS
+   */
+
+  private BatchCopyReport record(BatchCopyReport report, long start) {
+    Duration duration = Duration.ofNanos(System.nanoTime() - start);
+    report.setDuration(duration);
+    if (meterRegistry != null) {
+      String mode = report.isClientSide() ? "client" : "job";
+      meterRegistry.timer("s3.batch.copy", "mode", mode)
+          .record(duration);
+      meterRegistry.counter("s3.batch.copy.objects", "mode", mode, "outcome", "succeeded")
+          .increment(report.getSucceededTasks());
+      meterRegistry.counter("s3.batch.copy.objects", "mode", mode, "outcome", "failed")
+          .increment(report.getFailedTasks());
+    }
+    return report;
+  }
+
+  private static long valueOf(Long value) {
+    return value == null ? 0L : value;
+  }
+
+  private static void deleteQuietly(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    }
+    catch (IOException e) {
+      log.warn("Failed to delete batch manifest {} ({})", path, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.demat.invoice.aws.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Iterates over the objects of a bucket, pulling the ListObjectsV2 pages lazily so only one page (or two when prefetching) is held in
+ * memory.
+ */
+class S3ObjectListingIterator implements Iterator<S3ObjectSummary>, AutoCloseable {
+
+  private final AmazonS3 client;
+
+  private final ListObjectsV2Request request;
+
+  /** Submits the fetch of the next page in background, {@code null} to disable the prefetching */
+  private final Function<Supplier<ListObjectsV2Result>, CompletableFuture<ListObjectsV2Result>> prefetcher;
+
+  private Iterator<S3ObjectSummary> page = Collections.emptyIterator();
+
+  private ListObjectsV2Result listing;
+
+  private CompletableFuture<ListObjectsV2Result> nextListing;
+
+  S3ObjectListingIterator(AmazonS3 client, ListObjectsV2Request request,
+      Function<Supplier<ListObjectsV2Result>, CompletableFuture<ListObjectsV2Result>> prefetcher) {
+    this.client = client;
+    this.request = request;
+    this.prefetcher = prefetcher;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!page.hasNext()) {
+      if (!fetchNextPage()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public S3ObjectSummary next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return page.next();
+  }
+
+  @Override
+  public void close() {
+    if (nextListing != null) {
+      nextListing.cancel(false);
+      nextListing = null;
+    }
+  }
+
+  private boolean fetchNextPage() {
+    if (listing != null && !listing.isTruncated()) {
+      return false;
+    }
+    String token = listing == null ? request.getContinuationToken() : listing.getNextContinuationToken();
+    listing = nextListing == null ? fetch(token) : join(nextListing);
+    nextListing = null;
+
+    if (prefetcher != null && listing.isTruncated()) {
+      String nextToken = listing.getNextContinuationToken();
+      CompletableFuture<ListObjectsV2Result> prefetch = prefetcher.apply(() -> fetch(nextToken));
+      // a rejected prefetch is simply fetched synchronously on the next page
+      nextListing = prefetch.isCompletedExceptionally() ? null : prefetch;
+    }
+    page = listing.getObjectSummaries()
+        .iterator();
+    return true;
+  }
+
+  private ListObjectsV2Result fetch(String continuationToken) {
+    return client.listObjectsV2(new ListObjectsV2Request()
+        .withBucketName(request.getBucketName())
+        .withPrefix(request.getPrefix())
+        .withDelimiter(request.getDelimiter())
+        .withStartAfter(request.getStartAfter())
+        .withMaxKeys(request.getMaxKeys())
+        .withContinuationToken(continuationToken));
+  }
+
+  private static ListObjectsV2Result join(CompletableFuture<ListObjectsV2Result> future) {
+    try {
+      return future.join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -5,6 +5,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 import com.demat.invoice.utils.SpringContextHelper;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 
@@ -13,10 +14,14 @@ public class S3ResolverServiceImpl implements S3ResolverService {
 
   private static final Logger log = getLogger(S3ResolverServiceImpl.class);
 
+  @Value("${gnx.archiving.routing.enabled:false}")
+  private boolean routingEnabled;
+
   public S3Service initS3Service() {
     S3Service resolvedS3Service = null;
     try {
-        resolvedS3Service = SpringContextHelper.getBean(S3Service.class, AmazonS3ServiceImpl.SERVICE_NAME);
+        resolvedS3Service = SpringContextHelper.getBean(S3Service.class,
+            routingEnabled ? RoutingS3ServiceImpl.SERVICE_NAME : AmazonS3ServiceImpl.SERVICE_NAME);
     }
     catch (NoSuchBeanDefinitionException e) {
       log.error("Could not resolve an S3Service", e);
@@ -8,10 +8,13 @@ import com.amazonaws.services.s3.transfer.model.UploadResult;
 import com.amazonaws.services.s3control.model.CreateJobResult;
 
 import java.io.File;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * @author faboulaye
@@ -20,7 +23,12 @@ public interface S3Service extends Initializable {
 
   void checkIfBucketExist(String name);
 
-  void deleteBucketContents(String name);
+  /**
+   * Deletes all the objects of a bucket using multi-object delete requests.
+   *
+   * @return the report of the deletion, listing the keys which could not be deleted.
+   */
+  DeleteReport deleteBucketContents(String name);
 
   UploadResult uploadArchive(String key, File archive);
 
@@ -32,6 +40,29 @@ public interface S3Service extends Initializable {
 
   UploadResult uploadArchive(String bucket, String key, File archive, Map<String, String> metadatas, List<Tag> tags);
 
+  /**
+   * Uploads a local file as a S3 object whose MD5 is already known, so the file is not read again to compute the {@code Content-MD5}
+   * header.
+   *
+   * @param contentMd5 The Base64 encoded MD5 of the file, {@code null} to compute it if the bucket requires it.
+   */
+  UploadResult uploadArchive(String bucket, String key, File archive, Map<String, String> metadatas, List<Tag> tags, String contentMd5);
+
+  CompletableFuture<UploadResult> uploadArchiveAsync(String key, File archive);
+
+  CompletableFuture<UploadResult> uploadArchiveAsync(String bucket, String key, File archive);
+
+  /**
+   * Uploads a local file as a S3 object without blocking the calling thread. The number of pending asynchronous operations is bounded:
+   * when the limit is reached, the returned future is completed exceptionally with a
+   * {@link java.util.concurrent.RejectedExecutionException} so the caller can slow down. Reactive callers can wrap the result with
+   * {@code Mono.fromFuture(...)}.
+   *
+   * @return the future upload result, completed with {@code null} if the upload failed (like {@link #uploadArchive(String, File)}).
+   */
+  CompletableFuture<UploadResult> uploadArchiveAsync(String bucket, String key, File archive, Map<String, String> metadatas,
+      List<Tag> tags);
+
   void uploadArchiveFolder(String key, File folder);
 
   void uploadArchiveFolder(String bucket, String key, File folder);
@@ -48,6 +79,10 @@ public interface S3Service extends Initializable {
    */
   boolean downloadArchive(String bucket, String key, String path);
 
+  CompletableFuture<Boolean> downloadArchiveAsync(String key, String path);
+
+  CompletableFuture<Boolean> downloadArchiveAsync(String bucket, String key, String path);
+
   void downloadArchiveFolder(String key, String path);
 
   void downloadArchiveFolder(String bucket, String key, String path);
@@ -64,6 +99,40 @@ public interface S3Service extends Initializable {
    */
   Optional<String> readArchive(String bucket, String key, Charset charset, String lineSeparator);
 
+  /**
+   * Opens the content of a S3 object without buffering it.
+   *
+   * @param bucket The S3 Bucket name.
+   * @param key The S3 object key.
+   * @return The S3 object content stream, to be closed by the caller. Or an empty optional if the object does not exists or if the
+   *         application has not the read right on the object.
+   */
+  Optional<InputStream> readArchiveStream(String bucket, String key);
+
+  /**
+   * Opens a byte range of the content of a S3 object.
+   *
+   * @param bucket The S3 Bucket name.
+   * @param key The S3 object key.
+   * @param offset The position of the first byte to read.
+   * @param length The number of bytes to read (less bytes are returned if the object ends before).
+   * @return The S3 object content range stream, to be closed by the caller. Or an empty optional if the object does not exists or if the
+   *         application has not the read right on the object.
+   */
+  Optional<InputStream> readArchiveStream(String bucket, String key, long offset, long length);
+
+  /**
+   * Opens the content of a S3 object on the asynchronous executor, so the caller thread (e.g. a WebFlux event loop) is never parked. The
+   * stream is still read with blocking I/O: reactive callers adapt it in the web layer (see
+   * {@link com.demat.invoice.web.util.ArchiveContentUtil}).
+   *
+   * @param bucket The S3 Bucket name.
+   * @param key The S3 object key.
+   * @return The S3 object content stream, to be closed by the caller. Or an empty optional if the object does not exists or if the
+   *         application has not the read right on the object.
+   */
+  CompletableFuture<Optional<InputStream>> readArchiveStreamAsync(String bucket, String key);
+
   void uploadArchiveFolder(String key, File folder, Map<String, String> metadatas);
 
   void uploadArchiveFolder(String bucket, String key, File folder, Map<String, String> metadatas);
@@ -72,14 +141,39 @@ public interface S3Service extends Initializable {
 
   boolean deleteArchive(String bucket, String archiveKey);
 
-  void deleteArchiveFolder(String archiveKey);
+  CompletableFuture<Boolean> deleteArchiveAsync(String archiveKey);
+
+  CompletableFuture<Boolean> deleteArchiveAsync(String bucket, String archiveKey);
 
-  void deleteArchiveFolder(String bucket, String archiveKey);
+  DeleteReport deleteArchiveFolder(String archiveKey);
+
+  /**
+   * Deletes all the objects whose key starts with the given folder key, whatever their number.
+   *
+   * @return the report of the deletion, listing the keys which could not be deleted.
+   */
+  DeleteReport deleteArchiveFolder(String bucket, String archiveKey);
 
   List<S3ObjectSummary> findAllArchives();
 
+  /**
+   * @return the first page (up to 1000 objects) of the bucket. Use {@link #streamArchives(String, String)} to go through all of them.
+   */
   List<S3ObjectSummary> findAllArchives(String bucket);
 
+  Stream<S3ObjectSummary> streamArchives(String bucket, String prefix);
+
+  /**
+   * Lists the objects of a bucket lazily: the pages are fetched with ListObjectsV2 while the stream is consumed, so any number of objects
+   * can be iterated in constant memory. The stream should be closed if it is not fully consumed. Reactive callers can wrap it with
+   * {@code Flux.fromStream(...)}.
+   *
+   * @param request The bucket name and the optional prefix, delimiter, start-after key and page size ({@code maxKeys}) of the listing.
+   * @param prefetch {@code true} to fetch the next page in background while the current one is consumed.
+   * @return the stream of the listed objects.
+   */
+  Stream<S3ObjectSummary> streamArchives(ListObjectsV2Request request, boolean prefetch);
+
   boolean hasArchive(String key);
 
   boolean hasArchive(String bucket, String key);
@@ -88,6 +182,25 @@ public interface S3Service extends Initializable {
 
   String getDefaultBucketName();
 
+  /**
+   * Returns the store uploading the archives of the given bucket once per distinct content, shared by all the callers of the same bucket
+   * and content prefix.
+   *
+   * @param bucket The S3 bucket of the archives.
+   * @param contentPrefix The prefix of the content objects, named after the SHA-256 of their content.
+   * @see DeduplicatingArchiveStore
+   */
+  DeduplicatingArchiveStore deduplicatingStore(String bucket, String contentPrefix);
+
+  /**
+   * Copies a set of objects, either with a S3 Batch Operations job generated from the given keys or, for small sets, directly from the
+   * client.
+   *
+   * @return the future report of the copy, completed when the copy is over.
+   * @see S3BatchCopyEngine
+   */
+  CompletableFuture<BatchCopyReport> batchCopy(BatchCopyRequest request);
+
   public Optional<CreateJobResult> executeBatch(String targetBucket, String manifestKey, String manifestETag, String username,
       String batchOperationRole, String tempBucketTargetPrefix, String tempBucketReportPrefix);
 }
@@ -0,0 +1,233 @@
+package com.demat.invoice.aws.service;
+
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.transfer.Transfer;
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Follows the progress of the in-flight S3 transfers from the {@link ProgressListener} events of the SDK, so no thread is spent polling
+ * the transfers. The transfers are unregistered as soon as they complete, fail or are canceled.
+ * <p>
+ * The aggregated progress of the transfers is published as gauges ({@code s3.transfers.bytes}, {@code s3.transfers.throughput},
+ * {@code s3.transfers.eta}) and the progress of each transfer is available with {@link #getTransfers()} or as a flow with
+ * {@link #watch(Duration)}.
+ */
+@Component
+public class S3TransferMonitor {
+
+  private static final Logger log = LoggerFactory.getLogger(S3TransferMonitor.class);
+
+  /** Number of progress logs of a transfer, one every 1/LOG_STEPS of the total bytes */
+  private static final int LOG_STEPS = 10;
+
+  private final AtomicLong ids = new AtomicLong();
+
+  private final Map<Long, TrackedTransfer> transfers = new ConcurrentHashMap<>();
+
+  public S3TransferMonitor(ObjectProvider<MeterRegistry> meterRegistry) {
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    if (registry != null) {
+      Gauge.builder("s3.transfers.bytes", this, monitor -> monitor.sum(TrackedTransfer::getBytesTransferred))
+          .description("Bytes transferred by the in-flight S3 transfers")
+          .baseUnit("bytes")
+          .tag("type", "transferred")
+          .register(registry);
+      Gauge.builder("s3.transfers.bytes", this, monitor -> monitor.sum(TrackedTransfer::getTotalBytes))
+          .description("Bytes to transfer by the in-flight S3 transfers")
+          .baseUnit("bytes")
+          .tag("type", "total")
+          .register(registry);
+      Gauge.builder("s3.transfers.throughput", this, S3TransferMonitor::getThroughput)
+          .description("Throughput of the in-flight S3 transfers")
+          .baseUnit("bytes/s")
+          .register(registry);
+      Gauge.builder("s3.transfers.eta", this, S3TransferMonitor::getEta)
+          .description("Estimated remaining duration of the longest in-flight S3 transfer")
+          .baseUnit("seconds")
+          .register(registry);
+    }
+  }
+
+  /**
+   * Follows the progress of a transfer until it is over.
+   *
+   * @param service The name of the service running the transfer.
+   * @param transfer The transfer to follow.
+   * @return the id of the transfer in this monitor.
+   */
+  public long track(String service, Transfer transfer) {
+    TrackedTransfer tracked = new TrackedTransfer(ids.incrementAndGet(), service, transfer, transfer.getDescription(),
+        transfer.getProgress());
+    transfers.put(tracked.id, tracked);
+    transfer.addProgressListener(tracked);
+    // the transfer may be over before the listener was added
+    if (transfer.isDone()) {
+      transfers.remove(tracked.id);
+    }
+    return tracked.id;
+  }
+
+  /**
+   * Follows the progress of a transfer not run by a transfer manager (e.g. the object lock uploads), until it is untracked.
+   *
+   * @param service The name of the service running the transfer.
+   * @param description The description of the transfer.
+   * @param progress The progress of the transfer, updated by the uploader.
+   * @return the id of the transfer in this monitor, to be untracked once the transfer is over.
+   */
+  public long track(String service, String description, TransferProgress progress) {
+    TrackedTransfer tracked = new TrackedTransfer(ids.incrementAndGet(), service, null, description, progress);
+    transfers.put(tracked.id, tracked);
+    return tracked.id;
+  }
+
+  /**
+   * Stops following a transfer, for the transfers over without a completion event (e.g. the directory transfers, whose completion is
+   * only notified to the state listeners).
+   *
+   * @param id The id returned by {@link #track(String, Transfer)}.
+   */
+  public void untrack(long id) {
+    transfers.remove(id);
+  }
+
+  /**
+   * @return the progress of the in-flight transfers.
+   */
+  public List<TransferProgressSnapshot> getTransfers() {
+    return transfers.values()
+        .stream()
+        .map(TrackedTransfer::snapshot)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @param interval The interval between two emissions.
+   * @return the progress of the in-flight transfers, emitted at the given interval while subscribed.
+   */
+  public Flux<List<TransferProgressSnapshot>> watch(Duration interval) {
+    return Flux.interval(Duration.ZERO, interval)
+        .map(tick -> getTransfers());
+  }
+
+  private long sum(ToLongFunction<TrackedTransfer> value) {
+    return transfers.values()
+        .stream()
+        .mapToLong(value)
+        .sum();
+  }
+
+  private double getThroughput() {
+    return transfers.values()
+        .stream()
+        .mapToDouble(TrackedTransfer::getThroughput)
+        .sum();
+  }
+
+  private double getEta() {
+    return transfers.values()
+        .stream()
+        .map(TrackedTransfer::getEta)
+        .filter(Objects::nonNull)
+        .mapToLong(Duration::getSeconds)
+        .max()
+        .orElse(0);
+  }
+
+  private class TrackedTransfer implements ProgressListener {
+
+    private final long id;
+
+    private final String service;
+
+    /** The followed transfer, {@code null} for the transfers not run by a transfer manager */
+    private final Transfer transfer;
+
+    private final String description;
+
+    private final TransferProgress progress;
+
+    private final long start = System.nanoTime();
+
+    private int loggedSteps;
+
+    TrackedTransfer(long id, String service, Transfer transfer, String description, TransferProgress progress) {
+      this.id = id;
+      this.service = service;
+      this.transfer = transfer;
+      this.description = description;
+      this.progress = progress;
+    }
+
+    @Override
+    public void progressChanged(ProgressEvent event) {
+      ProgressEventType type = event.getEventType();
+      if (type == ProgressEventType.TRANSFER_COMPLETED_EVENT || type == ProgressEventType.TRANSFER_FAILED_EVENT ||
+          type == ProgressEventType.TRANSFER_CANCELED_EVENT) {
+        transfers.remove(id);
+        log.debug("Transfer {} : {} in {}ms", description, type,
+            Duration.ofNanos(System.nanoTime() - start)
+                .toMillis());
+      }
+      else if (type.isByteCountEvent() && log.isDebugEnabled()) {
+        logProgress();
+      }
+    }
+
+    private synchronized void logProgress() {
+      int step = (int) (progress.getPercentTransferred() * LOG_STEPS / 100);
+      if (step > loggedSteps) {
+        loggedSteps = step;
+        log.debug("{}", snapshot());
+      }
+    }
+
+    long getBytesTransferred() {
+      return progress.getBytesTransferred();
+    }
+
+    long getTotalBytes() {
+      return Math.max(0, progress.getTotalBytesToTransfer());
+    }
+
+    double getThroughput() {
+      long elapsed = System.nanoTime() - start;
+      return elapsed <= 0 ? 0 : getBytesTransferred() * 1e9 / elapsed;
+    }
+
+    Duration getEta() {
+      long total = progress.getTotalBytesToTransfer();
+      double throughput = getThroughput();
+      if (total < 0 || throughput <= 0) {
+        return null;
+      }
+      return Duration.ofMillis((long) ((total - getBytesTransferred()) * 1000 / throughput));
+    }
+
+    TransferProgressSnapshot snapshot() {
+      String state = transfer == null ? TransferState.InProgress.name() : transfer.getState()
+          .name();
+      return new TransferProgressSnapshot(id, service, description, state, progress.getBytesTransferred(),
+          progress.getTotalBytesToTransfer(), getThroughput(), getEta());
+    }
+  }
+}
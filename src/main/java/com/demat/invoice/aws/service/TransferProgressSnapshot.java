@@ -0,0 +1,90 @@
+package com.demat.invoice.aws.service;
+
+import java.time.Duration;
+
+/**
+ * Progress of a S3 transfer at a given time.
+ *
+ * @see S3TransferMonitor
+ */
+public class TransferProgressSnapshot {
+
+  private final long id;
+
+  private final String service;
+
+  private final String description;
+
+  private final String state;
+
+  private final long bytesTransferred;
+
+  private final long totalBytes;
+
+  private final double throughput;
+
+  private final Duration eta;
+
+  TransferProgressSnapshot(long id, String service, String description, String state, long bytesTransferred, long totalBytes,
+      double throughput, Duration eta) {
+    this.id = id;
+    this.service = service;
+    this.description = description;
+    this.state = state;
+    this.bytesTransferred = bytesTransferred;
+    this.totalBytes = totalBytes;
+    this.throughput = throughput;
+    this.eta = eta;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getService() {
+    return service;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public long getBytesTransferred() {
+    return bytesTransferred;
+  }
+
+  /**
+   * @return the number of bytes to transfer, -1 if not known yet.
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * @return the average throughput since the start of the transfer, in bytes per second.
+   */
+  public double getThroughput() {
+    return throughput;
+  }
+
+  /**
+   * @return the estimated remaining duration of the transfer, {@code null} if it cannot be estimated yet.
+   */
+  public Duration getEta() {
+    return eta;
+  }
+
+  public double getPercentTransferred() {
+    return totalBytes <= 0 ? 0 : 100.0 * bytesTransferred / totalBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "TransferProgress [" + description + ", state=" + state + ", " + bytesTransferred + "/" + totalBytes + " bytes, " +
+        (long) throughput + " B/s, eta=" + eta + "]";
+  }
+}
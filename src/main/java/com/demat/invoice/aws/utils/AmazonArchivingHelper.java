@@ -8,8 +8,8 @@ import com.amazonaws.services.s3.internal.Mimetypes;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.transfer.*;
-import com.amazonaws.services.s3.transfer.Transfer.TransferState;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
+import com.demat.invoice.utils.ZipExtractor;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -18,7 +18,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
@@ -26,8 +25,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -89,36 +86,6 @@ public class AmazonArchivingHelper {
     log.debug("Transfer state : {}", xfer.getState());
   }
 
-  /**
-   * Prints progress of a multiple file upload while waiting for it to finish.
-   *
-   * @param multiUpload
-   */
-  public static void showMultiTransferProgress(MultipleFileUpload multiUpload) {
-    log.debug("Transfer description : {}", multiUpload.getDescription());
-
-    Collection<? extends Upload> subXfers = new ArrayList<Upload>();
-    subXfers = multiUpload.getSubTransfers();
-
-    do {
-      log.debug("Subtransfer progress");
-      for (Upload u : subXfers) {
-        log.debug("Upload description {}", u.getDescription());
-        if (u.isDone()) {
-          TransferState xferState = u.getState();
-          log.debug("Upload state {}", xferState);
-        }
-        else {
-          TransferProgress progress = u.getProgress();
-          log.debug("Transfer progress : {}/{} ({}%)", progress.getBytesTransferred(),
-              progress.getTotalBytesToTransfer(), progress.getPercentTransferred());
-        }
-      }
-    }
-    while (!multiUpload.isDone());
-    log.debug("Transfer state : {}", multiUpload.getState());
-  }
-
   public static String buildKeyWithUserAndEnvironment(String owner, String environment, LocalDate date, String filename) {
     Assert.hasText(owner, "Owner is required");
     Assert.hasText(environment, "Environment is required");
@@ -180,8 +147,9 @@ public class AmazonArchivingHelper {
     Path unzipFolder = Paths.get(archiveZip.getParent()
         .toString(), FilenameUtils.removeExtension(archiveZip.toFile()
             .getName()));
-    try (ZipInputStream zipStream = new ZipInputStream(new FileInputStream(archiveZip.toFile()))) {
-      unzip(zipStream, unzipFolder);
+    try {
+      ZipExtractor.getDefault()
+          .extract(archiveZip, unzipFolder, null);
     }
     catch (Exception e) {
       log.error("Failed to unzip archive", e);
@@ -192,11 +160,22 @@ public class AmazonArchivingHelper {
     return unzipFolder;
   }
 
+  /**
+   * Extracts a zip stream sequentially. Prefer {@link ZipExtractor} for the zip files, which reads their central directory and extracts
+   * the entries in parallel.
+   */
   public static void unzip(final ZipInputStream zipStream, Path destination) throws IOException {
+    Path root = destination.toAbsolutePath()
+        .normalize();
     for (ZipEntry entry; (entry = zipStream.getNextEntry()) != null; zipStream.closeEntry()) {
       // unzip entry
       String entryName = entry.getName();
-      Path target = destination.resolve(entryName);
+      Path target = root.resolve(entryName)
+          .normalize();
+      if (!target.startsWith(root)) {
+        log.warn("Skipping zip entry {} resolved outside of {}", entryName, root);
+        continue;
+      }
       if (entry.isDirectory()) {
         Files.createDirectories(target);
       }
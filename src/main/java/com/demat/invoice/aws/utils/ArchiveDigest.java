@@ -0,0 +1,81 @@
+package com.demat.invoice.aws.utils;
+
+import com.amazonaws.util.BinaryUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * MD5 and SHA-256 digests of an archive, both computed while reading the file (or its content in memory) once.
+ */
+public class ArchiveDigest {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final byte[] md5;
+
+  private final byte[] sha256;
+
+  private ArchiveDigest(byte[] md5, byte[] sha256) {
+    this.md5 = md5;
+    this.sha256 = sha256;
+  }
+
+  /**
+   * Reads the given file once, by chunks, to compute its digests.
+   *
+   * @param archive The file to digest.
+   * @return the digests of the file.
+   * @throws IOException if the file cannot be read.
+   */
+  public static ArchiveDigest of(File archive) throws IOException {
+    MessageDigest md5 = newDigest("MD5");
+    MessageDigest sha256 = newDigest("SHA-256");
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        md5.update(buffer.array(), 0, buffer.limit());
+        sha256.update(buffer.array(), 0, buffer.limit());
+        buffer.clear();
+      }
+    }
+    return new ArchiveDigest(md5.digest(), sha256.digest());
+  }
+
+  /**
+   * @param content The content to digest.
+   * @return the digests of the content.
+   */
+  public static ArchiveDigest of(byte[] content) {
+    return new ArchiveDigest(newDigest("MD5").digest(content), newDigest("SHA-256").digest(content));
+  }
+
+  public static MessageDigest newDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Digest algorithm not available: " + algorithm, e);
+    }
+  }
+
+  /**
+   * @return the MD5 digest encoded in Base64, as expected by the {@code Content-MD5} header.
+   */
+  public String getMd5Base64() {
+    return BinaryUtils.toBase64(md5);
+  }
+
+  /**
+   * @return the SHA-256 digest as a lower case hexadecimal string.
+   */
+  public String getSha256Hex() {
+    return BinaryUtils.toHex(sha256);
+  }
+}
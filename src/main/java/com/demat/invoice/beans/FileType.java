@@ -1,15 +1,20 @@
 package com.demat.invoice.beans;
 
+import com.demat.invoice.utils.ContentTypeDetector;
 import com.demat.invoice.utils.StringHelper;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.http.MediaType;
 
 import java.io.File;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import static com.demat.invoice.utils.FileHelper.getContentType;
 import static java.util.Arrays.stream;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
 import static org.apache.commons.lang3.ArrayUtils.isEmpty;
 import static org.apache.commons.lang3.ArrayUtils.isNotEmpty;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -318,7 +323,7 @@ public enum FileType {
     return getType(file, true);
   }
 
-  public static FileType getType(File file, boolean useContentType) { // NOSONAR : cyclomatic complexity > 10
+  public static FileType getType(File file, boolean useContentType) {
     if (file == null)
       return null;
 
@@ -326,52 +331,72 @@ public enum FileType {
     String ext = FilenameUtils.getExtension(file.getAbsolutePath());
     if (isNotBlank(ext)) {
       ext = ext.toLowerCase();
-      String dotext = "." + ext;
-      List<FileType> potentialTypes = new ArrayList<>();
-      for (FileType type : values()) {
-        if (isNotBlank(type.getExtension())) {
-          // equality -> returns
-          if (type.getExtension()
-              .equalsIgnoreCase(dotext)) // NOSONAR : function too deeply
-            return type;
-          // potential match (ex: xdoc -> doc)
-          if (ext.length() > 3 && ext.contains(type.getExtension())) // NOSONAR : function too deeply
-            potentialTypes.add(type);
-        }
-      }
+      // equality -> returns
+      FileType type = Indexes.EXTENSIONS.get("." + ext);
+      if (type != null)
+        return type;
+      // potential match (ex: xdoc -> doc)
       // returns the potential type found
       // if single to avoid ambiguity
       // resolution
-      if (potentialTypes.size() == 1)
-        return potentialTypes.get(0);
+      if (ext.length() > 3) {
+        FileType potentialType = null;
+        for (FileType extensionType : Indexes.EXTENSION_TYPES) {
+          if (ext.contains(extensionType.getExtension())) {
+            if (potentialType != null) {
+              potentialType = null;
+              break;
+            }
+            potentialType = extensionType;
+          }
+        }
+        if (potentialType != null)
+          return potentialType;
+      }
     }
 
     // Based on content type
     if (useContentType) {
-      final String contenType = getContentType(file);
+      final String contenType = ContentTypeDetector.getDefault()
+          .detect(file.toPath());
       if (isNotBlank(contenType)) {
-        return stream(values())
-            .filter(type -> isNotEmpty(type.getMimes()) &&
-                stream(type.getMimes())
-                    .anyMatch(mime -> isNotBlank(mime) && mime.contains(contenType)))
-            .findFirst()
-            .orElse(UNKNOWN);
+        FileType type = Indexes.CONTENT_TYPES.get(contenType);
+        return type != null ? type : findByContentType(contenType);
       }
     }
 
     return UNKNOWN;
   }
 
+  /**
+   * @return the first type having a mime containing the given content type, {@link #UNKNOWN} if none.
+   */
+  private static FileType findByContentType(String contentType) {
+    return stream(values())
+        .filter(type -> isNotEmpty(type.getMimes()) &&
+            stream(type.getMimes())
+                .anyMatch(mime -> isNotBlank(mime) && mime.contains(contentType)))
+        .findFirst()
+        .orElse(UNKNOWN);
+  }
+
   public static FileType valueOf(MediaType mediaType) {
     if (mediaType != null) {
-      boolean concrete = mediaType.isConcrete();
-      for (FileType ft : values()) {
-        if (stream(ft.mimes)
-            .filter(mime -> (concrete && mime.equals(mediaType.toString())) ||
-                (!concrete && mediaType.isCompatibleWith(MediaType.valueOf(mime))))
-            .findFirst()
-            .isPresent()) {
-          return ft;
+      if (mediaType.isConcrete()) {
+        FileType type = Indexes.MIMES.get(mediaType.toString());
+        if (type != null) {
+          return type;
+        }
+      }
+      else {
+        FileType type = Indexes.WILDCARDS.get(mediaType.toString());
+        if (type != null) {
+          return type;
+        }
+        for (Map.Entry<MediaType, FileType> mime : Indexes.MEDIA_TYPES) {
+          if (mediaType.isCompatibleWith(mime.getKey())) {
+            return mime.getValue();
+          }
         }
       }
     }
@@ -379,4 +404,68 @@ public enum FileType {
     return UNKNOWN;
   }
 
+  /**
+   * Lookup tables of the types, built once from the declaration order of the types so the first declared type still wins.
+   */
+  private static final class Indexes {
+
+    /** Extension (with its dot) -> first type declaring it */
+    private static final Map<String, FileType> EXTENSIONS;
+
+    /** Types with an extension, for the potential matches */
+    private static final List<FileType> EXTENSION_TYPES;
+
+    /** Mime -> first type declaring it */
+    private static final Map<String, FileType> MIMES;
+
+    /** Known mime -> first type having a mime containing it (content type resolution) */
+    private static final Map<String, FileType> CONTENT_TYPES;
+
+    /** Parsed mimes of the types, in declaration order (wildcard media types compatibility) */
+    private static final List<Map.Entry<MediaType, FileType>> MEDIA_TYPES;
+
+    /** Wildcard media type ({@code * / *}, {@code type/*}) -> first compatible type */
+    private static final Map<String, FileType> WILDCARDS;
+
+    static {
+      Map<String, FileType> extensions = new HashMap<>();
+      List<FileType> extensionTypes = new ArrayList<>();
+      Map<String, FileType> mimes = new HashMap<>();
+      Map<String, FileType> contentTypes = new HashMap<>();
+      List<Map.Entry<MediaType, FileType>> mediaTypes = new ArrayList<>();
+      for (FileType type : values()) {
+        if (isNotBlank(type.getExtension())) {
+          extensions.putIfAbsent(type.getExtension()
+              .toLowerCase(), type);
+          extensionTypes.add(type);
+        }
+        for (String mime : type.getMimes()) {
+          if (isNotBlank(mime)) {
+            mimes.putIfAbsent(mime, type);
+            contentTypes.computeIfAbsent(mime, FileType::findByContentType);
+            mediaTypes.add(new SimpleImmutableEntry<>(MediaType.valueOf(mime), type));
+          }
+        }
+      }
+
+      Map<String, FileType> wildcards = new HashMap<>();
+      for (Map.Entry<MediaType, FileType> mediaType : mediaTypes) {
+        MediaType wildcard = new MediaType(mediaType.getKey()
+            .getType());
+        wildcards.putIfAbsent(wildcard.toString(), mediaType.getValue());
+        wildcards.putIfAbsent(MediaType.ALL_VALUE, mediaType.getValue());
+      }
+
+      EXTENSIONS = unmodifiableMap(extensions);
+      EXTENSION_TYPES = unmodifiableList(extensionTypes);
+      MIMES = unmodifiableMap(mimes);
+      CONTENT_TYPES = unmodifiableMap(contentTypes);
+      MEDIA_TYPES = unmodifiableList(mediaTypes);
+      WILDCARDS = unmodifiableMap(wildcards);
+    }
+
+    private Indexes() {
+    }
+  }
+
 }
@@ -1,59 +1,58 @@
 package com.demat.invoice.utils;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 
 /**
  * This class provides encode/decode for RFC 2045 Base64 as defined by RFC 2045, N. Freed and N. Borenstein.
  * <a href="http://www.ietf.org/rfc/rfc2045.txt">RFC 2045</a>: Multipurpose Internet Mail Extensions (MIME) Part One: Format of Internet
  * Message Bodies. Reference 1996
+ * <p>
+ * The codec is the one of the JDK ({@link Base64}). Besides the array helpers, the large contents (e.g. PDF attachments) can be encoded
+ * or decoded as streams, or from a {@link ByteBuffer} to a buffer provided by the caller through per-thread block buffers.
  *
  * @author Jeffrey Rodriguez
  * @author Romain ROSSI <romain.rossi@byzaneo.com>
  * @company Byzaneo
  */
 public final class Base64Helper {
-  private static final Logger log = LoggerFactory.getLogger(Base64Helper.class);
 
   public static final String SHA_PREFIX = "{SHA}";
 
-  static private final int BASELENGTH = 255;
-  static private final int LOOKUPLENGTH = 63;
-  static private final int TWENTYFOURBITGROUP = 24;
-  static private final int EIGHTBIT = 8;
-  static private final int SIXTEENBIT = 16;
-  static private final int FOURBYTE = 4;
-
   static private final byte PAD = (byte) '=';
-  static private byte[] base64Alphabet = new byte[BASELENGTH];
-  static private byte[] lookUpBase64Alphabet = new byte[LOOKUPLENGTH];
 
-  static {
-    for (int i = 0; i < BASELENGTH; i++) {
-      base64Alphabet[i] = -1;
-    }
-    for (int i = 'Z'; i >= 'A'; i--) {
-      base64Alphabet[i] = (byte) (i - 'A');
-    }
-    for (int i = 'z'; i >= 'a'; i--) {
-      base64Alphabet[i] = (byte) (i - 'a' + 26);
-    }
+  /** Raw bytes encoded per block by the buffer codec, multiple of 3 */
+  static private final int BLOCK_SIZE = 3 * 1024;
 
-    for (int i = '9'; i >= '0'; i--) {
-      base64Alphabet[i] = (byte) (i - '0' + 52);
-    }
+  /** Base64 bytes of a full block */
+  static private final int ENCODED_BLOCK_SIZE = BLOCK_SIZE / 3 * 4;
+
+  static private final Base64.Encoder ENCODER = Base64.getEncoder();
+
+  static private final Base64.Decoder DECODER = Base64.getDecoder();
 
-    base64Alphabet['+'] = 62;
-    base64Alphabet['/'] = 63;
+  /** Lenient decoder, ignoring the line separators and the characters out of the alphabet */
+  static private final Base64.Decoder MIME_DECODER = Base64.getMimeDecoder();
 
-    for (int i = 0; i <= 25; i++)
-      lookUpBase64Alphabet[i] = (byte) ('A' + i);
+  /** Values of the Base64 characters, -1 out of the alphabet */
+  static private final byte[] base64Alphabet = new byte[256];
 
-    for (int i = 26, j = 0; i <= 51; i++, j++)
-      lookUpBase64Alphabet[i] = (byte) ('a' + j);
+  /** Raw and encoded block of the current thread */
+  static private final ThreadLocal<byte[][]> blocks = ThreadLocal.withInitial(() -> new byte[][] { new byte[BLOCK_SIZE],
+      new byte[ENCODED_BLOCK_SIZE] });
 
-    for (int i = 52, j = 0; i <= 61; i++, j++)
-      lookUpBase64Alphabet[i] = (byte) ('0' + j);
+  static {
+    Arrays.fill(base64Alphabet, (byte) -1);
+    byte[] alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(ISO_8859_1);
+    for (int i = 0; i < alphabet.length; i++) {
+      base64Alphabet[alphabet[i]] = (byte) i;
+    }
   }
 
   /**
@@ -64,7 +63,7 @@ public final class Base64Helper {
 
   private static final boolean isBase64(byte octect) {
     // shall we ignore white space? JEFF??
-    return octect == PAD || base64Alphabet[octect] != -1;
+    return octect == PAD || base64Alphabet[octect & 0xFF] != -1;
   }
 
   public static final boolean isArrayByteBase64(byte[] arrayOctect) {
@@ -91,7 +90,7 @@ public final class Base64Helper {
    * @return the encoded String
    */
   public static final String encodeWithPrefix(String data) {
-    return new StringBuilder(SHA_PREFIX).append(new String(encode(data.getBytes())))
+    return new StringBuilder(SHA_PREFIX).append(ENCODER.encodeToString(data.getBytes()))
         .toString();
   }
 
@@ -110,149 +109,46 @@ public final class Base64Helper {
    * @return Encoded Base64 array
    */
   public static final byte[] encode(byte[] binaryData) {
-    int lengthDataBits = binaryData.length * EIGHTBIT;
-    int fewerThan24bits = lengthDataBits % TWENTYFOURBITGROUP;
-    int numberTriplets = lengthDataBits / TWENTYFOURBITGROUP;
-    byte encodedData[] = null;
-
-    if (fewerThan24bits != 0) // data not divisible by 24 bit
-      encodedData = new byte[(numberTriplets + 1) * 4];
-    else
-      // 16 or 8 bit
-      encodedData = new byte[numberTriplets * 4];
-
-    byte k = 0, l = 0, b1 = 0, b2 = 0, b3 = 0;
-
-    int encodedIndex = 0;
-    int dataIndex = 0;
-    int i = 0;
-    for (i = 0; i < numberTriplets; i++) {
-
-      dataIndex = i * 3;
-      b1 = binaryData[dataIndex];
-      b2 = binaryData[dataIndex + 1];
-      b3 = binaryData[dataIndex + 2];
-
-      l = (byte) (b2 & 0x0f);
-      k = (byte) (b1 & 0x03);
-
-      encodedIndex = i * 4;
-      encodedData[encodedIndex] = lookUpBase64Alphabet[b1 >> 2];
-      encodedData[encodedIndex + 1] = lookUpBase64Alphabet[(b2 >> 4) | (k << 4)];
-      encodedData[encodedIndex + 2] = lookUpBase64Alphabet[(l << 2) | (b3 >> 6)];
-      encodedData[encodedIndex + 3] = lookUpBase64Alphabet[b3 & 0x3f];
-    }
-
-    // form integral number of 6-bit groups
-    dataIndex = i * 3;
-    encodedIndex = i * 4;
-    if (fewerThan24bits == EIGHTBIT) {
-      b1 = binaryData[dataIndex];
-      k = (byte) (b1 & 0x03);
-      encodedData[encodedIndex] = lookUpBase64Alphabet[b1 >> 2];
-      encodedData[encodedIndex + 1] = lookUpBase64Alphabet[k << 4];
-      encodedData[encodedIndex + 2] = PAD;
-      encodedData[encodedIndex + 3] = PAD;
-    }
-    else if (fewerThan24bits == SIXTEENBIT) {
-
-      b1 = binaryData[dataIndex];
-      b2 = binaryData[dataIndex + 1];
-      l = (byte) (b2 & 0x0f);
-      k = (byte) (b1 & 0x03);
-      encodedData[encodedIndex] = lookUpBase64Alphabet[b1 >> 2];
-      encodedData[encodedIndex + 1] = lookUpBase64Alphabet[(b2 >> 4) | (k << 4)];
-      encodedData[encodedIndex + 2] = lookUpBase64Alphabet[l << 2];
-      encodedData[encodedIndex + 3] = PAD;
-    }
-    return encodedData;
+    return ENCODER.encode(binaryData);
   }
 
   /**
-   * Decodes Base64 data into octects
+   * Decodes Base64 data into octects, ignoring the line separators and the characters out of the Base64 alphabet.
    *
    * @param base64Data Byte array containing Base64 data
    * @return Array containind decoded data.
+   * @throws IllegalArgumentException if the padding is not correct.
    */
   public static final byte[] decode(byte[] base64Data) {
-    int numberQuadruple = base64Data.length / FOURBYTE;
-    byte decodedData[] = null;
-    byte b1 = 0, b2 = 0, b3 = 0, b4 = 0, marker0 = 0, marker1 = 0;
-
-    // Throw away anything not in base64Data
-    // Adjust size
-
-    int encodedIndex = 0;
-    int dataIndex = 0;
-    decodedData = new byte[numberQuadruple * 3 + 1];
-
-    for (int i = 0; i < numberQuadruple; i++) {
-      dataIndex = i * 4;
-      marker0 = base64Data[dataIndex + 2];
-      marker1 = base64Data[dataIndex + 3];
-
-      b1 = base64Alphabet[base64Data[dataIndex]];
-      b2 = base64Alphabet[base64Data[dataIndex + 1]];
-
-      if (marker0 != PAD && marker1 != PAD) { // No PAD e.g 3cQl
-        b3 = base64Alphabet[marker0];
-        b4 = base64Alphabet[marker1];
-
-        decodedData[encodedIndex] = (byte) (b1 << 2 | b2 >> 4);
-        decodedData[encodedIndex + 1] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-        decodedData[encodedIndex + 2] = (byte) (b3 << 6 | b4);
-      }
-      else if (marker0 == PAD) { // Two PAD e.g. 3c[Pad][Pad]
-        decodedData[encodedIndex] = (byte) (b1 << 2 | b2 >> 4);
-        decodedData[encodedIndex + 1] = (byte) ((b2 & 0xf) << 4);
-        decodedData[encodedIndex + 2] = (byte) 0;
-      }
-      else { // marker1 == PAD: One PAD e.g. 3cQ[Pad]
-        b3 = base64Alphabet[marker0];
-
-        decodedData[encodedIndex] = (byte) (b1 << 2 | b2 >> 4);
-        decodedData[encodedIndex + 1] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-        decodedData[encodedIndex + 2] = (byte) (b3 << 6);
-      }
-      encodedIndex += 3;
-    }
-    return decodedData;
-
+    return MIME_DECODER.decode(base64Data);
   }
 
-  private static final int base64[] = { 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 62, 64,
-      64, 64, 63, 52, 53, 54, 55, 56, 57, 58, 59, 60, 61, 64, 64, 64, 64,
-      64, 64, 64, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
-      16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 64, 64, 64, 64, 64, 64, 26,
-      27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43,
-      44, 45, 46, 47, 48, 49, 50, 51, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64, 64,
-      64, 64, 64, 64, 64 };
-
+  /**
+   * Decodes Base64 data, ignoring the line separators and the characters out of the Base64 alphabet. Malformed data (incorrect padding,
+   * truncated quantum) are still decoded leniently, their incomplete trailing bits being dropped.
+   *
+   * @param orig the Base64 data
+   * @return the decoded data, one char per byte.
+   */
   public static final String decode(String orig) {
-    char chars[] = orig.toCharArray();
-    StringBuilder sb = new StringBuilder();
-    int i = 0;
+    try {
+      return new String(MIME_DECODER.decode(orig), ISO_8859_1);
+    }
+    catch (IllegalArgumentException e) {
+      return decodeLeniently(orig);
+    }
+  }
 
+  /**
+   * Decodes the characters of the Base64 alphabet bit by bit, the others ('=' included) being skipped.
+   */
+  private static final String decodeLeniently(String orig) {
+    final StringBuilder sb = new StringBuilder(orig.length() * 3 / 4);
     int shift = 0; // # of excess bits stored in accum
     int acc = 0;
-
-    for (i = 0; i < chars.length; i++) {
-      int v = base64[chars[i] & 0xFF];
-
-      if (v >= 64) {
-        if ((chars[i] != '=') && (log.isDebugEnabled()))
-          log.debug("Wrong char in base64: {}", chars[i]);
-      }
-      else {
+    for (int i = 0; i < orig.length(); i++) {
+      final int v = base64Alphabet[orig.charAt(i) & 0xFF];
+      if (v >= 0) {
         acc = (acc << 6) | v;
         shift += 6;
         if (shift >= 8) {
@@ -263,4 +159,110 @@ public final class Base64Helper {
     }
     return sb.toString();
   }
+
+  /*
+   * STREAMS
+   */
+
+  /**
+   * @param out the stream receiving the Base64 data
+   * @return a stream encoding the bytes written into Base64, to close to write the padding (closes the given stream).
+   */
+  public static final OutputStream encodingStream(OutputStream out) {
+    return ENCODER.wrap(out);
+  }
+
+  /**
+   * @param in the stream of Base64 data, line separators and characters out of the Base64 alphabet being ignored
+   * @return a stream of the decoded bytes.
+   */
+  public static final InputStream decodingStream(InputStream in) {
+    return MIME_DECODER.wrap(in);
+  }
+
+  /*
+   * BUFFERS
+   */
+
+  /**
+   * @param length number of bytes to encode
+   * @return the length of their Base64 encoding, padding included.
+   */
+  public static final int encodedLength(int length) {
+    return (length + 2) / 3 * 4;
+  }
+
+  /**
+   * @param base64Data the Base64 data, without line separators
+   * @return the number of bytes encoded by the remaining bytes of the buffer (its position is unchanged).
+   */
+  public static final int decodedLength(ByteBuffer base64Data) {
+    int length = base64Data.remaining();
+    int end = base64Data.limit();
+    int padding = 0;
+    if (length > 0 && base64Data.get(end - 1) == PAD) {
+      padding++;
+      if (length > 1 && base64Data.get(end - 2) == PAD) {
+        padding++;
+      }
+    }
+    return length / 4 * 3 + Math.max(0, length % 4 - 1) - padding;
+  }
+
+  /**
+   * Encodes the remaining bytes of a buffer into another one. The bytes are encoded by blocks copied into buffers of the current thread:
+   * only the last partial block is allocated.
+   *
+   * @param src the bytes to encode, read up to its limit
+   * @param dst the buffer receiving the Base64 data, padding included
+   * @return the number of bytes written into the destination.
+   * @throws BufferOverflowException if the destination is too small (nothing is read or written).
+   */
+  public static final int encode(ByteBuffer src, ByteBuffer dst) {
+    int encoded = encodedLength(src.remaining());
+    if (dst.remaining() < encoded) {
+      throw new BufferOverflowException();
+    }
+    byte[][] block = blocks.get();
+    while (src.remaining() >= BLOCK_SIZE) {
+      src.get(block[0]);
+      ENCODER.encode(block[0], block[1]);
+      dst.put(block[1]);
+    }
+    if (src.hasRemaining()) {
+      byte[] last = new byte[src.remaining()];
+      src.get(last);
+      dst.put(ENCODER.encode(last));
+    }
+    return encoded;
+  }
+
+  /**
+   * Decodes the remaining Base64 data of a buffer into another one. The data are decoded by blocks copied into buffers of the current
+   * thread: only the last partial block is allocated.
+   *
+   * @param src the Base64 data, without line separators, read up to its limit
+   * @param dst the buffer receiving the decoded bytes
+   * @return the number of bytes written into the destination.
+   * @throws BufferOverflowException if the destination is too small (nothing is read or written).
+   * @throws IllegalArgumentException if the source is not valid Base64 data (the blocks before the invalid one are decoded).
+   */
+  public static final int decode(ByteBuffer src, ByteBuffer dst) {
+    if (dst.remaining() < decodedLength(src)) {
+      throw new BufferOverflowException();
+    }
+    int start = dst.position();
+    byte[][] block = blocks.get();
+    // the last block, the only one with padding, is decoded apart
+    while (src.remaining() > ENCODED_BLOCK_SIZE) {
+      src.get(block[1]);
+      dst.put(block[0], 0, DECODER.decode(block[1], block[0]));
+    }
+    if (src.hasRemaining()) {
+      byte[] last = new byte[src.remaining()];
+      src.get(last);
+      dst.put(DECODER.decode(last));
+    }
+    return dst.position() - start;
+  }
 }
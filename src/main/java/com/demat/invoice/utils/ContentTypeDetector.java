@@ -0,0 +1,275 @@
+package com.demat.invoice.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.mime.MimeTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.activation.MimetypesFileTypeMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
+
+/**
+ * Detects the content type of the files. Only the magic bytes prefix of a file is read, once, and given to the Tika detector shared by
+ * all the threads. The name based detections (URL file name map, NIO, Activation) are the fallbacks when the prefix cannot be read or
+ * analyzed.
+ * <p>
+ * The containers (zip, OOXML, OLE2) cannot be told apart from their prefix: when the prefix is detected as one of these generic types,
+ * the whole file is given to the detector, so the container detectors (when available) can look at its entries to find the actual type
+ * (docx, xlsx, odt, msg...).
+ * <p>
+ * The detected types are cached by path, size and modification time, so a file is analyzed again only when it changes.
+ */
+public class ContentTypeDetector {
+
+  private static final Logger log = LoggerFactory.getLogger(ContentTypeDetector.class);
+
+  private static final int CACHE_SIZE = 10_000;
+
+  /** Types of the containers whose actual type is only found by reading their entries */
+  private static final Set<MediaType> CONTAINER_TYPES = new HashSet<>(Arrays.asList(MediaType.APPLICATION_ZIP,
+      MediaType.application("x-tika-ooxml"), MediaType.application("x-tika-ooxml-protected"), MediaType.application("x-tika-msoffice"),
+      MediaType.application("x-ole-storage")));
+
+  private static final ContentTypeDetector DEFAULT = new ContentTypeDetector(Runtime.getRuntime()
+      .availableProcessors());
+
+  private final ExecutorService executor;
+
+  /** Detector shared by the threads, the default Tika one if {@code null} */
+  private final Detector detector;
+
+  private final Cache<Key, String> cache = Caffeine.newBuilder()
+      .maximumSize(CACHE_SIZE)
+      .build();
+
+  /**
+   * @param parallelism The maximum number of files analyzed at the same time by {@link #detectAll(Collection)}.
+   */
+  public ContentTypeDetector(int parallelism) {
+    this(parallelism, null);
+  }
+
+  /**
+   * @param parallelism The maximum number of files analyzed at the same time by {@link #detectAll(Collection)}.
+   * @param detector The Tika detector, {@code null} for the default one.
+   */
+  ContentTypeDetector(int parallelism, Detector detector) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("content-type-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+    this.detector = detector;
+  }
+
+  /**
+   * @return the detector shared by the application.
+   */
+  public static ContentTypeDetector getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @param path The file to analyze.
+   * @return the content type of the file, {@code null} if the path is not a regular file or if its type is not found.
+   */
+  public String detect(Path path) {
+    if (path == null) {
+      return null;
+    }
+    final BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    }
+    catch (IOException e) {
+      return null;
+    }
+    if (!attributes.isRegularFile()) {
+      return null;
+    }
+
+    Key key = new Key(path.toAbsolutePath()
+        .normalize(), attributes.size(), attributes.lastModifiedTime()
+            .toMillis());
+    String mime = cache.getIfPresent(key);
+    if (mime == null) {
+      mime = detect(path, attributes.size());
+      if (mime != null) {
+        cache.put(key, mime);
+      }
+    }
+    return mime;
+  }
+
+  /**
+   * Analyzes files in parallel.
+   *
+   * @param paths The files to analyze.
+   * @return the content type of each file, in the iteration order of the given paths ({@code null} values for the types not found).
+   */
+  public Map<Path, String> detectAll(Collection<Path> paths) {
+    List<CompletableFuture<String>> detections = paths.stream()
+        .map(path -> CompletableFuture.supplyAsync(() -> detect(path), executor))
+        .collect(toList());
+    Map<Path, String> types = new LinkedHashMap<>();
+    int i = 0;
+    for (Path path : paths) {
+      types.put(path, detections.get(i++)
+          .join());
+    }
+    return types;
+  }
+
+  /**
+   * Removes the cached content types.
+   */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  private String detect(Path path, long size) {
+    // Tika detection
+    try {
+      final Detector tika = detector == null ? Tika.DETECTOR : detector;
+      final Metadata metadata = new Metadata();
+      metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, path.getFileName()
+          .toString());
+      metadata.set(Metadata.CONTENT_LENGTH, Long.toString(size));
+      MediaType type;
+      try (InputStream input = TikaInputStream.get(readPrefix(path, Tika.PREFIX_LENGTH))) {
+        type = tika.detect(input, metadata);
+      }
+      if (type != null && CONTAINER_TYPES.contains(type.getBaseType())) {
+        // the container detectors open the file to read its entries
+        try (InputStream input = TikaInputStream.get(path)) {
+          type = tika.detect(input, metadata);
+        }
+      }
+      if (type != null) {
+        return type.getBaseType()
+            .toString();
+      }
+    }
+    catch (Exception ignored) {
+      log.debug("Content type not found using Tika: {} ({})",
+          path, getRootCauseMessage(ignored));
+    }
+
+    // URL file name map
+    String mime = URLConnection.getFileNameMap()
+        .getContentTypeFor(path.getFileName()
+            .toString());
+    if (isNotBlank(mime)) {
+      return mime;
+    }
+
+    // NIO detection
+    try {
+      mime = Files.probeContentType(path);
+      if (isNotBlank(mime)) {
+        return mime;
+      }
+    }
+    catch (Exception ignored) {
+      log.debug("Content type not found using NIO: {} ({})",
+          path, getRootCauseMessage(ignored));
+    }
+
+    // Activation detection
+    try {
+      return MimetypesFileTypeMap
+          .getDefaultFileTypeMap()
+          .getContentType(path.toFile());
+    }
+    catch (Exception ignored) {
+      log.debug("Content type not found using Activation: {} ({})",
+          path, getRootCauseMessage(ignored));
+    }
+    return null;
+  }
+
+  private static byte[] readPrefix(Path path, int length) throws IOException {
+    try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+      ByteBuffer prefix = ByteBuffer.allocate((int) Math.min(length, channel.size()));
+      while (prefix.hasRemaining() && channel.read(prefix) > 0) {
+        // reads the whole prefix
+      }
+      return Arrays.copyOf(prefix.array(), prefix.position());
+    }
+  }
+
+  /** Tika detector, loaded on first use */
+  private static final class Tika {
+
+    private static final Detector DETECTOR = TikaConfig.getDefaultConfig()
+        .getDetector();
+
+    /** Number of bytes read by the magic detection of the mime types */
+    private static final int PREFIX_LENGTH = Math.max(MimeTypes.getDefaultMimeTypes()
+        .getMinLength(), 8 * 1024);
+
+    private Tika() {
+    }
+  }
+
+  private static final class Key {
+
+    private final Path path;
+
+    private final long size;
+
+    private final long lastModified;
+
+    Key(Path path, long size, long lastModified) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return size == key.size && lastModified == key.lastModified && path.equals(key.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, size, lastModified);
+    }
+  }
+}
@@ -0,0 +1,412 @@
+package com.demat.invoice.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.Since;
+import com.google.gson.annotations.Until;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Deep copies of objects without the JSON round trip of {@link GsonHelper#clone(Object)}. The way to copy each class is planned once and
+ * cached:
+ * <ul>
+ * <li>the immutable types (strings, boxed primitives, enums, {@code java.time}...) are shared, not copied;</li>
+ * <li>the arrays, collections and maps are copied element by element;</li>
+ * <li>the beans are instantiated with their no-argument constructor and their fields are copied thru {@link MethodHandle}s, skipping the
+ * fields ignored by the {@link GsonHelper#getGson() default GSon} (static, transient, time zones);</li>
+ * <li>the other types (JDK internals, no no-argument constructor, GSon adapters or versioning annotations) are copied by the JSON round
+ * trip.</li>
+ * </ul>
+ * An object referenced several times, including by itself, is copied once: the copy has the same graph as the original where the JSON
+ * round trip fails on the cycles. The values also keep their runtime types where the JSON round trip only knows the declared types.
+ */
+public final class DeepCopier {
+
+  private static final Logger log = LoggerFactory.getLogger(DeepCopier.class);
+
+  private static final Set<Class<?>> IMMUTABLES = Set.of(String.class, Boolean.class, Character.class, Byte.class, Short.class,
+      Integer.class, Long.class, Float.class, Double.class, BigDecimal.class, BigInteger.class, UUID.class, Locale.class, URI.class,
+      URL.class, Class.class);
+
+  private static final MethodType GETTER = methodType(Object.class, Object.class);
+
+  private static final MethodType SETTER = methodType(void.class, Object.class, Object.class);
+
+  private static final MethodType CONSTRUCTOR = methodType(Object.class);
+
+  private static final MethodType SORTED_CONSTRUCTOR = methodType(Object.class, Comparator.class);
+
+  private final Gson gson;
+
+  private final Collection<Class<?>> adaptedTypes;
+
+  private final ClassValue<Plan> plans = new ClassValue<Plan>() {
+    @Override
+    protected Plan computeValue(Class<?> type) {
+      return plan(type);
+    }
+  };
+
+  /**
+   * @param gson The GSon instance copying the unsupported types.
+   * @param adaptedTypes The types (and their subtypes) serialized by custom adapters of the GSon instance, copied by the JSON round trip.
+   */
+  public DeepCopier(Gson gson, Collection<Class<?>> adaptedTypes) {
+    this.gson = gson;
+    this.adaptedTypes = List.copyOf(adaptedTypes);
+  }
+
+  /**
+   * @return the copier of the {@link GsonHelper#getGson() default GSon} instance.
+   */
+  public static DeepCopier getDefault() {
+    return GsonRegistry.getInstance()
+        .getCopier();
+  }
+
+  /**
+   * @param object The object to copy.
+   * @return the deep copy of the object, {@code null} if the object is {@code null}.
+   * @throws CloneNotSupportedException if the object cannot be copied.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T copy(T object) throws CloneNotSupportedException {
+    try {
+      return (T) new Copy().copy(object);
+    }
+    catch (Throwable e) { // NOSONAR : method handles invocation
+      if (e instanceof Error && !(e instanceof StackOverflowError))
+        throw (Error) e;
+      log.debug("Error copying {}: {}", object, e.getMessage());
+      CloneNotSupportedException cnse = new CloneNotSupportedException("Error copying: " + object.getClass()
+          .getName());
+      cnse.initCause(e);
+      throw cnse;
+    }
+  }
+
+  /*
+   * -- PLANNING --
+   */
+
+  private Plan plan(Class<?> type) {
+    if (isImmutable(type))
+      return IMMUTABLE;
+    if (type.isArray())
+      return type.getComponentType()
+          .isPrimitive() ? PRIMITIVE_ARRAY : new ObjectArrayPlan(type.getComponentType());
+    if (isAdapted(type))
+      return new JsonPlan(type);
+    try {
+      if (type == Date.class)
+        return DATE;
+      if (Map.class.isAssignableFrom(type))
+        return new MapPlan(constructor(type, implementation(type), SortedMap.class.isAssignableFrom(type)));
+      if (Collection.class.isAssignableFrom(type))
+        return new CollectionPlan(constructor(type, implementation(type), SortedSet.class.isAssignableFrom(type)));
+      if (isBean(type))
+        return new BeanPlan(constructor(type, false), fields(type));
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("No copy plan for {}: {}", type.getName(), e.getMessage());
+    }
+    return new JsonPlan(type);
+  }
+
+  private static boolean isImmutable(Class<?> type) {
+    return type.isPrimitive() || IMMUTABLES.contains(type) || Enum.class.isAssignableFrom(type) || "java.time".equals(type.getPackageName());
+  }
+
+  private boolean isAdapted(Class<?> type) {
+    if (type.isAnnotationPresent(JsonAdapter.class))
+      return true;
+    for (Class<?> adapted : adaptedTypes)
+      if (adapted.isAssignableFrom(type))
+        return true;
+    return false;
+  }
+
+  /**
+   * @return if the fields of the type are accessible and if GSon would instantiate it.
+   */
+  private static boolean isBean(Class<?> type) {
+    final String name = type.getName();
+    return !(name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.") ||
+        name.startsWith("com.sun.")) && !type.isAnonymousClass() && !type.isLocalClass() &&
+        !(type.isMemberClass() && !Modifier.isStatic(type.getModifiers())) && !type.isAnnotationPresent(Since.class) &&
+        !type.isAnnotationPresent(Until.class);
+  }
+
+  /**
+   * @return the implementation instantiated by GSon for the collections and the maps without accessible constructor (immutable,
+   *         unmodifiable...).
+   */
+  private static Class<?> implementation(Class<?> type) {
+    if (SortedMap.class.isAssignableFrom(type))
+      return TreeMap.class;
+    if (Map.class.isAssignableFrom(type))
+      return LinkedHashMap.class;
+    if (SortedSet.class.isAssignableFrom(type))
+      return TreeSet.class;
+    if (Set.class.isAssignableFrom(type))
+      return LinkedHashSet.class;
+    if (Queue.class.isAssignableFrom(type) && !List.class.isAssignableFrom(type))
+      return ArrayDeque.class;
+    return ArrayList.class;
+  }
+
+  /**
+   * @param sorted if the constructor takes the comparator of the sorted collection or map.
+   */
+  private static MethodHandle constructor(Class<?> type, Class<?> implementation, boolean sorted) throws ReflectiveOperationException {
+    try {
+      return constructor(type, sorted);
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      return constructor(implementation, sorted);
+    }
+  }
+
+  /**
+   * @param sorted if the constructor takes the comparator of the sorted collection or map.
+   */
+  private static MethodHandle constructor(Class<?> type, boolean sorted) throws ReflectiveOperationException {
+    final Constructor<?> constructor = sorted ? type.getDeclaredConstructor(Comparator.class) : type.getDeclaredConstructor();
+    if (!Modifier.isPublic(constructor.getModifiers()) || !Modifier.isPublic(type.getModifiers()))
+      constructor.setAccessible(true);
+    return MethodHandles.lookup()
+        .unreflectConstructor(constructor)
+        .asType(sorted ? SORTED_CONSTRUCTOR : CONSTRUCTOR);
+  }
+
+  private static FieldPlan[] fields(Class<?> type) throws ReflectiveOperationException {
+    final List<FieldPlan> fields = new ArrayList<>();
+    for (Class<?> clazz = type; clazz != Object.class; clazz = clazz.getSuperclass()) {
+      for (Field field : clazz.getDeclaredFields()) {
+        final int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic() ||
+            TimeZone.class.isAssignableFrom(field.getType()))
+          continue;
+        if (field.isAnnotationPresent(JsonAdapter.class) || field.isAnnotationPresent(Since.class) ||
+            field.isAnnotationPresent(Until.class))
+          throw new ReflectiveOperationException("GSon annotated field: " + field);
+        field.setAccessible(true);
+        fields.add(new FieldPlan(MethodHandles.lookup()
+            .unreflectGetter(field)
+            .asType(GETTER),
+            MethodHandles.lookup()
+                .unreflectSetter(field)
+                .asType(SETTER),
+            isImmutable(field.getType()) && (field.getType()
+                .isPrimitive() || Modifier.isFinal(field.getType()
+                    .getModifiers()))));
+      }
+    }
+    return fields.toArray(new FieldPlan[0]);
+  }
+
+  /*
+   * -- COPYING --
+   */
+
+  /**
+   * A deep copy, tracking the objects already copied.
+   */
+  private final class Copy {
+
+    private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+    Object copy(Object source) throws Throwable {
+      if (source == null)
+        return null;
+      final Plan plan = plans.get(source.getClass());
+      if (plan == IMMUTABLE)
+        return source;
+      final Object copy = copies.get(source);
+      return copy != null ? copy : plan.copy(source, this);
+    }
+
+    /**
+     * Registers the copy before its content is copied, for the cycles to reference it.
+     */
+    void register(Object source, Object copy) {
+      copies.put(source, copy);
+    }
+  }
+
+  private abstract static class Plan {
+    abstract Object copy(Object source, Copy copy) throws Throwable;
+  }
+
+  private static final Plan IMMUTABLE = new Plan() {
+    @Override
+    Object copy(Object source, Copy copy) {
+      return source;
+    }
+  };
+
+  private static final Plan DATE = new Plan() {
+    @Override
+    Object copy(Object source, Copy copy) {
+      final Object r = new Date(((Date) source).getTime());
+      copy.register(source, r);
+      return r;
+    }
+  };
+
+  private static final Plan PRIMITIVE_ARRAY = new Plan() {
+    @Override
+    Object copy(Object source, Copy copy) {
+      final int length = Array.getLength(source);
+      final Object r = Array.newInstance(source.getClass()
+          .getComponentType(), length);
+      System.arraycopy(source, 0, r, 0, length);
+      copy.register(source, r);
+      return r;
+    }
+  };
+
+  private static final class ObjectArrayPlan extends Plan {
+    private final Class<?> componentType;
+
+    ObjectArrayPlan(Class<?> componentType) {
+      this.componentType = componentType;
+    }
+
+    @Override
+    Object copy(Object source, Copy copy) throws Throwable {
+      final Object[] array = (Object[]) source;
+      final Object[] r = (Object[]) Array.newInstance(componentType, array.length);
+      copy.register(source, r);
+      for (int i = 0; i < array.length; i++)
+        r[i] = copy.copy(array[i]);
+      return r;
+    }
+  }
+
+  private static final class CollectionPlan extends Plan {
+    private final MethodHandle constructor;
+
+    CollectionPlan(MethodHandle constructor) {
+      this.constructor = constructor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object copy(Object source, Copy copy) throws Throwable {
+      final Collection<Object> r = (Collection<Object>) (source instanceof SortedSet
+          ? (Object) constructor.invokeExact(((SortedSet<?>) source).comparator())
+          : (Object) constructor.invokeExact());
+      copy.register(source, r);
+      for (Object element : (Collection<?>) source)
+        r.add(copy.copy(element));
+      return r;
+    }
+  }
+
+  private static final class MapPlan extends Plan {
+    private final MethodHandle constructor;
+
+    MapPlan(MethodHandle constructor) {
+      this.constructor = constructor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object copy(Object source, Copy copy) throws Throwable {
+      final Map<Object, Object> r = (Map<Object, Object>) (source instanceof SortedMap
+          ? (Object) constructor.invokeExact(((SortedMap<?, ?>) source).comparator())
+          : (Object) constructor.invokeExact());
+      copy.register(source, r);
+      for (Map.Entry<?, ?> e : ((Map<?, ?>) source).entrySet())
+        r.put(copy.copy(e.getKey()), copy.copy(e.getValue()));
+      return r;
+    }
+  }
+
+  private static final class BeanPlan extends Plan {
+    private final MethodHandle constructor;
+    private final FieldPlan[] fields;
+
+    BeanPlan(MethodHandle constructor, FieldPlan[] fields) {
+      this.constructor = constructor;
+      this.fields = fields;
+    }
+
+    @Override
+    Object copy(Object source, Copy copy) throws Throwable {
+      final Object r = (Object) constructor.invokeExact();
+      copy.register(source, r);
+      for (FieldPlan field : fields) {
+        final Object value = (Object) field.getter.invokeExact(source);
+        field.setter.invokeExact(r, field.immutable ? value : copy.copy(value));
+      }
+      return r;
+    }
+  }
+
+  private static final class FieldPlan {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    /** the declared type is immutable, the value is shared without looking up its plan */
+    private final boolean immutable;
+
+    FieldPlan(MethodHandle getter, MethodHandle setter, boolean immutable) {
+      this.getter = getter;
+      this.setter = setter;
+      this.immutable = immutable;
+    }
+  }
+
+  /**
+   * The JSON round trip of the unsupported types.
+   */
+  private final class JsonPlan extends Plan {
+    private final Class<?> type;
+
+    JsonPlan(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    Object copy(Object source, Copy copy) {
+      final Object r = gson.fromJson(gson.toJson(source), type);
+      copy.register(source, r);
+      return r;
+    }
+  }
+}
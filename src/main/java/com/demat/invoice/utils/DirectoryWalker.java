@@ -0,0 +1,392 @@
+package com.demat.invoice.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds the directories matching a path pattern below a base directory. The pattern is made of {@code /} separated segments: a directory
+ * name, {@code *} for any directory or {@code **} for one or more levels of directories (e.g. {@code in/&#42;/invoices}, {@code **}).
+ * <p>
+ * The pattern is compiled once into a small state machine, the directories are visited in parallel by fork-join tasks and a subtree is
+ * only listed when the pattern can still match below it: the literal segments are resolved directly without listing their parent. The
+ * matches are streamed as soon as they are found. The symbolic links to directories can be matched, but {@code **} does not descend into
+ * them.
+ */
+public class DirectoryWalker {
+
+  private static final Logger log = LoggerFactory.getLogger(DirectoryWalker.class);
+
+  private static final DirectoryWalker DEFAULT = new DirectoryWalker(Runtime.getRuntime()
+      .availableProcessors());
+
+  /** End of the matches, compared by identity */
+  private static final Path END = Paths.get("");
+
+  private final ForkJoinPool pool;
+
+  private final AtomicLong walks = new AtomicLong();
+
+  private final AtomicLong directories = new AtomicLong();
+
+  private final AtomicLong matches = new AtomicLong();
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  /**
+   * @param parallelism The maximum number of directories listed at the same time.
+   */
+  public DirectoryWalker(int parallelism) {
+    this.pool = new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * @return the walker shared by the application, listing as many directories at the same time as available processors.
+   */
+  public static DirectoryWalker getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Finds the directories matching a pattern. The returned stream should be closed to stop the walk when it is not fully consumed.
+   *
+   * @param base The directory the pattern is relative to.
+   * @param pattern The pattern of the directories to find, an empty pattern matching the base directory.
+   * @return the matching directories, in no particular order.
+   * @throws IllegalArgumentException if the pattern has too many segments.
+   */
+  public Stream<Path> find(Path base, String pattern) {
+    Walk walk = new Walk(base, DirectoryPattern.compile(pattern));
+    pool.execute(walk::run);
+    return StreamSupport.stream(walk, false)
+        .onClose(walk::cancel);
+  }
+
+  /**
+   * @return the statistics of the walks since the creation of this walker.
+   */
+  public Statistics getStatistics() {
+    return new Statistics(walks.get(), directories.get(), matches.get(), Duration.ofNanos(nanos.get()));
+  }
+
+  /**
+   * A walk from a base directory, publishing its matches to the consumer of its stream.
+   */
+  private class Walk extends Spliterators.AbstractSpliterator<Path> {
+
+    private final Path base;
+
+    private final DirectoryPattern pattern;
+
+    private final BlockingQueue<Path> results = new LinkedBlockingQueue<>();
+
+    private final AtomicLong visited = new AtomicLong();
+
+    private final AtomicLong matched = new AtomicLong();
+
+    private volatile boolean cancelled;
+
+    private boolean done;
+
+    Walk(Path base, DirectoryPattern pattern) {
+      super(Long.MAX_VALUE, Spliterator.DISTINCT | Spliterator.NONNULL);
+      this.base = base;
+      this.pattern = pattern;
+    }
+
+    void run() {
+      long start = System.nanoTime();
+      try {
+        long state = pattern.initialState();
+        if (Files.isDirectory(base)) {
+          if (pattern.matches(state)) {
+            emit(base);
+          }
+          if (pattern.isAlive(state)) {
+            new Visit(base, state).invoke();
+          }
+        }
+      }
+      catch (RuntimeException e) {
+        log.error("Error walking {} : {}", base, e.getMessage(), e);
+      }
+      finally {
+        long duration = System.nanoTime() - start;
+        walks.incrementAndGet();
+        directories.addAndGet(visited.get());
+        matches.addAndGet(matched.get());
+        nanos.addAndGet(duration);
+        log.debug("{} directories matching {} found in {} ({} directories visited) in {}ms", matched, pattern, base, visited,
+            Duration.ofNanos(duration)
+                .toMillis());
+        results.add(END);
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+    }
+
+    private void emit(Path directory) {
+      matched.incrementAndGet();
+      results.add(directory);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Path> action) {
+      if (done) {
+        return false;
+      }
+      try {
+        Path next = results.take();
+        if (next == END) {
+          done = true;
+          return false;
+        }
+        action.accept(next);
+        return true;
+      }
+      catch (InterruptedException e) {
+        cancel();
+        done = true;
+        Thread.currentThread()
+            .interrupt();
+        return false;
+      }
+    }
+
+    /**
+     * Visit of a directory reached in the given states of the pattern.
+     */
+    private class Visit extends RecursiveAction {
+
+      private static final long serialVersionUID = 1L;
+
+      private final Path directory;
+
+      private final long state;
+
+      Visit(Path directory, long state) {
+        this.directory = directory;
+        this.state = state;
+      }
+
+      @Override
+      protected void compute() {
+        if (cancelled) {
+          return;
+        }
+        visited.incrementAndGet();
+        List<Visit> visits = new ArrayList<>();
+        Set<String> names = pattern.literals(state);
+        if (names != null) {
+          // only named subdirectories can match: no listing
+          for (String name : names) {
+            Path child = directory.resolve(name);
+            if (!".".equals(name) && !"..".equals(name) && Files.isDirectory(child)) {
+              accept(child, name, visits);
+            }
+          }
+        }
+        else {
+          try (DirectoryStream<Path> children = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path child : children) {
+              accept(child, child.getFileName()
+                  .toString(), visits);
+            }
+          }
+          catch (IOException | SecurityException e) {
+            log.debug("Error listing {} : {}", directory, e.getMessage());
+          }
+        }
+        invokeAll(visits);
+      }
+
+      private void accept(Path child, String name, List<Visit> visits) {
+        long next = pattern.next(state, name, Files.isSymbolicLink(child));
+        if (pattern.matches(next)) {
+          emit(child);
+        }
+        if (pattern.isAlive(next)) {
+          visits.add(new Visit(child, next));
+        }
+      }
+    }
+  }
+
+  /**
+   * Compiled pattern: the bit {@code i} of a state is set when the first {@code i} segments of the pattern have been consumed, the pattern
+   * matches when the bit of its length is set.
+   */
+  static final class DirectoryPattern {
+
+    private static final String ANY = "*";
+
+    private static final String ANY_LEVELS = "**";
+
+    private final String source;
+
+    private final String[] segments;
+
+    private DirectoryPattern(String source, String[] segments) {
+      this.source = source;
+      this.segments = segments;
+    }
+
+    static DirectoryPattern compile(String pattern) {
+      List<String> segments = new ArrayList<>();
+      String previous = null;
+      for (String segment : (pattern == null ? "" : pattern).split("/")) {
+        // empty segments are ignored, consecutive ** are a single one
+        if (!segment.isEmpty() && !(ANY_LEVELS.equals(segment) && ANY_LEVELS.equals(previous))) {
+          segments.add(segment);
+          previous = segment;
+        }
+      }
+      if (segments.size() >= Long.SIZE - 1) {
+        throw new IllegalArgumentException("Too many segments in pattern: " + pattern);
+      }
+      return new DirectoryPattern(pattern, segments.toArray(new String[0]));
+    }
+
+    long initialState() {
+      return 1L;
+    }
+
+    boolean matches(long state) {
+      return (state & (1L << segments.length)) != 0;
+    }
+
+    /**
+     * @return {@code true} if the pattern can match subdirectories.
+     */
+    boolean isAlive(long state) {
+      return (state & ((1L << segments.length) - 1)) != 0;
+    }
+
+    /**
+     * @return the names of the only subdirectories able to match, {@code null} if any subdirectory can match.
+     */
+    Set<String> literals(long state) {
+      Set<String> names = new LinkedHashSet<>();
+      for (int i = 0; i < segments.length; i++) {
+        if ((state & (1L << i)) != 0) {
+          if (ANY.equals(segments[i]) || ANY_LEVELS.equals(segments[i])) {
+            return null;
+          }
+          names.add(segments[i]);
+        }
+      }
+      return names;
+    }
+
+    /**
+     * @param state The state of the parent directory.
+     * @param name The name of the subdirectory.
+     * @param link {@code true} if the subdirectory is a symbolic link.
+     * @return the state of the subdirectory.
+     */
+    long next(long state, String name, boolean link) {
+      long next = 0;
+      for (int i = 0; i < segments.length; i++) {
+        if ((state & (1L << i)) == 0) {
+          continue;
+        }
+        if (ANY_LEVELS.equals(segments[i])) {
+          // a link below ** can only be matched, not walked
+          if (!link) {
+            next |= 1L << i | 1L << (i + 1);
+          }
+          else if (i + 1 == segments.length) {
+            next |= 1L << (i + 1);
+          }
+        }
+        else if (ANY.equals(segments[i]) || segments[i].equals(name)) {
+          next |= 1L << (i + 1);
+        }
+      }
+      return next;
+    }
+
+    @Override
+    public String toString() {
+      return source;
+    }
+  }
+
+  /**
+   * Cumulated figures of the walks.
+   */
+  public static class Statistics {
+
+    private final long walks;
+
+    private final long directories;
+
+    private final long matches;
+
+    private final Duration duration;
+
+    Statistics(long walks, long directories, long matches, Duration duration) {
+      this.walks = walks;
+      this.directories = directories;
+      this.matches = matches;
+      this.duration = duration;
+    }
+
+    public long getWalks() {
+      return walks;
+    }
+
+    /**
+     * @return the number of visited directories.
+     */
+    public long getDirectories() {
+      return directories;
+    }
+
+    public long getMatches() {
+      return matches;
+    }
+
+    /**
+     * @return the cumulated duration of the walks.
+     */
+    public Duration getDuration() {
+      return duration;
+    }
+
+    /**
+     * @return the number of visited directories per second.
+     */
+    public double getThroughput() {
+      return duration.isZero() ? 0 : directories * 1e9 / duration.toNanos();
+    }
+
+    @Override
+    public String toString() {
+      return walks + " walks, " + directories + " directories, " + matches + " matches in " + duration.toMillis() + "ms (" +
+          (long) getThroughput() + " dir/s)";
+    }
+  }
+}
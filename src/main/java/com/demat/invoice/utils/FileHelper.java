@@ -2,10 +2,6 @@ package com.demat.invoice.utils;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.tika.config.TikaConfig;
-import org.apache.tika.exception.TikaException;
-import org.apache.tika.io.TikaInputStream;
-import org.apache.tika.metadata.Metadata;
 import org.apache.tools.ant.*;
 import org.apache.tools.ant.filters.*;
 import org.apache.tools.ant.taskdefs.*;
@@ -14,13 +10,9 @@ import org.apache.tools.ant.types.selectors.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.activation.MimetypesFileTypeMap;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -29,10 +21,10 @@ import java.security.InvalidParameterException;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import static com.demat.invoice.beans.FileType.UNKNOWN;
 import static com.demat.invoice.utils.AntHelper.createProject;
 import static java.nio.charset.Charset.defaultCharset;
 import static java.nio.file.Files.*;
@@ -49,7 +41,6 @@ import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
 import static org.apache.commons.lang3.time.DateFormatUtils.format;
-import static org.apache.tika.io.TikaInputStream.get;
 
 /**
  * @author Loic ABEMONTY
@@ -61,38 +52,30 @@ public class FileHelper extends FileUtils {
 
   private static final String READ_RESULT_PROPERTY = "filtered_read_result";
 
-  /** Mime type detection based on Tika */
-  private static TikaConfig tika;
-
   /*
    * ZIP
    */
 
+  /**
+   * Extracts an archive with the shared {@link ZipExtractor}.
+   *
+   * @param zip The archive to extract.
+   * @param destination The destination folder.
+   * @param includePattern The Ant patterns of the entries to extract, {@code null} to extract all the entries.
+   * @return {@code true} if the extraction succeeded.
+   */
   public static final boolean unzip(File zip, File destination, String includePattern) {
     if (zip == null || destination == null) {
       log.error("Impossible to extract " + zip + " archive to: " + destination);
       return false;
     }
 
-    Expand expand = new Expand();
-    expand.setProject(createProject());
-    expand.setTaskName("expand:" + zip.getName());
-    expand.setSrc(zip);
-    expand.setOverwrite(true);
-    expand.setDest(destination);
-
-    if (includePattern != null) {
-      PatternSet pattern = new PatternSet();
-      pattern.setProject(expand.getProject());
-      pattern.setIncludes(includePattern);
-      expand.addPatternset(pattern);
-    }
-
     try {
-      expand.execute();
+      ZipExtractor.getDefault()
+          .extract(zip.toPath(), destination.toPath(), includePattern);
     }
-    catch (BuildException be) {
-      log.error("Error during " + zip + " extraction into " + destination, be);
+    catch (IOException ioe) {
+      log.error("Error during " + zip + " extraction into " + destination, ioe);
       return false;
     }
 
@@ -131,34 +114,19 @@ public class FileHelper extends FileUtils {
   }
 
   /**
+   * Archives the given files with a {@link ZipBuilder}: the entries are compressed in parallel and the already compressed types (PDF,
+   * images, archives) are stored.
+   *
    * @param files to archive
-   * @param zipout output stream
+   * @param zipout output stream, closed once the archive is written
    * @since 3.2
    */
   public static final void zip(final Collection<File> files, OutputStream zipout) {
     if (isEmpty(files) || zipout == null)
       return;
-    try (final ZipOutputStream zos = new ZipOutputStream(zipout)) {
-      for (File file : files) {
-        if (file == null || !file.isFile())
-          continue;
-        ZipEntry entry = new ZipEntry(file.getName());
-        zos.putNextEntry(entry);
-        try (final RandomAccessFile raf = new RandomAccessFile(file, "r");
-            final FileChannel inChannel = raf.getChannel();) { // NOSONAR : double try-catch
-          MappedByteBuffer buffer = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
-          buffer.load();
-          for (int i = 0; i < buffer.limit(); i++) { // NOSONAR : function too deeply
-            zos.write(buffer.get());
-          }
-          buffer.clear();
-        }
-        catch (Exception e) {
-          log.debug("Error getting zip() : {}", getRootCauseMessage(e));
-          log.error("Error writing zip entry: " + file, e);
-        }
-        zos.closeEntry();
-      }
+    try (final OutputStream out = zipout) {
+      new ZipBuilder().addAll(files)
+          .writeTo(out);
     }
     catch (IOException ioe) {
       log.error("Error creating zip", ioe);
@@ -835,32 +803,42 @@ public class FileHelper extends FileUtils {
 
   /**
    * @since COM-64
-   * @see FileHelper#read(File, ChainableReader...)
+   * @see LineReader#head(Path, long, long, java.nio.charset.Charset)
    * @param f file to read.
    * @param lines of lines to be read. Defaults to "10" A negative value means that all lines are passed (useful with skip)
    * @param skip of lines to be skipped (from the beginning). Defaults to "0"
    * @return the last first lines from the file supplied to it.
    */
   public static final String readHead(final File f, long lines, long skip) {
-    HeadFilter hf = new HeadFilter();
-    hf.setLines(lines);
-    hf.setSkip(skip);
-    return read(f, hf);
+    if (f == null || !f.isFile() || !f.canRead())
+      return null;
+    try {
+      return StringUtils.defaultIfEmpty(LineReader.head(f.toPath(), lines, skip, defaultCharset()), null);
+    }
+    catch (IOException e) {
+      log.error("Error reading head of file: " + f, e);
+      return null;
+    }
   }
 
   /**
    * @since COM-64
-   * @see FileHelper#read(File, ChainableReader...)
+   * @see LineReader#tail(Path, long, long, java.nio.charset.Charset)
    * @param f file to read.
    * @param lines Number of lines to be read. Defaults to "10". A negative value means that all lines are passed (useful with skip)
    * @param skip Number of lines to be skipped (from the end). Defaults to "0"
    * @return the last few lines from the file supplied to it.
    */
   public static final String readTail(final File f, long lines, long skip) {
-    TailFilter tf = new TailFilter();
-    tf.setLines(lines);
-    tf.setSkip(skip);
-    return read(f, tf);
+    if (f == null || !f.isFile() || !f.canRead())
+      return null;
+    try {
+      return StringUtils.defaultIfEmpty(LineReader.tail(f.toPath(), lines, skip, defaultCharset()), null);
+    }
+    catch (IOException e) {
+      log.error("Error reading tail of file: " + f, e);
+      return null;
+    }
   }
 
   /**
@@ -870,6 +848,7 @@ public class FileHelper extends FileUtils {
    *          >http://ant.apache.org/manual/CoreTypes/filterchain.html</a>)
    * @return the filtered read string from the given file.
    */
+  // synchronized: the task runs on the shared Ant project and its result goes through a fixed project property
   public synchronized static final String read(final File f, final ChainableReader... filters) {
     if (f == null || !f.isFile() || !f.canRead() || filters == null)
       return null;
@@ -904,7 +883,7 @@ public class FileHelper extends FileUtils {
       return 0l;
 
     try {
-      return lines(f.toPath()).count();
+      return LineCounter.count(f.toPath());
     }
     catch (SecurityException | IOException e) {
       log.error("Error counting line for file: " + f, e);
@@ -930,87 +909,12 @@ public class FileHelper extends FileUtils {
   /**
    * @param path to check
    * @return the content type of the given path
+   * @see ContentTypeDetector
    * @since 2.5 COM-93
    */
   public static final String getContentType(final Path path) {
-    String mime = null;
-    if (path == null || !Files.isRegularFile(path))
-      return mime;
-
-    // Tika detection
-    final Metadata metadata = new Metadata();
-    try (final TikaInputStream input = get(path, metadata)) {
-      mime = getTika()
-          .getDetector()
-          .detect(input, metadata)
-          .getBaseType()
-          .toString();
-      if (mime != null)
-        return mime;
-    }
-    catch (Exception ignored) {
-      log.debug("Content type not found using Tika: {} ({})",
-          path, getRootCauseMessage(ignored));
-    }
-
-    // URL detection
-    URLConnection connection = null;
-    try {
-      connection = path.toUri()
-          .toURL()
-          .openConnection();
-      mime = connection.getContentType();
-      if (isNotBlank(mime) &&
-          !UNKNOWN.getDefaultMime()
-              .equals(mime)) {
-        return mime;
-      }
-    }
-    catch (Exception ignored) {
-      log.debug("Content type not found using URL connection: {} ({})",
-          path, getRootCauseMessage(ignored));
-    }
-    finally {
-      if (connection != null) {
-        try {
-          close(connection);
-          closeQuietly(connection.getInputStream());
-        }
-        catch (IOException ignored) {
-          log.trace("Error closing URL connection on: " + path, ignored);
-        }
-      }
-    }
-
-    // NIO detection
-    try {
-      mime = probeContentType(path);
-      if (isNotBlank(mime))
-        return mime;
-    }
-    catch (Exception ignored) {
-      log.debug("Content type not found using NIO: {} ({})",
-          path, getRootCauseMessage(ignored));
-    }
-
-    // Activation detection
-    try {
-      return MimetypesFileTypeMap
-          .getDefaultFileTypeMap()
-          .getContentType(path.toFile());
-    }
-    catch (Exception ignored) {
-      log.debug("Content type not found using Activation: {} ({})",
-          path, getRootCauseMessage(ignored));
-    }
-
-    return null;
-  }
-
-  private static TikaConfig getTika() throws TikaException, IOException {
-    if (tika == null)
-      tika = new TikaConfig();
-    return tika;
+    return ContentTypeDetector.getDefault()
+        .detect(path);
   }
 
   /**
@@ -1021,6 +925,7 @@ public class FileHelper extends FileUtils {
    * @param path
    * @return
    * @throws IOException
+   * @see ModifiedTimeIndex to follow a tree without walking it on each call
    */
   public static final FileTime getLatestModifiedTime(Path path) throws IOException {
     LatestModifiedTimeFileVisitor visitor = new LatestModifiedTimeFileVisitor();
@@ -1055,64 +960,15 @@ public class FileHelper extends FileUtils {
    *          subdirectories of curent folder
    * @return
    * @throws IOException
+   * @see DirectoryWalker
    */
   public static List<File> getDirectoriesByPattern(String basePath, String subdirectories) throws IOException {
-    Predicate<? super Path> predicate = Files::isDirectory;
-    List<File> currentFolders = new ArrayList<>();
-    currentFolders.add(new File(basePath));
-    if (StringUtils.isNotEmpty(subdirectories)) {
-      String[] directories = subdirectories.split("/");
-      for (int i = 0; i < directories.length; i++) {
-        String director = directories[i];
-        if ("*".equals(director)) {
-          currentFolders = getAllFilesByType(currentFolders, 0, predicate);
-          if (currentFolders.isEmpty()) {
-            log.error("The folder " + director + " has no subdirectories");
-            return emptyList();
-          }
-        }
-        else if ("**".equals(director)) {
-          String[] lastDirectories;
-          if (i == directories.length - 1) {
-            lastDirectories = new String[0];
-          }
-          else {
-            lastDirectories = Arrays.copyOfRange(directories, i + 1, directories.length);
-          }
-          return getAllSubfoldersFilteredByPattern(currentFolders, lastDirectories);
-
-        }
-        else {
-          currentFolders = Optional.ofNullable(currentFolders)
-              .orElseGet(() -> new ArrayList<>())
-              .stream()
-              .flatMap(file -> {
-                try {
-                  return Files.walk(file
-                      .toPath(), 1)
-                      .filter(p -> Files.isDirectory(p))
-                      .filter(p -> p.toFile()
-                          .compareTo(file) != 0)
-                      .filter(p -> director.equals(p.getFileName()
-                          .toString()))
-                      .map(p -> p.toFile());
-                }
-                catch (IOException e) {
-                  return null;
-                }
-              })
-              .collect(Collectors.toList());
-          if (currentFolders.isEmpty()) {
-            log.info("The folder " + director + " does not exist in current path");
-            return emptyList();
-          }
-        }
-      }
-      return currentFolders;
+    String pattern = StringUtils.isNotEmpty(subdirectories) ? subdirectories : "*";
+    List<File> directories = findDirectories(Paths.get(basePath), pattern);
+    if (directories.isEmpty()) {
+      log.info("No folder matching {} in {}", pattern, basePath);
     }
-
-    return getAllFilesByType(currentFolders, 0, predicate);
-
+    return directories;
   }
 
   /**
@@ -1124,63 +980,25 @@ public class FileHelper extends FileUtils {
       throw new InvalidParameterException("Value of iterations argument must be between 0 and 10");
     }
     List<File> directories = Optional.ofNullable(files)
-        .orElseGet(() -> new ArrayList<>())
-        .stream()
-        .flatMap(file -> {
-          try {
-            return Files.list(Paths.get(file.getAbsolutePath()))
-                .filter(predicate);
-          }
-          catch (IOException e) {
-            return null;
-          }
-        })
-        .map(path -> path.toFile())
-        .collect(Collectors.toList());
-
-    if (iterations == 0)
-      return directories;
-    else return getAllFilesByType(directories, iterations - 1, predicate);
-
+        .orElseGet(() -> new ArrayList<>());
+    for (int i = 0; i <= iterations; i++) {
+      directories = directories.stream()
+          .flatMap(file -> list(file.toPath()))
+          .filter(predicate)
+          .map(Path::toFile)
+          .collect(Collectors.toList());
+    }
+    return directories;
   }
 
   public static List<File> getAllSubfoldersFilteredByPattern(List<File> startPath, String[] endPath) {
-    int noOfDirectories = startPath.get(0)
-        .toPath()
-        .getNameCount();
-    List<File> resultFolders = Optional.ofNullable(startPath)
+    String pattern = Stream.concat(Stream.of("**"), stream(endPath))
+        .collect(Collectors.joining("/"));
+    return Optional.ofNullable(startPath)
         .orElseGet(() -> new ArrayList<>())
         .stream()
-        .flatMap(file -> {
-          try {
-            return Files.walk(file
-                .toPath(), 20)
-                .filter(p -> Files.isDirectory(p))
-                .filter(p -> p.compareTo(file.toPath()) != 0)
-                .filter(p -> p.getNameCount() > noOfDirectories + endPath.length)
-                .filter(p -> {
-                  Path currentFolder = p;
-                  for (int i = endPath.length - 1; i >= 0; i--) {
-                    String nameOfFolder = currentFolder.getFileName()
-                        .toString();
-                    if (!nameOfFolder
-                        .equals(endPath[i]) && !("*").equals(endPath[i]))
-                      return false;
-                    else {
-                      currentFolder = currentFolder.getParent();
-                    }
-                  }
-                  return true;
-                })
-                .map(p -> p.toFile());
-          }
-          catch (IOException e) {
-            return null;
-          }
-        })
+        .flatMap(file -> findDirectories(file.toPath(), pattern).stream())
         .collect(Collectors.toList());
-
-    return resultFolders;
   }
 
   /**
@@ -1194,13 +1012,27 @@ public class FileHelper extends FileUtils {
     if (directory == null || !directory.isDirectory()) {
       return emptyList();
     }
-    List<File> subdirs = Arrays.asList(directory.listFiles(File::isDirectory));
-    subdirs = new ArrayList<File>(subdirs);
-    List<File> deepSubdirs = new ArrayList<File>();
-    for (File subdir : subdirs) {
-      deepSubdirs.addAll(findAllSubdirs(subdir));
+    return findDirectories(directory.toPath(), "**");
+  }
+
+  private static List<File> findDirectories(Path base, String pattern) {
+    try (Stream<Path> directories = DirectoryWalker.getDefault()
+        .find(base, pattern)) {
+      return directories.map(Path::toFile)
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * @return the entries of the directory, empty if it cannot be listed.
+   */
+  private static Stream<Path> list(Path directory) {
+    try {
+      return Files.list(directory);
+    }
+    catch (IOException e) {
+      log.debug("Error listing {} : {}", directory, getRootCauseMessage(e));
+      return Stream.empty();
     }
-    subdirs.addAll(deepSubdirs);
-    return subdirs;
   }
 }
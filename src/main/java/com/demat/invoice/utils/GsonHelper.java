@@ -6,8 +6,6 @@ import com.google.gson.stream.JsonWriter;
 import com.demat.invoice.annotation.Exclude;
 import org.apache.commons.lang3.ClassUtils;
 import org.slf4j.Logger;
-import org.springframework.beans.factory.NoSuchBeanDefinitionException;
-import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
 
 import java.io.*;
 import java.lang.reflect.ParameterizedType;
@@ -16,6 +14,8 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.stream.Stream;
+
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.collections4.MapUtils.isNotEmpty;
 import static java.text.DateFormat.DEFAULT;
@@ -35,17 +35,6 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class GsonHelper {
   private static final Logger log = getLogger(GsonHelper.class);
 
-  /**
-   * Default Gson instance
-   *
-   * @see #createGson(double, ExclusionStrategy...)
-   * @see #getGson()
-   */
-  private static Gson gson;
-
-  /** Contextual provided GSon adapters */
-  private static Map<Class<?>, GsonAdapter<?>> gsonAdapaters;
-
   // GSON TYPES
   public static final Type TYPE_MAP = new TypeToken<Map<String, String>>() {
   }.getType();
@@ -63,14 +52,10 @@ public class GsonHelper {
    * @see #createGson(double, ExclusionStrategy...)
    */
   public static Gson getGson() {
-    // creates the default GSon instance on the first call or
-    // if the application context has been initialized since
-    // the first call (to retrieve the contextual GSon adapters)
-    if (gson == null ||
-        (gsonAdapaters == null))
-      gson = createGson(0d);
-    return gson;
+    return GsonRegistry.getInstance()
+        .get(0d, false);
   }
+
   public static Gson getGsonSerializeNulls() {
     return createGsonSerializeNulls(0d);
   }
@@ -79,15 +64,17 @@ public class GsonHelper {
    * This method registers the {@link GsonAdapter} found in the spring context thru the {@link GsonAdapterProvider} definition.
    *
    * @param version
-   * @param exclusions
-   * @return brand new {@link Gson} instance.
+   * @param exclusions the exclusion strategies, to be reused by the caller (or implementing {@code equals}) to share an instance.
+   * @return the {@link Gson} instance shared by the {@link GsonRegistry} for the given version and exclusion strategies.
    */
   public static final Gson createGson(final double version, final ExclusionStrategy... exclusions) {
-    return createGson(version, null, false, exclusions);
+    return GsonRegistry.getInstance()
+        .get(version, false, exclusions);
   }
 
   public static final Gson createGsonSerializeNulls(final double version, final ExclusionStrategy... exclusions) {
-    return createGson(version, null, true, exclusions);
+    return GsonRegistry.getInstance()
+        .get(version, true, exclusions);
   }
 
   /**
@@ -96,9 +83,21 @@ public class GsonHelper {
    * @param version
    * @param typeAdaptors
    * @param exclusions
+   * @return brand new {@link Gson} instance if type adaptors are given, the {@link Gson} instance shared by the {@link GsonRegistry}
+   *         otherwise.
+   */
+  public static final Gson createGson(final double version, final Map<Object, Class<?>> typeAdaptors, boolean serializeNulls,
+      final ExclusionStrategy... exclusions) {
+    return isNotEmpty(typeAdaptors)
+        ? buildGson(version, typeAdaptors, serializeNulls, exclusions)
+        : GsonRegistry.getInstance()
+            .get(version, serializeNulls, exclusions);
+  }
+
+  /**
    * @return brand new {@link Gson} instance.
    */
-  public static final Gson createGson(final double version, final Map<Object, Class<?>> typeAdaptors,boolean serializeNulls,
+  static final Gson buildGson(final double version, final Map<Object, Class<?>> typeAdaptors, boolean serializeNulls,
       final ExclusionStrategy... exclusions) {
     final GsonBuilder r = new GsonBuilder()
         // TODO sets the following commented parameters as method parameters
@@ -123,7 +122,9 @@ public class GsonHelper {
       for (Entry<Object, Class<?>> e : typeAdaptors.entrySet())
       r.registerTypeAdapter(e.getValue(), e.getKey());
     // Provided (spring context)
-    for (Entry<Class<?>, GsonAdapter<?>> e : getGsonAdapters().entrySet())
+    for (Entry<Class<?>, GsonAdapter<?>> e : GsonRegistry.getInstance()
+        .getAdapters()
+        .entrySet())
       r.registerTypeHierarchyAdapter(e.getKey(), e.getValue());
 
     // - EXCLUSIONS -
@@ -135,35 +136,6 @@ public class GsonHelper {
     return r.create();
   }
 
-  private static final Map<Class<?>, GsonAdapter<?>> getGsonAdapters() {
-    if (gsonAdapaters == null) {
-      // looking for GsonAdapterProviders in the context
-      GsonAdapterProvider provider;
-      try {
-        // single provider
-        provider = SpringContextHelper.getBean(GsonAdapterProvider.class);
-      }
-      catch (NoUniqueBeanDefinitionException nubde) {
-        log.debug("Error getting getGsonAdapters multi provider: {}", getRootCauseMessage(nubde));
-        // multiple providers
-        provider = new GsonAdapterProvider();
-        final Map<String, GsonAdapterProvider> adapters = SpringContextHelper
-            .getBeanOfType(GsonAdapterProvider.class);
-        for (GsonAdapterProvider adapter : adapters.values())
-          provider.getAdapters()
-              .putAll(adapter.getAdapters());
-      }
-      catch (NoSuchBeanDefinitionException nsbde) {
-        log.debug("Error getting getGsonAdapters no provider: {}", getRootCauseMessage(nsbde));
-        // no provider
-        provider = new GsonAdapterProvider();
-      }
-      gsonAdapaters = provider.getAdapters();
-      log.debug("Provided GSon Adapters: {}", gsonAdapaters.toString());
-    }
-    return gsonAdapaters;
-  }
-
   /*
    * PREDIFINED EXCLUSIONs
    */
@@ -478,18 +450,35 @@ public class GsonHelper {
     }
   }
 
-  @SuppressWarnings("unchecked")
+  /**
+   * @param json type wrapped list, as written by {@link #toTypeWrappedJsonList(Collection)} or {@link #toTypeWrappedJsonList(Iterable, Writer)}
+   * @param gson the Gson instance reading the values
+   * @return the list of the read elements
+   * @see TypeWrappedJsonCodec
+   */
   public static final <T> List<T> fromTypeWrappedJsonList(final Reader json, final Gson gson) {
-    final List<String> wraps = gson.fromJson(json, TYPE_LIST);
-    final List<T> r = new ArrayList<>(wraps.size());
-    for (String wrap : wraps)
-      try (final StringReader reader = new StringReader(wrap)) {
-        r.add((T) fromTypeWrappedJson(reader, gson));
-      }
-      catch (Exception e) {
-        log.error("Error reading Json element: {} ({})", wrap, getRootCauseMessage(e));
-      }
-    return r;
+    return new TypeWrappedJsonCodec(gson).readList(json);
+  }
+
+  // - STREAMING -
+  /**
+   * Writes the type wrapped objects one at a time, as a JSON array of objects.
+   *
+   * @param objects to write
+   * @param writer receiving the JSON (not closed)
+   * @see TypeWrappedJsonCodec
+   */
+  public static final void toTypeWrappedJsonList(final Iterable<?> objects, final Writer writer) throws IOException {
+    new TypeWrappedJsonCodec(getGson()).write(objects, null, writer);
+  }
+
+  /**
+   * @param json type wrapped list, in the streaming or in the string wrapped format (closed with the returned stream)
+   * @return the elements of the list, read one at a time when consumed
+   * @see TypeWrappedJsonCodec
+   */
+  public static final <T> Stream<T> fromTypeWrappedJsonStream(final Reader json) {
+    return new TypeWrappedJsonCodec(getGson()).read(json);
   }
 
   public static final <T> T[] fromTypeWrappedJsonArray(final String json) {
@@ -522,21 +511,22 @@ public class GsonHelper {
    */
 
   /**
-   * @param object to JSon clone
-   * @return the clone of the given object based on GSon serialization and de-serialization of the object's type.
+   * @param object to clone
+   * @return the deep copy of the given object, the types not supported by the {@link DeepCopier} being cloned by GSon serialization and
+   *         de-serialization.
    * @since 3.2
    */
-  @SuppressWarnings("unchecked")
   public static final <T> T clone(final T object) throws CloneNotSupportedException {
     if (object == null)
       return null;
     try {
-      return (T) getGson().fromJson(getGson().toJson(object), object.getClass());
+      return DeepCopier.getDefault()
+          .copy(object);
     }
-    catch (Exception e) {
+    catch (CloneNotSupportedException e) {
       log.debug("Error getting clone() : {}", getRootCauseMessage(e));
-      log.error("Error JSon cloning: {} ({})", object, e.getMessage());
-      throw new CloneNotSupportedException("Error JSon cloning: " + object);
+      log.error("Error cloning: {} ({})", object, getRootCauseMessage(e));
+      throw e;
     }
   }
 
@@ -567,18 +557,15 @@ public class GsonHelper {
 
   /**
    * @param sequence to check
-   * @return <code>true</code> if the given string can be parsed by the default {@link #getGson()} to a {@link JsonElement}. Note: if the
-   *         given string is <code>null</code>, empty or a {@link JsonPrimitive}, <code>false</code> will be returned.
+   * @return <code>true</code> if the given string is a JSon object or array, validated by the default {@link JsonValidator} without
+   *         building the {@link JsonElement}. Note: if the given string is <code>null</code>, empty, a {@link JsonPrimitive}, or goes
+   *         beyond the validator's depth or length limits, <code>false</code> will be returned.
    */
   public static final boolean isJson(CharSequence sequence) {
-    try {
-      final JsonElement je = getGson().fromJson(sequence.toString(), JsonElement.class);
-      return !je.isJsonPrimitive() && !je.isJsonNull();
-    }
-    catch (NullPointerException | JsonSyntaxException e) {
-      log.trace("{} is not a valid JSon ({})", sequence, getRootCauseMessage(e));
-      return false;
-    }
+    final JsonValidator.Result result = JsonValidator.getDefault()
+        .validate(sequence);
+    log.trace("{} JSon validation: {}", sequence, result);
+    return result.isStructure();
   }
 
 }
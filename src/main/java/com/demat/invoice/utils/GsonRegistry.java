@@ -0,0 +1,252 @@
+package com.demat.invoice.utils;
+
+import com.demat.invoice.utils.GsonHelper.GsonAdapter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Shared {@link Gson} instances of {@link GsonHelper}, one per version, null serialization and exclusion strategies. A {@link Gson} being
+ * immutable and thread safe, an instance is built once and then shared by all the threads.
+ * <p>
+ * The instances register the {@link GsonAdapter}s provided by the Spring context ({@link GsonAdapterProvider}): they are dropped when the
+ * context is refreshed ({@link GsonRegistryListener}) to be built again with the adapters of the new context. Instances built while the
+ * context cannot provide its adapters (starting or closed) register none until the next refresh.
+ * <p>
+ * The instances are keyed by their exclusion strategies, compared with their {@code equals}: the callers should reuse their strategy
+ * instances (or implement {@code equals}) to share a {@link Gson}. The registry keeps at most {@link #MAX_INSTANCES} instances, the least
+ * recently used ones being dropped, so a caller creating new strategies on each call gets a new {@link Gson} each time (counted by
+ * {@code gson.instances.built}) without filling the memory.
+ */
+public final class GsonRegistry implements MeterBinder {
+  private static final Logger log = getLogger(GsonRegistry.class);
+
+  private static final GsonRegistry INSTANCE = new GsonRegistry();
+
+  /** Maximum number of shared instances */
+  static final int MAX_INSTANCES = 256;
+
+  /** Instances built with the current adapters, replaced on refresh */
+  private volatile Cache<Key, Gson> instances = newInstances();
+
+  /** Contextual provided GSon adapters, loaded on first use */
+  private volatile Map<Class<?>, GsonAdapter<?>> adapters;
+
+  /** Copier of the default instance, built on first use */
+  private volatile DeepCopier copier;
+
+  private final AtomicLong builds = new AtomicLong();
+
+  private final AtomicLong refreshes = new AtomicLong();
+
+  private GsonRegistry() {
+  }
+
+  public static GsonRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param version the version of the serialized types
+   * @param serializeNulls serializes the <code>null</code> fields
+   * @param exclusions the exclusion strategies, in addition to the default ones
+   * @return the shared instance for the given parameters
+   */
+  public Gson get(final double version, final boolean serializeNulls, final ExclusionStrategy... exclusions) {
+    final Cache<Key, Gson> current = instances;
+    final Key key = new Key(version, serializeNulls, exclusions);
+    Gson gson = current.getIfPresent(key);
+    if (gson == null) {
+      // built outside of the cache: a build may look up Spring beans using the registry
+      final Gson built = GsonHelper.buildGson(version, null, serializeNulls, exclusions);
+      gson = current.asMap()
+          .putIfAbsent(key, built);
+      if (gson == null) {
+        gson = built;
+        builds.incrementAndGet();
+        log.debug("GSon instance built for {}", key);
+      }
+    }
+    return gson;
+  }
+
+  /**
+   * @return the adapters provided by the Spring context
+   */
+  Map<Class<?>, GsonAdapter<?>> getAdapters() {
+    Map<Class<?>, GsonAdapter<?>> r = adapters;
+    if (r == null) {
+      synchronized (this) {
+        r = adapters;
+        if (r == null) {
+          r = adapters = loadAdapters();
+        }
+      }
+    }
+    return r;
+  }
+
+  /**
+   * @return the copier of the default instance, copying the types of the contextual adapters by JSON round trip.
+   */
+  DeepCopier getCopier() {
+    DeepCopier r = copier;
+    if (r == null) {
+      final Map<Class<?>, GsonAdapter<?>> adaptersSnapshot = getAdapters();
+      r = new DeepCopier(get(0d, false), adaptersSnapshot.keySet());
+      synchronized (this) {
+        // not published if refreshed meanwhile
+        if (copier == null && adapters == adaptersSnapshot)
+          copier = r;
+      }
+    }
+    return r;
+  }
+
+  /**
+   * Drops the instances, the adapters and the copier, built again on the next request.
+   */
+  public void refresh() {
+    synchronized (this) {
+      adapters = null;
+      copier = null;
+      instances = newInstances();
+    }
+    refreshes.incrementAndGet();
+    log.debug("GSon instances cleared");
+  }
+
+  /**
+   * @return the number of shared instances
+   */
+  public int size() {
+    return (int) instances.estimatedSize();
+  }
+
+  /**
+   * @return the number of instances built since the start
+   */
+  public long getBuilds() {
+    return builds.get();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("gson.instances", this, GsonRegistry::size)
+        .description("Shared GSon instances")
+        .register(registry);
+    FunctionCounter.builder("gson.instances.built", builds, AtomicLong::get)
+        .description("GSon instances built since the start")
+        .register(registry);
+    FunctionCounter.builder("gson.registry.refreshes", refreshes, AtomicLong::get)
+        .description("Refreshes of the GSon instances on Spring context events")
+        .register(registry);
+  }
+
+  private static Cache<Key, Gson> newInstances() {
+    // evicted on the calling thread, the instances being cheap to drop
+    return Caffeine.newBuilder()
+        .maximumSize(MAX_INSTANCES)
+        .executor(Runnable::run)
+        .build();
+  }
+
+  private static Map<Class<?>, GsonAdapter<?>> loadAdapters() {
+    GsonAdapterProvider provider;
+    try {
+      provider = getProvider();
+    }
+    catch (NoSuchBeanDefinitionException nsbde) {
+      log.debug("Error getting getGsonAdapters no provider: {}", getRootCauseMessage(nsbde));
+      // no provider
+      provider = null;
+    }
+    catch (BeansException | IllegalStateException e) {
+      // context starting or closed: no adapters until the next refresh
+      log.warn("Error getting getGsonAdapters provider: {}", getRootCauseMessage(e));
+      provider = null;
+    }
+    // no context yet
+    final Map<Class<?>, GsonAdapter<?>> r = provider == null
+        ? Collections.emptyMap()
+        : Collections.unmodifiableMap(new HashMap<>(provider.getAdapters()));
+    log.debug("Provided GSon Adapters: {}", r);
+    return r;
+  }
+
+  /**
+   * @return the {@link GsonAdapterProvider} of the context, merging the adapters of several providers
+   */
+  private static GsonAdapterProvider getProvider() {
+    // looking for GsonAdapterProviders in the context
+    try {
+      // single provider
+      return SpringContextHelper.getBean(GsonAdapterProvider.class);
+    }
+    catch (NoUniqueBeanDefinitionException nubde) {
+      log.debug("Error getting getGsonAdapters multi provider: {}", getRootCauseMessage(nubde));
+      // multiple providers
+      final GsonAdapterProvider provider = new GsonAdapterProvider();
+      final Map<String, GsonAdapterProvider> providers = SpringContextHelper
+          .getBeanOfType(GsonAdapterProvider.class);
+      for (GsonAdapterProvider adapter : providers.values())
+        provider.getAdapters()
+            .putAll(adapter.getAdapters());
+      return provider;
+    }
+  }
+
+  private static final class Key {
+    private final double version;
+    private final boolean serializeNulls;
+    private final List<ExclusionStrategy> exclusions;
+
+    Key(double version, boolean serializeNulls, ExclusionStrategy... exclusions) {
+      this.version = version;
+      this.serializeNulls = serializeNulls;
+      this.exclusions = exclusions == null
+          ? Collections.emptyList()
+          : Arrays.asList(exclusions.clone());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof Key))
+        return false;
+      Key key = (Key) o;
+      return Double.compare(version, key.version) == 0 && serializeNulls == key.serializeNulls && exclusions.equals(key.exclusions);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(version, serializeNulls, exclusions);
+    }
+
+    @Override
+    public String toString() {
+      return "[version=" + version + ", serializeNulls=" + serializeNulls + ", exclusions=" + exclusions + "]";
+    }
+  }
+}
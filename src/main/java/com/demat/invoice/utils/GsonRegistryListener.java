@@ -0,0 +1,25 @@
+package com.demat.invoice.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refreshes the {@link GsonRegistry} when the Spring context is refreshed, so the shared GSon instances register the
+ * {@link GsonAdapterProvider adapters} of the current context, and publishes its metrics.
+ */
+@Component
+public class GsonRegistryListener implements ApplicationListener<ContextRefreshedEvent> {
+
+  public GsonRegistryListener(ObjectProvider<MeterRegistry> meterRegistry) {
+    meterRegistry.ifAvailable(GsonRegistry.getInstance()::bindTo);
+  }
+
+  @Override
+  public void onApplicationEvent(ContextRefreshedEvent event) {
+    GsonRegistry.getInstance()
+        .refresh();
+  }
+}
@@ -0,0 +1,182 @@
+package com.demat.invoice.utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.apache.commons.io.input.CharSequenceReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Structural validation of a JSON document, streamed on a {@link JsonReader}: the tokens are checked and skipped, the strings are never
+ * decoded and no tree is built. The validation stops as soon as the document goes deeper or longer than the limits of the validator.
+ * <p>
+ * The document is read leniently, as by {@link com.google.gson.Gson#fromJson(Reader, Class)}, and must hold a single value.
+ */
+public class JsonValidator {
+
+  private static final Logger log = LoggerFactory.getLogger(JsonValidator.class);
+
+  public static final int DEFAULT_MAX_DEPTH = 256;
+
+  public static final long DEFAULT_MAX_LENGTH = 32L * 1024 * 1024;
+
+  private static final JsonValidator DEFAULT = new JsonValidator(DEFAULT_MAX_DEPTH, DEFAULT_MAX_LENGTH);
+
+  public enum Result {
+    /** Valid document holding an object */
+    OBJECT,
+    /** Valid document holding an array */
+    ARRAY,
+    /** Valid document holding a primitive or null */
+    VALUE,
+    /** Empty, truncated or malformed document */
+    MALFORMED,
+    /** Document nested deeper than the maximum depth */
+    TOO_DEEP,
+    /** Document longer than the maximum length */
+    TOO_LARGE;
+
+    /**
+     * @return <code>true</code> if the document is an object or an array.
+     */
+    public boolean isStructure() {
+      return this == OBJECT || this == ARRAY;
+    }
+  }
+
+  private final int maxDepth;
+
+  private final long maxLength;
+
+  /**
+   * @param maxDepth The maximum nesting of the objects and arrays, the top-level structure being at depth 1.
+   * @param maxLength The maximum number of characters of the document.
+   */
+  public JsonValidator(int maxDepth, long maxLength) {
+    this.maxDepth = maxDepth;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * @return the validator with the default limits ({@value #DEFAULT_MAX_DEPTH} levels, {@value #DEFAULT_MAX_LENGTH} characters).
+   */
+  public static JsonValidator getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @param sequence The document to validate.
+   * @return the result of the validation, {@link Result#MALFORMED} if the sequence is <code>null</code>.
+   */
+  public Result validate(CharSequence sequence) {
+    if (sequence == null)
+      return Result.MALFORMED;
+    if (sequence.length() > maxLength)
+      return Result.TOO_LARGE;
+    try (Reader reader = new CharSequenceReader(sequence)) {
+      return validate(new JsonReader(reader));
+    }
+    catch (IOException e) {
+      // not thrown by a char sequence
+      return Result.MALFORMED;
+    }
+  }
+
+  /**
+   * @param reader The document to validate, not closed.
+   * @return the result of the validation.
+   * @throws IOException if the document cannot be read.
+   */
+  public Result validate(Reader reader) throws IOException {
+    return validate(new JsonReader(new LimitedReader(reader, maxLength)));
+  }
+
+  private Result validate(JsonReader in) throws IOException {
+    in.setLenient(true);
+    try {
+      final JsonToken top = in.peek();
+      if (top == JsonToken.END_DOCUMENT)
+        return Result.MALFORMED;
+      int depth = 0;
+      do {
+        switch (in.peek()) {
+          case BEGIN_OBJECT:
+            if (++depth > maxDepth)
+              return Result.TOO_DEEP;
+            in.beginObject();
+            break;
+          case BEGIN_ARRAY:
+            if (++depth > maxDepth)
+              return Result.TOO_DEEP;
+            in.beginArray();
+            break;
+          case END_OBJECT:
+            depth--;
+            in.endObject();
+            break;
+          case END_ARRAY:
+            depth--;
+            in.endArray();
+            break;
+          case NAME:
+            in.nextName();
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      while (depth > 0);
+      // single value
+      if (in.peek() != JsonToken.END_DOCUMENT)
+        return Result.MALFORMED;
+      return top == JsonToken.BEGIN_OBJECT ? Result.OBJECT : top == JsonToken.BEGIN_ARRAY ? Result.ARRAY : Result.VALUE;
+    }
+    catch (LengthExceededException e) {
+      return Result.TOO_LARGE;
+    }
+    catch (MalformedJsonException | EOFException | NumberFormatException e) {
+      // number format: invalid unicode escape
+      log.trace("Malformed JSon: {}", e.getMessage());
+      return Result.MALFORMED;
+    }
+  }
+
+  /**
+   * Reader failing once more than the maximum number of characters are read.
+   */
+  private static final class LimitedReader extends FilterReader {
+    private long remaining;
+
+    LimitedReader(Reader in, long maxLength) {
+      super(in);
+      this.remaining = maxLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int c = super.read();
+      if (c >= 0 && --remaining < 0)
+        throw new LengthExceededException();
+      return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      final int n = super.read(cbuf, off, len);
+      if (n > 0 && (remaining -= n) < 0)
+        throw new LengthExceededException();
+      return n;
+    }
+  }
+
+  private static final class LengthExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+  }
+}
@@ -0,0 +1,148 @@
+package com.demat.invoice.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Counts the lines of a text file on its raw bytes, without decoding it. The file is memory mapped by chunks and the line terminators are
+ * searched eight bytes at a time; the chunks of the large files are counted in parallel.
+ * <p>
+ * The lines are counted like {@link java.io.BufferedReader#readLine()} does: a line ends with {@code \n}, {@code \r} or {@code \r\n} and
+ * a last line without terminator counts. The count is exact for the charsets encoding these terminators as single bytes (ASCII,
+ * ISO-8859-*, UTF-8...).
+ */
+public final class LineCounter {
+
+  private static final int CHUNK_SIZE = 32 * 1024 * 1024;
+
+  private static final byte LF = '\n';
+
+  private static final byte CR = '\r';
+
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+  private static final long LF_BYTES = 0x0A0A0A0A0A0A0A0AL;
+
+  private static final long CR_BYTES = 0x0D0D0D0D0D0D0D0DL;
+
+  private LineCounter() {
+  }
+
+  /**
+   * @param file The file to count the lines of.
+   * @return the number of lines of the file.
+   * @throws IOException if the file cannot be read.
+   */
+  public static long count(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size == 0) {
+        return 0;
+      }
+      int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+      IntStream indexes = IntStream.range(0, chunks);
+      if (chunks > 1) {
+        indexes = indexes.parallel();
+      }
+      List<Chunk> counts = indexes.mapToObj(index -> {
+        long position = (long) index * CHUNK_SIZE;
+        return count(channel, position, Math.min(CHUNK_SIZE, size - position));
+      })
+          .collect(toList());
+
+      long lines = 0;
+      Chunk previous = null;
+      for (Chunk chunk : counts) {
+        lines += chunk.lf + chunk.cr - chunk.crlf;
+        // \r\n split between two chunks
+        if (previous != null && previous.last == CR && chunk.first == LF) {
+          lines--;
+        }
+        previous = chunk;
+      }
+      // last line without terminator
+      if (previous.last != LF && previous.last != CR) {
+        lines++;
+      }
+      return lines;
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static Chunk count(FileChannel channel, long position, long length) {
+    MappedByteBuffer buffer;
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    Chunk chunk = new Chunk();
+    int limit = buffer.limit();
+    int words = limit & ~7;
+    // 1 if the previous byte was \r
+    long carry = 0;
+    for (int i = 0; i < words; i += 8) {
+      long word = buffer.getLong(i);
+      long lf = zeroBytes(word ^ LF_BYTES);
+      long cr = zeroBytes(word ^ CR_BYTES);
+      if ((lf | cr) != 0) {
+        chunk.lf += Long.bitCount(lf);
+        chunk.cr += Long.bitCount(cr);
+        // \r followed by \n in the word, then across the previous word
+        chunk.crlf += Long.bitCount((cr << 8) & lf);
+        if (carry != 0 && (lf & 0x80L) != 0) {
+          chunk.crlf++;
+        }
+      }
+      carry = cr >>> 63;
+    }
+    for (int i = words; i < limit; i++) {
+      byte b = buffer.get(i);
+      if (b == LF) {
+        chunk.lf++;
+        chunk.crlf += carry;
+      }
+      else if (b == CR) {
+        chunk.cr++;
+      }
+      carry = b == CR ? 1 : 0;
+    }
+    chunk.first = buffer.get(0);
+    chunk.last = buffer.get(limit - 1);
+    return chunk;
+  }
+
+  /**
+   * @return the word with the high bit set in each of its zero bytes, the other bits cleared.
+   */
+  private static long zeroBytes(long word) {
+    return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+  }
+
+  private static final class Chunk {
+
+    private long lf;
+
+    private long cr;
+
+    private long crlf;
+
+    private byte first;
+
+    private byte last;
+  }
+}
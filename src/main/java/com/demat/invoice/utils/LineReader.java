@@ -0,0 +1,238 @@
+package com.demat.invoice.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Reads the first or last lines of a text file without loading the whole file. The lines are split like the Ant head and tail filters
+ * do: a line ends with {@code \n}, {@code \r} or {@code \r\n}, and the returned lines keep their terminators.
+ * <p>
+ * For the charsets encoding {@code \r} and {@code \n} as the single bytes {@code 0x0D} and {@code 0x0A} (ASCII, ISO-8859-*, UTF-8...) the
+ * line breaks are located on the raw bytes: the head reads the file from the start until the requested lines are found, the tail reads it backwards from the end
+ * through a {@link SeekableByteChannel}, then only the selected bytes are decoded. Other charsets (UTF-16...) are decoded while reading.
+ */
+public final class LineReader {
+
+  private static final int BLOCK_SIZE = 8 * 1024;
+
+  private static final byte LF = '\n';
+
+  private static final byte CR = '\r';
+
+  private LineReader() {
+  }
+
+  /**
+   * @param file The file to read.
+   * @param lines The number of lines to read, all the lines if negative or zero.
+   * @param skip The number of lines to skip from the beginning.
+   * @param charset The charset of the file.
+   * @return the selected lines.
+   */
+  public static String head(Path file, long lines, long skip, Charset charset) throws IOException {
+    long count = lines <= 0 ? Long.MAX_VALUE : lines;
+    long skipped = Math.max(0, skip);
+    if (!isLineFeedByte(charset)) {
+      return decodedHead(file, count, skipped, charset);
+    }
+
+    try (SeekableByteChannel channel = Files.newByteChannel(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long start = skipped == 0 ? 0 : -1;
+      long end = size;
+      long breaks = 0;
+      ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+      long position = 0;
+      // a \r ends its line unless followed by \n, which may be in the next block
+      boolean pendingCr = false;
+      scan: while (position < size) {
+        block.clear();
+        int read = channel.read(block);
+        if (read <= 0) {
+          break;
+        }
+        byte[] bytes = block.array();
+        for (int i = 0; i < read; i++) {
+          long terminator = -1;
+          if (bytes[i] == LF) {
+            terminator = position + i;
+          }
+          else if (pendingCr) {
+            terminator = position + i - 1;
+          }
+          pendingCr = bytes[i] == CR;
+          if (terminator >= 0) {
+            breaks++;
+            if (breaks == skipped) {
+              start = terminator + 1;
+            }
+            if (count != Long.MAX_VALUE && breaks == skipped + count) {
+              end = terminator + 1;
+              break scan;
+            }
+          }
+        }
+        position += read;
+      }
+      if (pendingCr && ++breaks == skipped) {
+        // the file ends with the \r of the last skipped line
+        start = size;
+      }
+      if (start < 0 || start >= end) {
+        return "";
+      }
+      return read(channel, start, end, charset);
+    }
+  }
+
+  /**
+   * @param file The file to read.
+   * @param lines The number of lines to read, all the lines (but the skipped ones) if negative.
+   * @param skip The number of lines to skip from the end.
+   * @param charset The charset of the file.
+   * @return the selected lines.
+   */
+  public static String tail(Path file, long lines, long skip, Charset charset) throws IOException {
+    long skipped = Math.max(0, skip);
+    if (lines == 0) {
+      return "";
+    }
+    if (!isLineFeedByte(charset)) {
+      return decodedTail(file, lines, skipped, charset);
+    }
+
+    try (SeekableByteChannel channel = Files.newByteChannel(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      // the lines are delimited by their start offsets, found from the end: the k-th found start is the one of the k-th last line
+      long wanted = lines < 0 ? Long.MAX_VALUE : skipped + lines;
+      long end = skipped == 0 ? size : -1;
+      long start = 0;
+      long found = 0;
+      ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+      long position = size;
+      // the byte following the current one, already read as the blocks are read backwards
+      byte next = 0;
+      scan: while (position > 0) {
+        int length = (int) Math.min(BLOCK_SIZE, position);
+        position -= length;
+        block.clear()
+            .limit(length);
+        channel.position(position);
+        while (block.hasRemaining() && channel.read(block) > 0) {
+          // reads the whole block
+        }
+        byte[] bytes = block.array();
+        for (int i = length - 1; i >= 0; i--) {
+          long offset = position + i;
+          boolean terminator = bytes[i] == LF || bytes[i] == CR && next != LF;
+          next = bytes[i];
+          // the terminator of the last line does not start a new line
+          if (terminator && offset < size - 1) {
+            found++;
+            if (found == skipped) {
+              end = offset + 1;
+            }
+            if (found == wanted) {
+              start = offset + 1;
+              break scan;
+            }
+          }
+        }
+      }
+      if (end < 0) {
+        // less lines than the skipped ones
+        return "";
+      }
+      return read(channel, start, end, charset);
+    }
+  }
+
+  private static boolean isLineFeedByte(Charset charset) {
+    return Arrays.equals("\r\n".getBytes(charset), new byte[] { CR, LF }) &&
+        Arrays.equals("a\r\n".getBytes(charset), new byte[] { 'a', CR, LF });
+  }
+
+  private static String read(SeekableByteChannel channel, long start, long end, Charset charset) throws IOException {
+    if (end - start > Integer.MAX_VALUE) {
+      throw new IOException("Too many bytes to read: " + (end - start));
+    }
+    ByteBuffer content = ByteBuffer.allocate((int) (end - start));
+    channel.position(start);
+    while (content.hasRemaining() && channel.read(content) > 0) {
+      // reads the whole range
+    }
+    content.flip();
+    return charset.decode(content)
+        .toString();
+  }
+
+  private static String decodedHead(Path file, long count, long skip, Charset charset) throws IOException {
+    StringBuilder head = new StringBuilder();
+    try (BufferedReader reader = newReader(file, charset)) {
+      long line = 0;
+      for (String text; line - skip < count && (text = readLine(reader)) != null; line++) {
+        if (line >= skip) {
+          head.append(text);
+        }
+      }
+    }
+    return head.toString();
+  }
+
+  private static String decodedTail(Path file, long lines, long skip, Charset charset) throws IOException {
+    Deque<String> tail = new ArrayDeque<>();
+    try (BufferedReader reader = newReader(file, charset)) {
+      for (String text; (text = readLine(reader)) != null;) {
+        tail.addLast(text);
+        if (lines > 0 && tail.size() > lines + skip) {
+          tail.removeFirst();
+        }
+      }
+    }
+    for (long i = 0; i < skip && !tail.isEmpty(); i++) {
+      tail.removeLast();
+    }
+    return String.join("", tail);
+  }
+
+  /**
+   * @return a reader replacing the malformed input, as {@link java.nio.charset.Charset#decode(ByteBuffer)} does.
+   */
+  private static BufferedReader newReader(Path file, Charset charset) throws IOException {
+    return new BufferedReader(new InputStreamReader(Files.newInputStream(file), charset));
+  }
+
+  /**
+   * @return the next line with its terminator, {@code null} at the end of the stream.
+   */
+  private static String readLine(BufferedReader reader) throws IOException {
+    StringBuilder line = new StringBuilder();
+    for (int c; (c = reader.read()) != -1;) {
+      line.append((char) c);
+      if (c == '\n') {
+        break;
+      }
+      if (c == '\r') {
+        reader.mark(1);
+        if (reader.read() == '\n') {
+          line.append('\n');
+        }
+        else {
+          reader.reset();
+        }
+        break;
+      }
+    }
+    return line.length() == 0 ? null : line.toString();
+  }
+}
@@ -0,0 +1,414 @@
+package com.demat.invoice.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.nio.file.attribute.FileTime.fromMillis;
+
+/**
+ * Most recent modification time of the regular files of a tree, kept up to date from the events of a {@link WatchService} instead of
+ * walking the whole tree on each query like {@link FileHelper#getLatestModifiedTime(Path)}.
+ * <p>
+ * The youngest modification time of the files of each directory is indexed: a created or modified file only updates its directory, a
+ * deleted file rescans its directory only, and the latest modification time of the tree is only recomputed from all the directories
+ * when the changed directory held it. The whole tree is rescanned when events were lost (overflow) and, optionally, at a fixed interval
+ * for the file systems not notifying all the changes (e.g. network shares).
+ * <p>
+ * A failed rescan is retried at the next interval (or after {@link #RETRY_DELAY} without interval), the index being reported as stale
+ * ({@link #isStale()}) until a rescan succeeds or if the watching thread stopped on an unexpected error.
+ */
+public class ModifiedTimeIndex implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ModifiedTimeIndex.class);
+
+  private static final FileTime EPOCH = fromMillis(0);
+
+  /** Delay before retrying a failed rescan, when there is no rescan interval */
+  static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+  private final Path root;
+
+  private final Duration rescanInterval;
+
+  private final WatchService watcher;
+
+  private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+
+  /** Directory -> youngest modification time of its own regular files */
+  private final Map<Path, FileTime> directories = new ConcurrentHashMap<>();
+
+  private final AtomicLong rescans = new AtomicLong();
+
+  private final Thread thread;
+
+  private volatile FileTime youngest = EPOCH;
+
+  private volatile boolean closed;
+
+  private volatile boolean stale;
+
+  private ModifiedTimeIndex(Path root, Duration rescanInterval) throws IOException {
+    this.root = root;
+    this.rescanInterval = rescanInterval;
+    this.watcher = root.getFileSystem()
+        .newWatchService();
+    try {
+      rescan();
+    }
+    catch (IOException | RuntimeException e) {
+      watcher.close();
+      throw e;
+    }
+    this.thread = new Thread(this::run, "mtime-index-" + root.getFileName());
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * @param root The directory to index.
+   * @return the index of the directory, to close once not used anymore.
+   * @throws IOException if the directory cannot be watched.
+   */
+  public static ModifiedTimeIndex watch(Path root) throws IOException {
+    return watch(root, Duration.ZERO);
+  }
+
+  /**
+   * @param root The directory to index.
+   * @param rescanInterval The interval between two full rescans of the tree, zero to rescan only when events were lost.
+   * @return the index of the directory, to close once not used anymore.
+   * @throws IOException if the directory cannot be watched.
+   */
+  public static ModifiedTimeIndex watch(Path root, Duration rescanInterval) throws IOException {
+    if (!Files.isDirectory(root)) {
+      throw new NotDirectoryException(root.toString());
+    }
+    return new ModifiedTimeIndex(root.toAbsolutePath()
+        .normalize(), rescanInterval);
+  }
+
+  /**
+   * @return the most recent modification time of the regular files of the tree, the epoch if there is no file.
+   */
+  public FileTime getLatestModifiedTime() {
+    return youngest;
+  }
+
+  /**
+   * @return the number of full scans of the tree.
+   */
+  public long getRescans() {
+    return rescans.get();
+  }
+
+  public Path getRoot() {
+    return root;
+  }
+
+  /**
+   * @return {@code true} if the last rescan failed or if the index stopped watching the tree: the changes may be missed until the next
+   *         successful rescan.
+   */
+  public boolean isStale() {
+    return stale;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    watcher.close();
+  }
+
+  private void run() {
+    long interval = rescanInterval.toMillis();
+    // no scheduled rescan without interval, until a rescan fails
+    long nextRescan = interval > 0 ? System.currentTimeMillis() + interval : Long.MAX_VALUE;
+    try {
+      while (!closed) {
+        WatchKey key = nextRescan == Long.MAX_VALUE
+            ? watcher.take()
+            : watcher.poll(Math.max(0, nextRescan - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        boolean overflow = key != null && process(key);
+        if (overflow || System.currentTimeMillis() >= nextRescan) {
+          boolean rescanned = tryRescan();
+          if (interval > 0) {
+            nextRescan = System.currentTimeMillis() + interval;
+          }
+          else {
+            nextRescan = rescanned ? Long.MAX_VALUE : System.currentTimeMillis() + RETRY_DELAY.toMillis();
+          }
+        }
+      }
+    }
+    catch (ClosedWatchServiceException e) {
+      log.debug("Index of {} closed", root);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+    }
+    catch (RuntimeException e) {
+      stale = true;
+      log.error("Index of {} stopped: {}", root, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return {@code true} if the tree has been rescanned, {@code false} if the rescan failed and is to be retried.
+   */
+  private boolean tryRescan() {
+    try {
+      rescan();
+      stale = false;
+      return true;
+    }
+    catch (ClosedWatchServiceException e) {
+      throw e;
+    }
+    catch (IOException | RuntimeException e) {
+      stale = true;
+      log.warn("Rescan of {} failed, index stale until the next rescan: {}", root, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * @return {@code true} if events were lost.
+   */
+  private boolean process(WatchKey key) {
+    boolean overflow = false;
+    Path directory = keys.get(key);
+    if (directory != null) {
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          overflow = true;
+          continue;
+        }
+        Path child = directory.resolve((Path) event.context());
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+          try {
+            scan(child);
+          }
+          catch (IOException e) {
+            log.debug("Error indexing {} : {}", child, e.getMessage());
+          }
+        }
+        else if (event.kind() == ENTRY_DELETE) {
+          if (directories.containsKey(child)) {
+            remove(child);
+          }
+          scanFiles(directory);
+        }
+        else {
+          update(directory, child);
+        }
+      }
+    }
+    if (!key.reset()) {
+      keys.remove(key);
+      if (directory != null) {
+        remove(directory);
+      }
+    }
+    return overflow;
+  }
+
+  private void update(Path directory, Path file) {
+    if (!directories.containsKey(directory)) {
+      return;
+    }
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+    catch (IOException e) {
+      // deleted since the event
+      scanFiles(directory);
+      return;
+    }
+    if (!attributes.isRegularFile()) {
+      return;
+    }
+    FileTime modified = attributes.lastModifiedTime();
+    if (modified.compareTo(directories.getOrDefault(directory, EPOCH)) >= 0) {
+      directories.put(directory, modified);
+      raise(modified);
+    }
+    else {
+      // the file may have been the youngest of its directory
+      scanFiles(directory);
+    }
+  }
+
+  /**
+   * Scans the whole tree, registering the new directories and forgetting the removed ones.
+   */
+  private void rescan() throws IOException {
+    rescans.incrementAndGet();
+    Map<Path, FileTime> scanned = scanTree(root);
+    directories.putAll(scanned);
+    directories.keySet()
+        .retainAll(scanned.keySet());
+    keys.entrySet()
+        .removeIf(key -> {
+          if (!scanned.containsKey(key.getValue())) {
+            key.getKey()
+                .cancel();
+            return true;
+          }
+          return false;
+        });
+    recompute();
+    log.debug("{} directories of {} indexed, latest modification: {}", scanned.size(), root, youngest);
+  }
+
+  /**
+   * Indexes a new subtree.
+   */
+  private void scan(Path directory) throws IOException {
+    Map<Path, FileTime> scanned = scanTree(directory);
+    directories.putAll(scanned);
+    scanned.values()
+        .forEach(this::raise);
+  }
+
+  private Map<Path, FileTime> scanTree(Path directory) throws IOException {
+    Map<Path, FileTime> scanned = new HashMap<>();
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        try {
+          keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+        }
+        catch (IOException e) {
+          log.debug("Error watching {} : {}", dir, e.getMessage());
+          return SKIP_SUBTREE;
+        }
+        scanned.put(dir, EPOCH);
+        return CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile()) {
+          scanned.merge(file.getParent(), attrs.lastModifiedTime(), ModifiedTimeIndex::max);
+        }
+        return CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        log.debug("Error indexing {} : {}", file, e.getMessage());
+        return CONTINUE;
+      }
+    });
+    return scanned;
+  }
+
+  /**
+   * Updates the youngest modification time of the files of a directory.
+   */
+  private void scanFiles(Path directory) {
+    if (!directories.containsKey(directory)) {
+      return;
+    }
+    FileTime latest = EPOCH;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        try {
+          BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if (attributes.isRegularFile()) {
+            latest = max(latest, attributes.lastModifiedTime());
+          }
+        }
+        catch (IOException e) {
+          // deleted since the listing
+        }
+      }
+    }
+    catch (IOException e) {
+      log.debug("Error indexing {} : {}", directory, e.getMessage());
+    }
+    FileTime previous = directories.replace(directory, latest);
+    if (latest.compareTo(youngest) >= 0) {
+      raise(latest);
+    }
+    else if (previous != null && previous.compareTo(youngest) >= 0) {
+      // the directory held the latest modification time
+      recompute();
+    }
+  }
+
+  /**
+   * Forgets a removed subtree.
+   */
+  private void remove(Path directory) {
+    FileTime removed = EPOCH;
+    for (Iterator<Map.Entry<Path, FileTime>> entries = directories.entrySet()
+        .iterator(); entries.hasNext();) {
+      Map.Entry<Path, FileTime> entry = entries.next();
+      if (entry.getKey()
+          .startsWith(directory)) {
+        removed = max(removed, entry.getValue());
+        entries.remove();
+      }
+    }
+    keys.entrySet()
+        .removeIf(key -> {
+          if (key.getValue()
+              .startsWith(directory)) {
+            key.getKey()
+                .cancel();
+            return true;
+          }
+          return false;
+        });
+    if (removed.compareTo(youngest) >= 0) {
+      // the subtree held the latest modification time
+      recompute();
+    }
+  }
+
+  private void raise(FileTime modified) {
+    youngest = max(youngest, modified);
+  }
+
+  private void recompute() {
+    youngest = directories.values()
+        .stream()
+        .reduce(EPOCH, ModifiedTimeIndex::max);
+  }
+
+  private static FileTime max(FileTime a, FileTime b) {
+    return a.compareTo(b) >= 0 ? a : b;
+  }
+}
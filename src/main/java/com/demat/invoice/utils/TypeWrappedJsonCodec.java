@@ -0,0 +1,270 @@
+package com.demat.invoice.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.apache.commons.lang3.ClassUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
+
+/**
+ * Streaming codec of the type wrapped JSON lists ({@code [{"type": "a.b.C", "value": {...}}, ...]}), writing and reading the elements one
+ * at a time on a {@link JsonWriter}/{@link JsonReader} instead of holding the whole list as a tree.
+ * <p>
+ * The elements are written as JSON objects. The reader also accepts the format written by
+ * {@link GsonHelper#toTypeWrappedJsonList(java.util.Collection)}, where each element (and each nested list) is itself serialized as a
+ * JSON string.
+ */
+public class TypeWrappedJsonCodec {
+
+  private static final Logger log = LoggerFactory.getLogger(TypeWrappedJsonCodec.class);
+
+  private static final String JSON_TYPE_PROPERTY = "type";
+
+  private static final String JSON_VALUE_PROPERTY = "value";
+
+  /** Element skipped by the reader */
+  private static final Object SKIPPED = new Object();
+
+  private final Gson gson;
+
+  /**
+   * @param gson The Gson instance serializing the values.
+   */
+  public TypeWrappedJsonCodec(Gson gson) {
+    this.gson = gson;
+  }
+
+  /*
+   * -- WRITING --
+   */
+
+  /**
+   * Writes type wrapped objects as a JSON array, the {@code null} objects being skipped.
+   *
+   * @param objects The objects to write.
+   * @param type The type of the objects, {@code null} to use the class of each object.
+   * @param writer The writer, not closed.
+   */
+  public void write(Iterable<?> objects, Class<?> type, Writer writer) throws IOException {
+    JsonWriter out = new JsonWriter(writer);
+    writeArray(out, objects, type);
+    out.flush();
+  }
+
+  private void writeArray(JsonWriter out, Iterable<?> objects, Class<?> type) throws IOException {
+    out.beginArray();
+    for (Object object : objects) {
+      if (object != null) {
+        writeWrapped(out, object, type);
+      }
+    }
+    out.endArray();
+  }
+
+  private void writeWrapped(JsonWriter out, Object object, Class<?> type) throws IOException {
+    final Class<?> clazz = type == null ? object.getClass() : type;
+    out.beginObject();
+    out.name(JSON_TYPE_PROPERTY)
+        .value(clazz.getName());
+    out.name(JSON_VALUE_PROPERTY);
+    if (Iterable.class.isAssignableFrom(clazz)) {
+      writeArray(out, (Iterable<?>) object, null);
+    }
+    else if (object instanceof Object[]) {
+      writeArray(out, Arrays.asList((Object[]) object), null);
+    }
+    else {
+      gson.toJson(object, clazz, out);
+    }
+    out.endObject();
+  }
+
+  /*
+   * -- READING --
+   */
+
+  /**
+   * Reads a JSON array of type wrapped objects lazily: an element is read when the stream consumes it. The elements failing to be read
+   * from the former string format are logged and skipped.
+   *
+   * @param reader The reader, closed with the returned stream.
+   * @return the objects read.
+   * @throws JsonParseException (when consumed) if the JSON is malformed.
+   */
+  public <T> Stream<T> read(Reader reader) {
+    JsonReader in = new JsonReader(reader);
+    return StreamSupport.stream(new ArraySpliterator<T>(in), false)
+        .onClose(() -> {
+          try {
+            in.close();
+          }
+          catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  /**
+   * @param reader The reader, not closed.
+   * @return all the objects of the JSON array of type wrapped objects.
+   * @see #read(Reader)
+   */
+  public <T> List<T> readList(Reader reader) {
+    List<T> list = new ArrayList<>();
+    new ArraySpliterator<T>(new JsonReader(reader)).forEachRemaining(list::add);
+    return list;
+  }
+
+  private List<Object> readArray(JsonReader in) throws IOException {
+    List<Object> list = new ArrayList<>();
+    new ArraySpliterator<>(in).forEachRemaining(list::add);
+    return list;
+  }
+
+  /**
+   * @return the element, read from an object or from a string of the former format, {@link #SKIPPED} if it cannot be read.
+   */
+  private Object readElement(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return SKIPPED;
+    }
+    if (in.peek() != JsonToken.STRING) {
+      return readWrapped(in);
+    }
+    String wrap = in.nextString();
+    try (JsonReader element = new JsonReader(new StringReader(wrap))) {
+      return readWrapped(element);
+    }
+    catch (Exception e) {
+      log.error("Error reading Json element: {} ({})", wrap, getRootCauseMessage(e));
+      return SKIPPED;
+    }
+  }
+
+  private Object readWrapped(JsonReader in) throws IOException {
+    Class<?> type = null;
+    Object value = null;
+    JsonElement pending = null;
+    in.beginObject();
+    while (in.hasNext()) {
+      String name = in.nextName();
+      if (JSON_TYPE_PROPERTY.equals(name)) {
+        type = getClass(in.nextString());
+      }
+      else if (JSON_VALUE_PROPERTY.equals(name)) {
+        // the value is decoded on the fly when its type is known
+        if (type != null) {
+          value = readValue(in, type);
+        }
+        else {
+          pending = JsonParser.parseReader(in);
+        }
+      }
+      else {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+    if (type == null) {
+      throw new JsonParseException("Missing Json class type at " + in.getPath());
+    }
+    if (pending != null) {
+      try (JsonReader pendingValue = new JsonReader(new StringReader(pending.toString()))) {
+        return readValue(pendingValue, type);
+      }
+    }
+    return value;
+  }
+
+  private Object readValue(JsonReader in, Class<?> type) throws IOException {
+    boolean list = Iterable.class.isAssignableFrom(type) || Object[].class.isAssignableFrom(type);
+    if (list && in.peek() == JsonToken.BEGIN_ARRAY) {
+      List<Object> elements = readArray(in);
+      return type.isArray() ? elements.toArray() : elements;
+    }
+    // former format: the list is serialized in a string
+    if (list && in.peek() == JsonToken.STRING) {
+      List<Object> elements;
+      try (JsonReader nested = new JsonReader(new StringReader(in.nextString()))) {
+        elements = readArray(nested);
+      }
+      return type.isArray() ? elements.toArray() : elements;
+    }
+    return gson.fromJson(in, type);
+  }
+
+  private static Class<?> getClass(String name) {
+    try {
+      return ClassUtils.getClass(name);
+    }
+    catch (ClassNotFoundException e) {
+      throw new JsonParseException("Impossible to retrieve the Json class type: " + name, e);
+    }
+  }
+
+  /**
+   * Elements of a JSON array, read on demand.
+   */
+  private class ArraySpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private final JsonReader in;
+
+    private boolean started;
+
+    private boolean done;
+
+    ArraySpliterator(JsonReader in) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED);
+      this.in = in;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super T> action) {
+      try {
+        if (!started) {
+          started = true;
+          in.beginArray();
+        }
+        while (!done) {
+          if (!in.hasNext()) {
+            in.endArray();
+            done = true;
+            break;
+          }
+          Object element = readElement(in);
+          if (element != SKIPPED) {
+            action.accept((T) element);
+            return true;
+          }
+        }
+        return false;
+      }
+      catch (IOException e) {
+        throw new JsonParseException(e);
+      }
+    }
+  }
+}
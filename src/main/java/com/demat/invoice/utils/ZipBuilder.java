@@ -0,0 +1,470 @@
+package com.demat.invoice.utils;
+
+import com.demat.invoice.beans.FileType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Builds a zip archive from local files, compressing the entries in parallel before writing them in order.
+ * <p>
+ * The compression level depends on the {@link FileType} of each file (from its extension). The already compressed types (PDF, images,
+ * archives) are {@link Deflater#NO_COMPRESSION stored} by default, their content being copied as is from the file channel. The other
+ * entries are deflated by a bounded pool, in memory up to {@link #IN_MEMORY_THRESHOLD} bytes or in a temporary file beyond, while the
+ * previous entries are written. Archives over 4 GB or 65535 entries are written with the Zip64 extensions.
+ * <p>
+ * The files which cannot be read are skipped with an error, the other entries being archived. A stored file modified between its
+ * checksum and its copy fails the archive.
+ */
+public class ZipBuilder {
+
+  private static final Logger log = LoggerFactory.getLogger(ZipBuilder.class);
+
+  /** Size of the files deflated in memory, larger ones are deflated in a temporary file */
+  public static final long IN_MEMORY_THRESHOLD = 8L * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+  /** Language encoding flag: the entry names are UTF-8 encoded */
+  private static final int UTF8_FLAG = 1 << 11;
+
+  private static final ExecutorService DEFAULT_EXECUTOR;
+
+  static {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("zip-");
+    threadFactory.setDaemon(true);
+    DEFAULT_EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime()
+        .availableProcessors(), threadFactory);
+  }
+
+  private final Map<FileType, Integer> levels = new EnumMap<>(FileType.class);
+
+  private final Map<String, File> entries = new LinkedHashMap<>();
+
+  private int defaultLevel = Deflater.DEFAULT_COMPRESSION;
+
+  private ExecutorService executor = DEFAULT_EXECUTOR;
+
+  private int parallelism = Runtime.getRuntime()
+      .availableProcessors();
+
+  public ZipBuilder() {
+    for (FileType type : new FileType[] { FileType.PDF, FileType.PDFA3, FileType.ARCHIVE, FileType.PROCESS_ARCHIVE, FileType.PNG,
+        FileType.GIF, FileType.JPEG, FileType.JPG }) {
+      levels.put(type, Deflater.NO_COMPRESSION);
+    }
+  }
+
+  /**
+   * @param level The compression level of the files of this type, {@link Deflater#NO_COMPRESSION} to store them as is.
+   */
+  public ZipBuilder withLevel(FileType type, int level) {
+    levels.put(type, level);
+    return this;
+  }
+
+  /**
+   * @param level The compression level of the files whose type has no specific level.
+   */
+  public ZipBuilder withDefaultLevel(int level) {
+    this.defaultLevel = level;
+    return this;
+  }
+
+  /**
+   * @param executor The executor compressing the entries.
+   * @param parallelism The maximum number of entries compressed ahead of the written one.
+   */
+  public ZipBuilder withExecutor(ExecutorService executor, int parallelism) {
+    this.executor = executor;
+    this.parallelism = Math.max(1, parallelism);
+    return this;
+  }
+
+  /**
+   * Adds a file at the root of the archive. The files which do not exist and the duplicated names are skipped.
+   */
+  public ZipBuilder add(File file) {
+    return file == null ? this : add(file.getName(), file);
+  }
+
+  public ZipBuilder add(String name, File file) {
+    if (file == null || !file.isFile()) {
+      return this;
+    }
+    if (entries.putIfAbsent(name, file) != null) {
+      log.warn("Duplicate zip entry {} skipped : {}", name, file);
+    }
+    return this;
+  }
+
+  public ZipBuilder addAll(Collection<File> files) {
+    if (files != null) {
+      files.forEach(this::add);
+    }
+    return this;
+  }
+
+  /**
+   * Writes the archive. The given stream is not closed.
+   *
+   * @throws IOException if the archive cannot be written or if a stored file changed while being archived.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    List<Map.Entry<String, File>> files = new ArrayList<>(entries.entrySet());
+    Deque<Future<PreparedEntry>> pending = new ArrayDeque<>();
+    List<CentralRecord> records = new ArrayList<>(files.size());
+    ZipWriter writer = new ZipWriter(out);
+
+    int submitted = 0;
+    try {
+      for (int written = 0; written < files.size(); written++) {
+        // keeps at most "parallelism" entries compressed ahead
+        while (submitted < files.size() && pending.size() < parallelism) {
+          Map.Entry<String, File> file = files.get(submitted++);
+          pending.add(executor.submit(() -> prepare(file.getKey(), file.getValue())));
+        }
+        PreparedEntry entry;
+        try {
+          entry = await(pending.poll());
+        }
+        catch (InterruptedIOException e) {
+          throw e;
+        }
+        catch (IOException e) {
+          log.error("Error writing zip entry: " + files.get(written)
+              .getValue(), e);
+          continue;
+        }
+        try {
+          records.add(writer.writeEntry(entry));
+        }
+        finally {
+          entry.release();
+        }
+      }
+      writer.writeCentralDirectory(records);
+    }
+    finally {
+      for (Future<PreparedEntry> future : pending) {
+        future.cancel(true);
+        if (future.isDone() && !future.isCancelled()) {
+          try {
+            future.get()
+                .release();
+          }
+          catch (InterruptedException | ExecutionException e) {
+            // nothing to release
+          }
+        }
+      }
+    }
+  }
+
+  private int getLevel(File file) {
+    FileType type = FileType.getType(file, false);
+    return levels.getOrDefault(type, defaultLevel);
+  }
+
+  private PreparedEntry prepare(String name, File file) throws IOException {
+    int level = getLevel(file);
+    CRC32 crc = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long size = 0;
+
+    if (level == Deflater.NO_COMPRESSION) {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        for (int read; (read = channel.read(buffer)) != -1; buffer.clear()) {
+          crc.update(buffer.array(), 0, read);
+          size += read;
+        }
+      }
+      return new PreparedEntry(name, file, false, crc.getValue(), size, size, null, null);
+    }
+
+    Deflater deflater = new Deflater(level, true);
+    Path temp = file.length() > IN_MEMORY_THRESHOLD ? Files.createTempFile("zip-", ".deflate") : null;
+    ByteArrayOutputStream memory = temp == null ? new ByteArrayOutputStream((int) Math.max(32, file.length() / 2)) : null;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        OutputStream target = temp == null ? memory : new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE);
+        DeflaterOutputStream deflated = new DeflaterOutputStream(target, deflater, BUFFER_SIZE)) {
+      for (int read; (read = channel.read(buffer)) != -1; buffer.clear()) {
+        crc.update(buffer.array(), 0, read);
+        deflated.write(buffer.array(), 0, read);
+        size += read;
+      }
+      deflated.finish();
+    }
+    catch (IOException | RuntimeException e) {
+      if (temp != null) {
+        Files.deleteIfExists(temp);
+      }
+      throw e;
+    }
+    finally {
+      deflater.end();
+    }
+    long compressedSize = temp == null ? memory.size() : Files.size(temp);
+    return new PreparedEntry(name, file, true, crc.getValue(), size, compressedSize, memory == null ? null : memory.toByteArray(),
+        temp);
+  }
+
+  private static PreparedEntry await(Future<PreparedEntry> future) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      throw new InterruptedIOException("Zip creation interrupted");
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /** Entry ready to be written: its CRC and sizes are known and its content is either deflated or the source file itself */
+  private static class PreparedEntry {
+    final String name;
+    final File source;
+    final boolean deflated;
+    final long crc;
+    final long size;
+    final long compressedSize;
+    final byte[] data;
+    final Path temp;
+
+    PreparedEntry(String name, File source, boolean deflated, long crc, long size, long compressedSize, byte[] data, Path temp) {
+      this.name = name;
+      this.source = source;
+      this.deflated = deflated;
+      this.crc = crc;
+      this.size = size;
+      this.compressedSize = compressedSize;
+      this.data = data;
+      this.temp = temp;
+    }
+
+    void release() {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        }
+        catch (IOException e) {
+          log.warn("Failed to delete temporary file {}", temp);
+        }
+      }
+    }
+  }
+
+  private static class CentralRecord {
+    final PreparedEntry entry;
+    final byte[] name;
+    final int time;
+    final long offset;
+
+    CentralRecord(PreparedEntry entry, byte[] name, int time, long offset) {
+      this.entry = entry;
+      this.name = name;
+      this.time = time;
+      this.offset = offset;
+    }
+  }
+
+  /** Writes the zip structures in little endian, tracking the written bytes */
+  private static class ZipWriter {
+
+    private final OutputStream out;
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer header = ByteBuffer.allocate(1024)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    private long written;
+
+    ZipWriter(OutputStream out) {
+      this.out = out;
+      this.channel = Channels.newChannel(out);
+    }
+
+    CentralRecord writeEntry(PreparedEntry entry) throws IOException {
+      byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+      int time = dosTime(entry.source.lastModified());
+      long offset = written;
+      boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+
+      // the stored file is copied as long as it is when its checksum was computed
+      try (FileChannel content = entry.data != null ? null : FileChannel.open(entry.temp != null ? entry.temp : entry.source.toPath(),
+          StandardOpenOption.READ)) {
+        if (content != null && content.size() != entry.compressedSize) {
+          throw new IOException(String.format("%s changed while being archived: %d bytes instead of %d", entry.source, content.size(),
+              entry.compressedSize));
+        }
+
+        ByteBuffer buffer = headerBuffer(30 + name.length + 20);
+        buffer.putInt(0x04034b50)
+            .putShort((short) (zip64 ? 45 : 20))
+            .putShort((short) UTF8_FLAG)
+            .putShort((short) (entry.deflated ? 8 : 0))
+            .putInt(time)
+            .putInt((int) entry.crc)
+            .putInt((int) (zip64 ? ZIP64_MAGIC : entry.compressedSize))
+            .putInt((int) (zip64 ? ZIP64_MAGIC : entry.size))
+            .putShort((short) name.length)
+            .putShort((short) (zip64 ? 20 : 0))
+            .put(name);
+        if (zip64) {
+          buffer.putShort((short) 1)
+              .putShort((short) 16)
+              .putLong(entry.size)
+              .putLong(entry.compressedSize);
+        }
+        flush(buffer);
+
+        if (content == null) {
+          out.write(entry.data);
+          written += entry.data.length;
+        }
+        else {
+          for (long position = 0; position < entry.compressedSize;) {
+            long transferred = content.transferTo(position, entry.compressedSize - position, channel);
+            if (transferred <= 0) {
+              throw new EOFException(String.format("%s truncated while being archived", entry.source));
+            }
+            position += transferred;
+          }
+          written += entry.compressedSize;
+        }
+      }
+      return new CentralRecord(entry, name, time, offset);
+    }
+
+    void writeCentralDirectory(List<CentralRecord> records) throws IOException {
+      long start = written;
+      for (CentralRecord record : records) {
+        PreparedEntry entry = record.entry;
+        boolean sizes64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        boolean offset64 = record.offset >= ZIP64_MAGIC;
+        int extra = (sizes64 ? 16 : 0) + (offset64 ? 8 : 0);
+
+        ByteBuffer buffer = headerBuffer(46 + record.name.length + 4 + extra);
+        buffer.putInt(0x02014b50)
+            .putShort((short) 45)
+            .putShort((short) (extra > 0 ? 45 : 20))
+            .putShort((short) UTF8_FLAG)
+            .putShort((short) (entry.deflated ? 8 : 0))
+            .putInt(record.time)
+            .putInt((int) entry.crc)
+            .putInt((int) (sizes64 ? ZIP64_MAGIC : entry.compressedSize))
+            .putInt((int) (sizes64 ? ZIP64_MAGIC : entry.size))
+            .putShort((short) record.name.length)
+            .putShort((short) (extra > 0 ? extra + 4 : 0))
+            .putShort((short) 0)
+            .putShort((short) 0)
+            .putShort((short) 0)
+            .putInt(0)
+            .putInt((int) (offset64 ? ZIP64_MAGIC : record.offset))
+            .put(record.name);
+        if (extra > 0) {
+          buffer.putShort((short) 1)
+              .putShort((short) extra);
+          if (sizes64) {
+            buffer.putLong(entry.size)
+                .putLong(entry.compressedSize);
+          }
+          if (offset64) {
+            buffer.putLong(record.offset);
+          }
+        }
+        flush(buffer);
+      }
+      long size = written - start;
+
+      boolean zip64 = records.size() >= ZIP64_MAGIC_COUNT || start >= ZIP64_MAGIC || size >= ZIP64_MAGIC;
+      if (zip64) {
+        long zip64End = written;
+        ByteBuffer buffer = headerBuffer(56 + 20);
+        buffer.putInt(0x06064b50)
+            .putLong(44)
+            .putShort((short) 45)
+            .putShort((short) 45)
+            .putInt(0)
+            .putInt(0)
+            .putLong(records.size())
+            .putLong(records.size())
+            .putLong(size)
+            .putLong(start)
+            // locator
+            .putInt(0x07064b50)
+            .putInt(0)
+            .putLong(zip64End)
+            .putInt(1);
+        flush(buffer);
+      }
+
+      int count = zip64 ? ZIP64_MAGIC_COUNT : records.size();
+      ByteBuffer buffer = headerBuffer(22);
+      buffer.putInt(0x06054b50)
+          .putShort((short) 0)
+          .putShort((short) 0)
+          .putShort((short) count)
+          .putShort((short) count)
+          .putInt((int) (zip64 ? ZIP64_MAGIC : size))
+          .putInt((int) (zip64 ? ZIP64_MAGIC : start))
+          .putShort((short) 0);
+      flush(buffer);
+      out.flush();
+    }
+
+    private ByteBuffer headerBuffer(int size) {
+      ByteBuffer buffer = size <= header.capacity() ? header : ByteBuffer.allocate(size)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.clear();
+      return buffer;
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+      out.write(buffer.array(), 0, buffer.position());
+      written += buffer.position();
+    }
+
+    /**
+     * @return the MS-DOS date (high 16 bits) and time (low 16 bits) of the given epoch millis, in the default time zone.
+     */
+    private static int dosTime(long millis) {
+      LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+      if (time.getYear() < 1980) {
+        return (1 << 21) | (1 << 16);
+      }
+      return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16 | time.getHour() << 11 |
+          time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+  }
+}
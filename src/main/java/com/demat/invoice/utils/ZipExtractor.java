@@ -0,0 +1,249 @@
+package com.demat.invoice.utils;
+
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Extracts the entries of a zip archive in parallel. The entries are listed from the central directory of the archive ({@link ZipFile})
+ * and the files are inflated concurrently on a bounded pool. The archive is closed once all the submitted extractions are over: when an
+ * extraction fails, the pending ones are skipped and the running ones stop at their next read.
+ * <p>
+ * Like the Ant {@code Expand} task previously used by {@link FileHelper#unzip(File, File, String)}, the entries can be filtered with Ant
+ * include patterns, existing files are overwritten, the modification time of the entries is kept and the entries resolved outside of the
+ * destination folder (zip slip) are skipped.
+ */
+public class ZipExtractor {
+
+  private static final Logger log = LoggerFactory.getLogger(ZipExtractor.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final ZipExtractor DEFAULT = new ZipExtractor(Runtime.getRuntime()
+      .availableProcessors());
+
+  private final ExecutorService executor;
+
+  /**
+   * @param parallelism The maximum number of entries extracted at the same time.
+   */
+  public ZipExtractor(int parallelism) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("unzip-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+  }
+
+  /**
+   * @return the extractor shared by the application, running as many extractions as available processors.
+   */
+  public static ZipExtractor getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Extracts the entries of an archive.
+   *
+   * @param zip The archive to extract.
+   * @param destination The destination folder, created if needed.
+   * @param includePattern The comma or space separated Ant patterns of the entries to extract, {@code null} to extract all the entries.
+   * @return the report of the extraction.
+   * @throws IOException if the archive cannot be read or if an entry cannot be written.
+   */
+  public Report extract(Path zip, Path destination, String includePattern) throws IOException {
+    long start = System.nanoTime();
+    Path root = destination.toAbsolutePath()
+        .normalize();
+    List<String> includes = parseIncludes(includePattern);
+    Report report = new Report();
+
+    try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+      AtomicBoolean aborted = new AtomicBoolean();
+      List<Future<?>> extractions = new ArrayList<>();
+      try {
+        Files.createDirectories(root);
+        for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+          ZipEntry entry = entries.nextElement();
+          if (!isIncluded(entry.getName(), includes)) {
+            continue;
+          }
+          Path target = root.resolve(entry.getName())
+              .normalize();
+          if (!target.startsWith(root) || target.equals(root)) {
+            log.warn("Skipping zip entry {} resolved outside of {}", entry.getName(), root);
+            continue;
+          }
+          if (entry.isDirectory()) {
+            Files.createDirectories(target);
+          }
+          else {
+            Files.createDirectories(target.getParent());
+            extractions.add(executor.submit(() -> {
+              if (!aborted.get()) {
+                extract(zipFile, entry, target, report, aborted);
+              }
+              return null;
+            }));
+          }
+        }
+        await(extractions);
+      }
+      catch (IOException | RuntimeException e) {
+        aborted.set(true);
+        throw e;
+      }
+      finally {
+        // the archive must not be closed while an extraction is reading it
+        awaitTermination(extractions);
+      }
+    }
+
+    report.duration = Duration.ofNanos(System.nanoTime() - start);
+    log.debug("{} extracted into {} : {}", zip, destination, report);
+    return report;
+  }
+
+  private static void extract(ZipFile zipFile, ZipEntry entry, Path target, Report report, AtomicBoolean aborted)
+      throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = zipFile.getInputStream(entry);
+        OutputStream out = Files.newOutputStream(target)) {
+      long written = 0;
+      for (int read; (read = in.read(buffer)) != -1;) {
+        if (aborted.get()) {
+          throw new InterruptedIOException("Extraction of " + entry.getName() + " aborted");
+        }
+        out.write(buffer, 0, read);
+        written += read;
+      }
+      report.files.incrementAndGet();
+      report.bytes.addAndGet(written);
+    }
+    if (entry.getLastModifiedTime() != null) {
+      Files.setLastModifiedTime(target, entry.getLastModifiedTime());
+    }
+  }
+
+  private static void await(List<Future<?>> extractions) throws IOException {
+    try {
+      for (Future<?> extraction : extractions) {
+        extraction.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      throw new IOException("Extraction interrupted", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Waits for the end of the submitted extractions, whatever their outcome.
+   */
+  private static void awaitTermination(List<Future<?>> extractions) {
+    boolean interrupted = false;
+    for (Future<?> extraction : extractions) {
+      while (true) {
+        try {
+          extraction.get();
+          break;
+        }
+        catch (InterruptedException e) {
+          interrupted = true;
+        }
+        catch (ExecutionException | CancellationException e) {
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread()
+          .interrupt();
+    }
+  }
+
+  private static List<String> parseIncludes(String includePattern) {
+    if (includePattern == null) {
+      return null;
+    }
+    return stream(includePattern.split("[,\\s]+"))
+        .filter(pattern -> !pattern.isEmpty())
+        // as in Ant, a pattern ending with a separator matches the whole sub tree
+        .map(pattern -> pattern.endsWith("/") || pattern.endsWith("\\") ? pattern + "**" : pattern)
+        .map(pattern -> pattern.replace('/', File.separatorChar)
+            .replace('\\', File.separatorChar))
+        .collect(toList());
+  }
+
+  private static boolean isIncluded(String entryName, List<String> includes) {
+    if (includes == null) {
+      return true;
+    }
+    String path = entryName.replace('/', File.separatorChar);
+    return includes.stream()
+        .anyMatch(pattern -> SelectorUtils.matchPath(pattern, path));
+  }
+
+  /**
+   * Files and bytes extracted from an archive, with the extraction throughput.
+   */
+  public static class Report {
+
+    private final AtomicLong files = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private Duration duration;
+
+    public long getFiles() {
+      return files.get();
+    }
+
+    public long getBytes() {
+      return bytes.get();
+    }
+
+    public Duration getDuration() {
+      return duration;
+    }
+
+    /**
+     * @return the number of extracted bytes per second.
+     */
+    public double getThroughput() {
+      return duration == null || duration.isZero() ? 0 : bytes.get() * 1e9 / duration.toNanos();
+    }
+
+    @Override
+    public String toString() {
+      return files + " files, " + bytes + " bytes in " + (duration == null ? "-" : duration.toMillis() + "ms") + " (" +
+          (long) getThroughput() + " B/s)";
+    }
+  }
+}
@@ -83,7 +83,7 @@ public class PublicUserResource {
 
                 if (resourceFile.exists()) {
                     System.out.println("File exists: " + resourceFile.getAbsolutePath());
-                    amazonS3Service.uploadArchive("",resourceFile);
+                    amazonS3Service.uploadArchive("invoices", resourceFile);
                 } else {
                     System.out.println("File does not exist.");
                 }
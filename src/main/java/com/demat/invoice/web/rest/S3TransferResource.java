@@ -0,0 +1,35 @@
+package com.demat.invoice.web.rest;
+
+import com.demat.invoice.aws.service.S3TransferMonitor;
+import com.demat.invoice.aws.service.TransferProgressSnapshot;
+import com.demat.invoice.security.AuthoritiesConstants;
+import java.util.List;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller following the progress of the S3 transfers.
+ *
+ * @see S3TransferStreamResource
+ */
+@RestController
+@RequestMapping("/api/s3/transfers")
+public class S3TransferResource {
+
+    private final S3TransferMonitor transferMonitor;
+
+    public S3TransferResource(S3TransferMonitor transferMonitor) {
+        this.transferMonitor = transferMonitor;
+    }
+
+    /**
+     * {@code GET  /s3/transfers} : get the progress of the in-flight transfers.
+     *
+     * @return the list of the in-flight transfers progress.
+     */
+    @GetMapping
+    @Secured(AuthoritiesConstants.ADMIN)
+    public List<TransferProgressSnapshot> getTransfers() {
+        return transferMonitor.getTransfers();
+    }
+}
@@ -0,0 +1,48 @@
+package com.demat.invoice.web.rest;
+
+import com.demat.invoice.aws.service.S3TransferMonitor;
+import com.demat.invoice.aws.service.TransferProgressSnapshot;
+import com.demat.invoice.security.AuthoritiesConstants;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+/**
+ * REST controller streaming the progress of the S3 transfers as server-sent events. Each subscriber holds a connection and a timer, so
+ * the endpoint is only exposed when {@code gnx.archiving.transfers.stream.enabled} is {@code true}.
+ */
+@RestController
+@RequestMapping("/api/s3/transfers")
+@ConditionalOnProperty(name = "gnx.archiving.transfers.stream.enabled", havingValue = "true")
+public class S3TransferStreamResource {
+
+    private static final Duration MIN_INTERVAL = Duration.ofMillis(200);
+
+    private final S3TransferMonitor transferMonitor;
+
+    public S3TransferStreamResource(S3TransferMonitor transferMonitor) {
+        this.transferMonitor = transferMonitor;
+    }
+
+    /**
+     * {@code GET  /s3/transfers/stream} : stream the progress of the in-flight transfers as server-sent events.
+     *
+     * @param intervalMs the interval between two events in milliseconds.
+     * @return the flow of the in-flight transfers progress.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Secured(AuthoritiesConstants.ADMIN)
+    public Flux<ServerSentEvent<List<TransferProgressSnapshot>>> streamTransfers(
+        @RequestParam(name = "interval", defaultValue = "1000") long intervalMs
+    ) {
+        Duration interval = Duration.ofMillis(intervalMs);
+        return transferMonitor
+            .watch(interval.compareTo(MIN_INTERVAL) < 0 ? MIN_INTERVAL : interval)
+            .map(transfers -> ServerSentEvent.<List<TransferProgressSnapshot>>builder(transfers).event("transfers").build());
+    }
+}
@@ -0,0 +1,59 @@
+package com.demat.invoice.web.util;
+
+import com.demat.invoice.aws.service.S3Service;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.Optional;
+import org.apache.commons.io.IOUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Utility class adapting the archived contents of the {@link S3Service} to WebFlux responses.
+ */
+public final class ArchiveContentUtil {
+
+    private ArchiveContentUtil() {}
+
+    /**
+     * Reads the content of a S3 object as a flow of buffers, e.g. to proxy an archived document without holding it on the heap. The
+     * object is opened on the service executor, read on the bounded elastic scheduler and its S3 connection is released on completion,
+     * error or cancellation, including a cancellation while the object is being opened.
+     *
+     * @param s3Service the service holding the archive.
+     * @param bucket the S3 Bucket name.
+     * @param key the S3 object key.
+     * @param bufferFactory the factory of the emitted buffers (e.g. {@code response.bufferFactory()}).
+     * @param bufferSize the size of the emitted buffers.
+     * @return the S3 object content, failing with a {@link FileNotFoundException} if the object cannot be read.
+     */
+    public static Flux<DataBuffer> readArchiveContent(
+        S3Service s3Service,
+        String bucket,
+        String key,
+        DataBufferFactory bufferFactory,
+        int bufferSize
+    ) {
+        return Flux.usingWhen(
+            Mono
+                .fromFuture(() -> s3Service.readArchiveStreamAsync(bucket, key))
+                // opened after a cancellation
+                .doOnDiscard(Optional.class, content -> content.ifPresent(stream -> IOUtils.closeQuietly((InputStream) stream)))
+                .flatMap(content ->
+                    content
+                        .map(Mono::just)
+                        .orElseGet(() -> Mono.error(new FileNotFoundException(String.format("S3 Object %s/%s not found", bucket, key))))
+                ),
+            content ->
+                DataBufferUtils
+                    .readInputStream(() -> content, bufferFactory, bufferSize)
+                    // the S3 content is read with blocking I/O
+                    .subscribeOn(Schedulers.boundedElastic()),
+            content -> Mono.fromRunnable(() -> IOUtils.closeQuietly(content))
+        );
+    }
+}
@@ -0,0 +1,162 @@
+package com.demat.invoice.aws.jms;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.amazonaws.services.sns.message.SnsNotification;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.support.GenericMessage;
+
+/**
+ * Unit tests for {@link GnxSnsEnvelope}.
+ */
+class GnxSnsEnvelopeTest {
+
+    private static final String PAYLOAD =
+        "{\n" +
+        "  \"Type\" : \"Notification\",\n" +
+        "  \"MessageId\" : \"22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324\",\n" +
+        "  \"TopicArn\" : \"arn:aws:sns:eu-west-1:123456789012:invoices\",\n" +
+        "  \"Subject\" : \"InvoiceArchived\",\n" +
+        "  \"Message\" : \"{\\\"number\\\":\\\"INV-1\\\",\\\"pages\\\":3}\",\n" +
+        "  \"Timestamp\" : \"2021-03-04T10:15:30.123Z\",\n" +
+        "  \"SignatureVersion\" : \"1\",\n" +
+        "  \"Signature\" : \"EXAMPLEpH+DcEwjAPg8O9mY8dReBSwksfg2S7WKQcikcNKWLQjwu6A4VbeS0QHVCkhRS7fUQvi2egU3N858fiTDN6bkkOxYDVrY0Ad8L10Hs3zH81mtnPk5uvvolIC1CXGu43obcgFxeL3khZl8IKvO61GWB6jI9b5+gLPoBc1Q=\",\n" +
+        "  \"SigningCertURL\" : \"https://sns.eu-west-1.amazonaws.com/SimpleNotificationService-0000000000000000000000.pem\",\n" +
+        "  \"UnsubscribeURL\" : \"https://sns.eu-west-1.amazonaws.com/?Action=Unsubscribe&SubscriptionArn=arn:aws:sns:eu-west-1:123456789012:invoices\"\n" +
+        "}";
+
+    @Test
+    void shouldReadTheHeaders() {
+        GenericMessage<String> message = new GenericMessage<>(PAYLOAD);
+
+        GnxSnsEnvelope envelope = GnxSnsEnvelope.read(message);
+
+        assertThat(envelope.getJmsMessage()).isSameAs(message);
+        assertThat(envelope.getType()).isEqualTo("Notification");
+        assertThat(envelope.getMessageId()).isEqualTo("22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324");
+        assertThat(envelope.getTopicArn()).isEqualTo("arn:aws:sns:eu-west-1:123456789012:invoices");
+        assertThat(envelope.getSubject()).isEqualTo("InvoiceArchived");
+        assertThat(envelope.getTimestamp()).isEqualTo(Date.from(Instant.parse("2021-03-04T10:15:30.123Z")));
+        assertThat(envelope.getMessage()).isEqualTo("{\"number\":\"INV-1\",\"pages\":3}");
+    }
+
+    @Test
+    void shouldDecodeTheMessageOncePerType() {
+        GnxSnsEnvelope envelope = GnxSnsEnvelope.read(new GenericMessage<>(PAYLOAD));
+
+        InvoiceArchived archived = envelope.getMessage(InvoiceArchived.class);
+
+        assertThat(archived.number).isEqualTo("INV-1");
+        assertThat(archived.pages).isEqualTo(3);
+        assertThat(envelope.getMessage(InvoiceArchived.class)).isSameAs(archived);
+        assertThat(envelope.getMessage(Map.class)).containsEntry("number", "INV-1");
+    }
+
+    @Test
+    void shouldDecodeTheMessageOfTheRequestedTypeOnConcurrentCalls() throws Exception {
+        GnxSnsEnvelope envelope = GnxSnsEnvelope.read(new GenericMessage<>(PAYLOAD));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> decodings = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                Class<?> type = thread % 2 == 0 ? InvoiceArchived.class : Map.class;
+                decodings.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < 2_000; i++) {
+                            assertThat(envelope.getMessage(type)).isInstanceOf(type);
+                        }
+                        return null;
+                    })
+                );
+            }
+            for (Future<?> decoding : decodings) {
+                decoding.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldBuildTheNotificationFromTheHeaders() {
+        GnxSnsEnvelope envelope = GnxSnsEnvelope.read(new GenericMessage<>(PAYLOAD));
+
+        InvoiceNotification notification = envelope.toNotification(InvoiceNotification.class);
+
+        assertThat(notification.getType()).isEqualTo("Notification");
+        assertThat(notification.getMessageId()).isEqualTo("22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324");
+        assertThat(notification.getTopicArn()).isEqualTo("arn:aws:sns:eu-west-1:123456789012:invoices");
+        assertThat(notification.getSubject()).isEqualTo("InvoiceArchived");
+        assertThat(notification.getTimestamp()).isEqualTo(envelope.getTimestamp());
+        assertThat(notification.getMesage()).isEqualTo(envelope.getMessage());
+        assertThat(notification.getNotificationMessage()).isNull();
+        // only the header fields are read
+        assertThat(notification.signatureVersion).isNull();
+    }
+
+    @Test
+    void shouldReadTheNotificationOfTheMessageConsumers() {
+        InvoiceNotification notification = AbstractJmsMessageConsumer.createSnsNotification(
+            PAYLOAD,
+            InvoiceNotification.class,
+            InvoiceArchived.class
+        );
+
+        assertThat(notification.getSubject()).isEqualTo("InvoiceArchived");
+        assertThat(notification.getNotificationMessage().number).isEqualTo("INV-1");
+        assertThat(AbstractJmsMessageConsumer.createSnsNotification("{\"Message\":\"{\"}", InvoiceNotification.class, InvoiceArchived.class))
+            .isNull();
+    }
+
+    @Test
+    void shouldReadAPartialNotification() {
+        GnxSnsEnvelope envelope = GnxSnsEnvelope.read(new GenericMessage<>("{\"Subject\":\"InvoiceArchived\",\"Message\":null,\"Other\":[1]}"));
+
+        assertThat(envelope.getSubject()).isEqualTo("InvoiceArchived");
+        assertThat(envelope.getType()).isNull();
+        assertThat(envelope.getTimestamp()).isNull();
+        assertThat(envelope.getMessage()).isNull();
+        assertThat(envelope.getMessage(InvoiceArchived.class)).isNull();
+    }
+
+    @Test
+    void shouldRejectAMalformedPayload() {
+        assertThatThrownBy(() -> GnxSnsEnvelope.read(new GenericMessage<>("[\"Subject\"]"))).isInstanceOf(JsonParseException.class);
+        assertThatThrownBy(() -> GnxSnsEnvelope.read(new GenericMessage<>("{\"Subject\":"))).isInstanceOf(JsonParseException.class);
+        assertThatThrownBy(() -> GnxSnsEnvelope.read(null)).isInstanceOf(JsonParseException.class);
+    }
+
+    static class InvoiceArchived {
+
+        String number;
+
+        int pages;
+    }
+
+    static class InvoiceNotification extends GnxSnsNotification<InvoiceArchived> {
+
+        @SerializedName("SignatureVersion")
+        String signatureVersion;
+
+        InvoiceNotification(SnsNotification snsNotification) {
+            super(snsNotification);
+        }
+
+        @Override
+        protected InvoiceArchived createNotification(SnsNotification snsNotification) {
+            return null;
+        }
+    }
+}
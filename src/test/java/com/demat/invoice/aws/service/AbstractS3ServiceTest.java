@@ -0,0 +1,156 @@
+package com.demat.invoice.aws.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import com.demat.invoice.aws.utils.UnhandledCharacterException;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Unit tests for {@link AbstractS3Service}.
+ */
+class AbstractS3ServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldUploadToAnObjectLockBucketWithItsMd5() throws IOException {
+        List<String> transfers = new ArrayList<>();
+        S3TransferMonitor monitor = new S3TransferMonitor(emptyProvider());
+        InMemoryAmazonS3 s3 = new InMemoryAmazonS3() {
+            @Override
+            public PutObjectResult putObject(PutObjectRequest request) {
+                monitor.getTransfers().forEach(transfer -> transfers.add(transfer.toString()));
+                return super.putObject(request);
+            }
+        };
+        InMemoryS3Service service = new InMemoryS3Service(s3, true, 1024 * 1024, 1024 * 1024);
+        service.transferMonitor = monitor;
+        try {
+            UploadResult result = service.uploadArchive("invoice.xml", file("<invoice/>"));
+
+            assertThat(result).isNotNull();
+            assertThat(s3.get(InMemoryS3Service.BUCKET, "invoice.xml")).isEqualTo("<invoice/>".getBytes(UTF_8));
+            assertThat(transfers).hasSize(1);
+            assertThat(monitor.getTransfers()).isEmpty();
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void shouldMapTheS3RejectionsOfAnObjectLockUpload() throws IOException {
+        InMemoryAmazonS3 s3 = new InMemoryAmazonS3() {
+            @Override
+            public PutObjectResult putObject(PutObjectRequest request) {
+                AmazonS3Exception e = new AmazonS3Exception("Invalid character");
+                e.setStatusCode(400);
+                throw e;
+            }
+        };
+        InMemoryS3Service service = new InMemoryS3Service(s3, true, 1024 * 1024, 1024 * 1024);
+        File archive = file("<invoice/>");
+        try {
+            assertThatThrownBy(() -> service.uploadArchive("invoice.xml", archive)).isInstanceOf(UnhandledCharacterException.class);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void shouldDeleteAFolderOfSeveralListingPages() {
+        InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+        putAll(s3, "folder/", 2500);
+        s3.put(InMemoryS3Service.BUCKET, "other/invoice.xml", new byte[0]);
+        InMemoryS3Service service = new InMemoryS3Service(s3, false, 1024 * 1024, 1024 * 1024);
+        try {
+            DeleteReport report = service.deleteArchiveFolder(InMemoryS3Service.BUCKET, "folder/");
+
+            assertThat(report.getDeletedCount()).isEqualTo(2500);
+            assertThat(report.isSuccessful()).isTrue();
+            // pages of 1000 keys
+            assertThat(s3.getListings()).isEqualTo(3);
+            assertThat(s3.objects(InMemoryS3Service.BUCKET)).containsOnlyKeys("other/invoice.xml");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void shouldReportTheKeysFailingToBeDeleted() {
+        InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+        putAll(s3, "folder/", 1500);
+        s3.denyDeletion("folder/00010");
+        s3.denyDeletion("folder/01200");
+        InMemoryS3Service service = new InMemoryS3Service(s3, false, 1024 * 1024, 1024 * 1024);
+        try {
+            DeleteReport report = service.deleteBucketContents(InMemoryS3Service.BUCKET);
+
+            assertThat(report.getDeletedCount()).isEqualTo(1498);
+            assertThat(report.getFailedKeys()).containsExactlyInAnyOrder("folder/00010", "folder/01200");
+            assertThat(report.isComplete()).isTrue();
+            assertThat(report.isSuccessful()).isFalse();
+            assertThat(s3.objects(InMemoryS3Service.BUCKET)).containsOnlyKeys("folder/00010", "folder/01200");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void shouldReportAnIncompleteListing() {
+        InMemoryAmazonS3 s3 = new InMemoryAmazonS3() {
+            @Override
+            public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+                if (request.getContinuationToken() != null) {
+                    throw new AmazonS3Exception("Slow Down");
+                }
+                return super.listObjectsV2(request);
+            }
+        };
+        putAll(s3, "folder/", 1500);
+        InMemoryS3Service service = new InMemoryS3Service(s3, false, 1024 * 1024, 1024 * 1024);
+        try {
+            DeleteReport report = service.deleteArchiveFolder(InMemoryS3Service.BUCKET, "folder/");
+
+            assertThat(report.getDeletedCount()).isEqualTo(1000);
+            assertThat(report.isComplete()).isFalse();
+            assertThat(report.isSuccessful()).isFalse();
+            assertThat(s3.objects(InMemoryS3Service.BUCKET)).hasSize(500);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static void putAll(InMemoryAmazonS3 s3, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            s3.put(InMemoryS3Service.BUCKET, String.format("%s%05d", prefix, i), new byte[0]);
+        }
+    }
+
+    private File file(String content) throws IOException {
+        return Files.writeString(tempDir.resolve("archive.xml"), content).toFile();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<MeterRegistry> emptyProvider() {
+        return mock(ObjectProvider.class);
+    }
+}
@@ -0,0 +1,133 @@
+package com.demat.invoice.aws.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link DeduplicatingArchiveStore}.
+ */
+class DeduplicatingArchiveStoreTest {
+
+    private static final String BUCKET = InMemoryS3Service.BUCKET;
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+
+    private final InMemoryS3Service service = new InMemoryS3Service(s3, true, 64 * 1024, 32 * 1024);
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldUploadAnIdenticalContentOnce() throws IOException {
+        byte[] content = "<invoice/>".getBytes(UTF_8);
+        DeduplicatingArchiveStore store = service.deduplicatingStore(BUCKET, "content");
+
+        String first = store.store("a/invoice.xml", file("1.xml", content), null, null).orElseThrow();
+        String second = store.store("b/invoice.xml", file("2.xml", content), null, null).orElseThrow();
+
+        assertThat(first).isEqualTo("content/" + DigestUtils.sha256Hex(content)).isEqualTo(second);
+        // one content and two references
+        assertThat(s3.getPuts()).isEqualTo(3);
+        assertThat(s3.get(BUCKET, first)).isEqualTo(content);
+        assertThat(store.resolve("b/invoice.xml")).isEqualTo(first);
+        try (InputStream in = store.readArchiveStream("a/invoice.xml").orElseThrow()) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void shouldBeSharedPerBucketAndPrefix() {
+        assertThat(service.deduplicatingStore(BUCKET, "content")).isSameAs(service.deduplicatingStore(BUCKET, "content"));
+        assertThat(service.deduplicatingStore(BUCKET, "content")).isNotSameAs(service.deduplicatingStore(BUCKET, "other"));
+    }
+
+    @Test
+    void shouldUploadAgainAContentDeletedThroughTheService() throws IOException {
+        byte[] content = "<invoice/>".getBytes(UTF_8);
+        DeduplicatingArchiveStore store = service.deduplicatingStore(BUCKET, "content");
+        String contentKey = store.store(null, file("1.xml", content), null, null).orElseThrow();
+
+        service.deleteArchive(BUCKET, contentKey);
+        store.store(null, file("2.xml", content), null, null);
+
+        assertThat(s3.get(BUCKET, contentKey)).isEqualTo(content);
+        assertThat(s3.getPuts()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCheckAnIndexedContentAgain() throws IOException {
+        byte[] content = "<invoice/>".getBytes(UTF_8);
+        DeduplicatingArchiveStore store = service.deduplicatingStore(BUCKET, "content");
+        String contentKey = store.store(null, file("1.xml", content), null, null).orElseThrow();
+
+        // removed behind the service: the index still reports the content as stored
+        s3.delete(BUCKET, contentKey);
+        service.invalidateExistence(BUCKET, contentKey);
+        store.store(null, file("2.xml", content), null, null);
+
+        assertThat(s3.get(BUCKET, contentKey)).isNull();
+        assertThat(s3.getPuts()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldUploadAgainAContentDeletedByPrefixThroughTheService() throws IOException {
+        byte[] content = "<invoice/>".getBytes(UTF_8);
+        DeduplicatingArchiveStore store = service.deduplicatingStore(BUCKET, "content");
+        String contentKey = store.store(null, file("1.xml", content), null, null).orElseThrow();
+
+        service.deleteArchivesByPrefix(BUCKET, "content/");
+        store.store(null, file("2.xml", content), null, null);
+
+        assertThat(s3.get(BUCKET, contentKey)).isEqualTo(content);
+        assertThat(s3.getPuts()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldStoreAContentLargerThanTheMultipartThreshold() throws IOException {
+        byte[] content = new byte[100 * 1024];
+        new Random(7).nextBytes(content);
+        DeduplicatingArchiveStore store = service.deduplicatingStore(BUCKET, "content");
+
+        String contentKey = store.store("large.bin", file("large.bin", content), null, null).orElseThrow();
+
+        assertThat(contentKey).isEqualTo("content/" + DigestUtils.sha256Hex(content));
+        assertThat(s3.get(BUCKET, contentKey)).isEqualTo(content);
+        assertThat(store.resolve("large.bin")).isEqualTo(contentKey);
+        // uploaded once, to the staging key, then copied
+        assertThat(s3.getPuts()).isEqualTo(1);
+        assertThat(s3.objects(BUCKET).keySet()).containsExactlyInAnyOrder(contentKey, "large.bin");
+    }
+
+    @Test
+    void shouldNotCopyALargeDuplicate() throws IOException {
+        byte[] content = new byte[100 * 1024];
+        new Random(7).nextBytes(content);
+        DeduplicatingArchiveStore store = service.deduplicatingStore(BUCKET, "content");
+        String contentKey = store.store(null, file("1.bin", content), null, null).orElseThrow();
+        s3.put(BUCKET, contentKey, new byte[0]);
+
+        assertThat(store.store(null, file("2.bin", content), null, null)).contains(contentKey);
+        assertThat(s3.get(BUCKET, contentKey)).isEmpty();
+        assertThat(s3.objects(BUCKET).keySet()).containsExactly(contentKey);
+    }
+
+    private File file(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content).toFile();
+    }
+}
@@ -0,0 +1,121 @@
+package com.demat.invoice.aws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link DigestingUploader}.
+ */
+class DigestingUploaderTest {
+
+    private static final int PART_SIZE = 16 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldUploadWithASinglePut() throws IOException {
+        byte[] content = content(PART_SIZE);
+        TransferProgress progress = new TransferProgress();
+
+        UploadResult result = uploader().upload("bucket", "key", file(content), new ObjectMetadata(), null, null, progress);
+
+        assertThat(result.getKey()).isEqualTo("key");
+        assertThat(s3.get("bucket", "key")).isEqualTo(content);
+        assertThat(progress.getBytesTransferred()).isEqualTo(content.length);
+    }
+
+    @Test
+    void shouldUploadInParts() throws IOException {
+        byte[] content = content(5 * PART_SIZE + 7);
+        TransferProgress progress = new TransferProgress();
+
+        UploadResult result = uploader().upload("bucket", "key", file(content), new ObjectMetadata(), null, null, progress);
+
+        assertThat(result.getETag()).endsWith("-6");
+        assertThat(s3.get("bucket", "key")).isEqualTo(content);
+        assertThat(progress.getBytesTransferred()).isEqualTo(content.length);
+        assertThat(progress.getTotalBytesToTransfer()).isEqualTo(content.length);
+        assertThat(s3.getAborts()).isZero();
+    }
+
+    @Test
+    void shouldAcceptTheOpaqueETagOfASseKmsObject() throws IOException {
+        s3.setSseAlgorithm("aws:kms");
+        byte[] content = content(3 * PART_SIZE);
+
+        uploader().upload("bucket", "key", file(content), new ObjectMetadata(), null, null, null);
+
+        assertThat(s3.get("bucket", "key")).isEqualTo(content);
+        assertThat(s3.getAborts()).isZero();
+    }
+
+    @Test
+    void shouldAbortTheUploadOfAFailedPart() throws IOException {
+        InMemoryAmazonS3 failing = new InMemoryAmazonS3() {
+            @Override
+            public UploadPartResult uploadPart(UploadPartRequest request) {
+                if (request.getPartNumber() == 2) {
+                    throw new SdkClientException("Connection reset");
+                }
+                return super.uploadPart(request);
+            }
+        };
+        DigestingUploader uploader = new DigestingUploader(failing, executor, 2, 2 * PART_SIZE, PART_SIZE);
+        File file = file(content(3 * PART_SIZE));
+
+        assertThatThrownBy(() -> uploader.upload("bucket", "key", file, new ObjectMetadata(), null, null, null))
+            .isInstanceOf(SdkClientException.class)
+            .hasMessage("Connection reset");
+        assertThat(failing.getAborts()).isEqualTo(1);
+        assertThat(failing.get("bucket", "key")).isNull();
+    }
+
+    @Test
+    void shouldRejectAThresholdNotFittingInMemory() {
+        assertThatThrownBy(() -> new DigestingUploader(s3, executor, 2, Integer.MAX_VALUE + 1L, PART_SIZE))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new DigestingUploader(s3, executor, 2, PART_SIZE, Integer.MAX_VALUE + 1L))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private DigestingUploader uploader() {
+        return new DigestingUploader(s3, executor, 2, 2 * PART_SIZE, PART_SIZE);
+    }
+
+    private File file(byte[] content) throws IOException {
+        return Files.write(tempDir.resolve("archive.bin"), content).toFile();
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,353 @@
+package com.demat.invoice.aws.service;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+import com.amazonaws.services.s3.model.DeleteObjectsResult.DeletedObject;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Local S3 stand-in keeping the objects in memory, implementing the calls used by the services under test.
+ */
+public class InMemoryAmazonS3 extends AbstractAmazonS3 {
+
+    private final Map<String, ConcurrentSkipListMap<String, byte[]>> buckets = new ConcurrentHashMap<>();
+
+    private final Map<String, ObjectMetadata> metadatas = new ConcurrentHashMap<>();
+
+    private final AtomicInteger puts = new AtomicInteger();
+
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicInteger aborts = new AtomicInteger();
+
+    private final AtomicInteger listings = new AtomicInteger();
+
+    /** Keys failing to be deleted by a multi-object delete */
+    private final Set<String> undeletableKeys = ConcurrentHashMap.newKeySet();
+
+    /** Server side encryption of the completed multipart uploads, an opaque ETag being returned for SSE-KMS */
+    private volatile String sseAlgorithm;
+
+    public void setSseAlgorithm(String sseAlgorithm) {
+        this.sseAlgorithm = sseAlgorithm;
+    }
+
+    /**
+     * @return the number of aborted multipart uploads.
+     */
+    public int getAborts() {
+        return aborts.get();
+    }
+
+    /**
+     * @return the number of ListObjectsV2 requests received.
+     */
+    public int getListings() {
+        return listings.get();
+    }
+
+    /**
+     * @param key a key failing to be deleted by the next multi-object deletes, with an {@code AccessDenied} error.
+     */
+    public void denyDeletion(String key) {
+        undeletableKeys.add(key);
+    }
+
+    public void put(String bucket, String key, byte[] content) {
+        buckets.computeIfAbsent(bucket, b -> new ConcurrentSkipListMap<>()).put(key, content);
+    }
+
+    public void delete(String bucket, String key) {
+        objects(bucket).remove(key);
+        metadatas.remove(bucket + "/" + key);
+    }
+
+    /**
+     * @return the number of PUT requests received.
+     */
+    public int getPuts() {
+        return puts.get();
+    }
+
+    public byte[] get(String bucket, String key) {
+        return buckets.getOrDefault(bucket, new ConcurrentSkipListMap<>()).get(key);
+    }
+
+    public Map<String, byte[]> objects(String bucket) {
+        return buckets.getOrDefault(bucket, new ConcurrentSkipListMap<>());
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucket, String key, File file) {
+        return putObject(new PutObjectRequest(bucket, key, file));
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest request) {
+        byte[] content;
+        try (InputStream in = request.getFile() != null ? new FileInputStream(request.getFile()) : request.getInputStream()) {
+            content = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ObjectMetadata metadata = request.getMetadata() == null ? new ObjectMetadata() : request.getMetadata().clone();
+        if (metadata.getContentMD5() != null && !metadata.getContentMD5().equals(Base64.getEncoder().encodeToString(DigestUtils.md5(content)))) {
+            AmazonS3Exception e = new AmazonS3Exception("The Content-MD5 you specified did not match what we received.");
+            e.setStatusCode(400);
+            e.setErrorCode("BadDigest");
+            throw e;
+        }
+        metadata.setContentLength(content.length);
+        puts.incrementAndGet();
+        put(request.getBucketName(), request.getKey(), content);
+        metadatas.put(request.getBucketName() + "/" + request.getKey(), metadata);
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(DigestUtils.md5Hex(content));
+        return result;
+    }
+
+    @Override
+    public boolean doesObjectExist(String bucket, String key) {
+        return get(bucket, key) != null;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucket, String key) {
+        byte[] content = content(bucket, key);
+        ObjectMetadata metadata = metadatas.getOrDefault(bucket + "/" + key, new ObjectMetadata()).clone();
+        metadata.setContentLength(content.length);
+        return metadata;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+        return getObjectMetadata(request.getBucketName(), request.getKey());
+    }
+
+    @Override
+    public CopyObjectResult copyObject(String sourceBucket, String sourceKey, String targetBucket, String targetKey) {
+        put(targetBucket, targetKey, content(sourceBucket, sourceKey));
+        return new CopyObjectResult();
+    }
+
+    @Override
+    public CopyObjectResult copyObject(CopyObjectRequest request) {
+        CopyObjectResult result = copyObject(request.getSourceBucketName(), request.getSourceKey(), request.getDestinationBucketName(),
+            request.getDestinationKey());
+        ObjectMetadata metadata = metadatas.get(request.getSourceBucketName() + "/" + request.getSourceKey());
+        if (metadata != null) {
+            metadatas.put(request.getDestinationBucketName() + "/" + request.getDestinationKey(), metadata.clone());
+        }
+        return result;
+    }
+
+    @Override
+    public S3Object getObject(String bucket, String key) {
+        byte[] content = content(bucket, key);
+        S3Object object = new S3Object();
+        object.setBucketName(bucket);
+        object.setKey(key);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        object.setObjectMetadata(metadata);
+        object.setObjectContent(new ByteArrayInputStream(content));
+        return object;
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        return getObject(request.getBucketName(), request.getKey());
+    }
+
+    @Override
+    public void deleteObject(DeleteObjectRequest request) {
+        delete(request.getBucketName(), request.getKey());
+    }
+
+    @Override
+    public DeleteObjectsResult deleteObjects(DeleteObjectsRequest request) {
+        List<DeletedObject> deleted = new ArrayList<>();
+        List<DeleteError> errors = new ArrayList<>();
+        for (KeyVersion key : request.getKeys()) {
+            if (undeletableKeys.contains(key.getKey())) {
+                DeleteError error = new DeleteError();
+                error.setKey(key.getKey());
+                error.setCode("AccessDenied");
+                error.setMessage("Access Denied");
+                errors.add(error);
+            } else {
+                delete(request.getBucketName(), key.getKey());
+                DeletedObject object = new DeletedObject();
+                object.setKey(key.getKey());
+                deleted.add(object);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new MultiObjectDeleteException(errors, deleted);
+        }
+        return new DeleteObjectsResult(request.getQuiet() ? new ArrayList<>() : deleted);
+    }
+
+    /**
+     * Lists the keys by pages of {@code maxKeys} (1000 by default), the continuation token being the last listed key.
+     */
+    @Override
+    public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+        listings.incrementAndGet();
+        ListObjectsV2Result result = new ListObjectsV2Result();
+        result.setBucketName(request.getBucketName());
+        result.setPrefix(request.getPrefix());
+        result.setContinuationToken(request.getContinuationToken());
+        String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+        int maxKeys = request.getMaxKeys() == null ? 1000 : request.getMaxKeys();
+        ConcurrentSkipListMap<String, byte[]> objects = buckets.getOrDefault(request.getBucketName(), new ConcurrentSkipListMap<>());
+        String after = request.getContinuationToken() != null ? request.getContinuationToken() : request.getStartAfter();
+        for (Map.Entry<String, byte[]> object : (after == null ? objects : objects.tailMap(after, false)).entrySet()) {
+            if (!object.getKey().startsWith(prefix)) {
+                continue;
+            }
+            if (result.getObjectSummaries().size() == maxKeys) {
+                result.setTruncated(true);
+                result.setNextContinuationToken(result.getObjectSummaries().get(maxKeys - 1).getKey());
+                break;
+            }
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName(request.getBucketName());
+            summary.setKey(object.getKey());
+            summary.setSize(object.getValue().length);
+            result.getObjectSummaries().add(summary);
+        }
+        result.setKeyCount(result.getObjectSummaries().size());
+        return result;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        byte[] content;
+        try (InputStream in = request.getInputStream()) {
+            content = in.readNBytes((int) request.getPartSize());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (request.getMd5Digest() != null && !request.getMd5Digest().equals(Base64.getEncoder().encodeToString(DigestUtils.md5(content)))) {
+            AmazonS3Exception e = new AmazonS3Exception("The Content-MD5 you specified did not match what we received.");
+            e.setStatusCode(400);
+            e.setErrorCode("BadDigest");
+            throw e;
+        }
+        upload(request.getUploadId()).put(request.getPartNumber(), content);
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(DigestUtils.md5Hex(content));
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        Map<Integer, byte[]> parts = upload(request.getUploadId());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        for (PartETag part : request.getPartETags()) {
+            byte[] partContent = parts.get(part.getPartNumber());
+            content.writeBytes(partContent);
+            digests.writeBytes(DigestUtils.md5(partContent));
+        }
+        uploads.remove(request.getUploadId());
+        put(request.getBucketName(), request.getKey(), content.toByteArray());
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setSSEAlgorithm(sseAlgorithm);
+        result.setETag(
+            "aws:kms".equals(sseAlgorithm)
+                ? DigestUtils.md5Hex(UUID.randomUUID().toString())
+                : DigestUtils.md5Hex(digests.toByteArray()) + "-" + request.getPartETags().size()
+        );
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        if (uploads.remove(request.getUploadId()) == null) {
+            AmazonS3Exception e = new AmazonS3Exception("The specified upload does not exist.");
+            e.setStatusCode(404);
+            e.setErrorCode("NoSuchUpload");
+            throw e;
+        }
+        aborts.incrementAndGet();
+    }
+
+    private Map<Integer, byte[]> upload(String uploadId) {
+        Map<Integer, byte[]> parts = uploads.get(uploadId);
+        if (parts == null) {
+            AmazonS3Exception e = new AmazonS3Exception("The specified upload does not exist.");
+            e.setStatusCode(404);
+            e.setErrorCode("NoSuchUpload");
+            throw e;
+        }
+        return parts;
+    }
+
+    private byte[] content(String bucket, String key) {
+        byte[] content = get(bucket, key);
+        if (content == null) {
+            AmazonS3Exception e = new AmazonS3Exception("The specified key does not exist.");
+            e.setStatusCode(404);
+            e.setErrorCode("NoSuchKey");
+            throw e;
+        }
+        return content;
+    }
+}
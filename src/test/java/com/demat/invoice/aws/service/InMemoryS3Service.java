@@ -0,0 +1,51 @@
+package com.demat.invoice.aws.service;
+
+/**
+ * {@link AbstractS3Service} on top of an {@link InMemoryAmazonS3}.
+ */
+public class InMemoryS3Service extends AbstractS3Service {
+
+    public static final String BUCKET = "archives";
+
+    private final boolean objectLock;
+
+    /**
+     * @param client the S3 stand-in.
+     * @param objectLock sends the uploads with their MD5, as for the object lock buckets.
+     * @param multipartThreshold the size threshold from which an upload is split in parts.
+     * @param partSize the size of the parts.
+     */
+    public InMemoryS3Service(InMemoryAmazonS3 client, boolean objectLock, long multipartThreshold, long partSize) {
+        this.awsS3Client = client;
+        this.objectLock = objectLock;
+        initTransferManager("test", 2, multipartThreshold, partSize);
+    }
+
+    @Override
+    public void init() {}
+
+    @Override
+    protected String getBucket() {
+        return BUCKET;
+    }
+
+    @Override
+    protected String getSseAlgorithm() {
+        return null;
+    }
+
+    @Override
+    protected boolean isObjectLock() {
+        return objectLock;
+    }
+
+    @Override
+    public boolean isS3ArchiveServiceAvailable() {
+        return true;
+    }
+
+    @Override
+    public String getDefaultBucketName() {
+        return BUCKET;
+    }
+}
@@ -0,0 +1,122 @@
+package com.demat.invoice.aws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import java.io.File;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for {@link RoutingS3ServiceImpl}.
+ */
+class RoutingS3ServiceImplTest {
+
+    private final S3Service amazon = mock(S3Service.class);
+
+    private final S3Service generix = mock(S3Service.class);
+
+    private final RoutingS3ServiceImpl routing = new RoutingS3ServiceImpl();
+
+    @AfterEach
+    void shutdown() {
+        routing.shutdown();
+    }
+
+    @Test
+    void shouldReplicateAnUploadBeforeReturning() {
+        init(true, RoutingS3ServiceImpl.Mode.DUAL_WRITE);
+        File archive = new File("invoice.xml");
+        when(amazon.uploadArchive("bucket", "key", archive)).thenReturn(new UploadResult());
+        when(generix.uploadArchive("bucket", "key", archive)).thenReturn(new UploadResult());
+
+        assertThat(routing.uploadArchive("bucket", "key", archive)).isNotNull();
+
+        // no timeout: the caller may delete the file as soon as the upload returns
+        verify(generix).uploadArchive("bucket", "key", archive);
+    }
+
+    @Test
+    void shouldLookUpAMissingArchiveOnTheSecondary() {
+        init(true, RoutingS3ServiceImpl.Mode.FAILOVER);
+        when(generix.hasArchive("bucket", "key")).thenReturn(true);
+
+        assertThat(routing.hasArchive("bucket", "key")).isTrue();
+        assertThat(routing.hasArchive("bucket", "other")).isFalse();
+    }
+
+    @Test
+    void shouldNotCountMissingDownloadsAsFailures() {
+        init(true, RoutingS3ServiceImpl.Mode.FAILOVER);
+        when(generix.downloadArchive("bucket", "key", "path")).thenReturn(true);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(routing.downloadArchive("bucket", "missing", "path")).isFalse();
+        }
+
+        assertThat(routing.getBackendsHealth().get(AmazonS3ServiceImpl.SERVICE_NAME)).contains("state=CLOSED");
+        assertThat(routing.downloadArchive("bucket", "key", "path")).isTrue();
+    }
+
+    @Test
+    void shouldRejectTheSingleBackendWritesInDualWrite() {
+        init(true, RoutingS3ServiceImpl.Mode.DUAL_WRITE);
+
+        assertThatThrownBy(() -> routing.deduplicatingStore("bucket", "content")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> routing.batchCopy(mock(BatchCopyRequest.class))).isInstanceOf(UnsupportedOperationException.class);
+        verify(amazon, never()).deduplicatingStore(anyString(), anyString());
+        verify(generix, never()).batchCopy(any());
+    }
+
+    @Test
+    void shouldRouteTheSingleBackendWritesInFailover() {
+        init(true, RoutingS3ServiceImpl.Mode.FAILOVER);
+
+        routing.deduplicatingStore("bucket", "content");
+
+        verify(amazon).deduplicatingStore("bucket", "content");
+        verify(generix, never()).deduplicatingStore(anyString(), anyString());
+    }
+
+    @Test
+    void shouldDelegateToThePrimaryWhenDisabled() {
+        init(false, RoutingS3ServiceImpl.Mode.DUAL_WRITE);
+        File archive = new File("invoice.xml");
+        when(amazon.uploadArchive("key", archive)).thenReturn(new UploadResult());
+        when(amazon.hasArchive("bucket", "key")).thenReturn(true);
+
+        assertThat(routing.uploadArchive("key", archive)).isNotNull();
+        assertThat(routing.hasArchive("bucket", "key")).isTrue();
+        assertThat(routing.isS3ArchiveServiceAvailable()).isTrue();
+
+        verify(generix, never()).uploadArchive(anyString(), any(File.class));
+        verify(amazon, times(1)).uploadArchive("key", archive);
+    }
+
+    private void init(boolean enabled, RoutingS3ServiceImpl.Mode mode) {
+        when(amazon.isS3ArchiveServiceAvailable()).thenReturn(true);
+        when(generix.isS3ArchiveServiceAvailable()).thenReturn(true);
+        ReflectionTestUtils.setField(routing, "enabled", enabled);
+        ReflectionTestUtils.setField(routing, "mode", mode);
+        ReflectionTestUtils.setField(routing, "primaryName", AmazonS3ServiceImpl.SERVICE_NAME);
+        ReflectionTestUtils.setField(routing, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(routing, "slowCallThreshold", 5000L);
+        ReflectionTestUtils.setField(routing, "slowCallRateThreshold", 80f);
+        ReflectionTestUtils.setField(routing, "windowSize", 10);
+        ReflectionTestUtils.setField(routing, "openDuration", 30L);
+        ReflectionTestUtils.setField(routing, "asyncConcurrency", 2);
+        ReflectionTestUtils.setField(routing, "asyncQueueCapacity", 10);
+        ReflectionTestUtils.setField(routing, "amazonS3Service", amazon);
+        ReflectionTestUtils.setField(routing, "generixS3Service", generix);
+        routing.init();
+    }
+}
@@ -0,0 +1,130 @@
+package com.demat.invoice.aws.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.s3control.AWSS3Control;
+import com.amazonaws.services.s3control.model.CreateJobResult;
+import com.amazonaws.services.s3control.model.DescribeJobResult;
+import com.amazonaws.services.s3control.model.JobDescriptor;
+import com.amazonaws.services.s3control.model.JobProgressSummary;
+import com.amazonaws.services.s3control.model.JobStatus;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link S3BatchCopyEngine}, run against an {@link InMemoryAmazonS3}.
+ */
+class S3BatchCopyEngineTest {
+
+    private final InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldCopyOnTheClientSide() {
+        s3.put("source", "a/1.xml", "1".getBytes(UTF_8));
+        s3.put("source", "a/b c+2.xml", "2".getBytes(UTF_8));
+        S3BatchCopyEngine engine = new S3BatchCopyEngine(s3, null, () -> "account", scheduler, executor, null, 100, Duration.ofMillis(10));
+
+        BatchCopyReport report = engine
+            .copy(new BatchCopyRequest("source", Stream.of("a/1.xml", "a/b c+2.xml", "missing.xml"), "target", "copy/"))
+            .join();
+
+        assertThat(report.isClientSide()).isTrue();
+        assertThat(report.getTotalTasks()).isEqualTo(3);
+        assertThat(report.getSucceededTasks()).isEqualTo(2);
+        assertThat(report.getFailedKeys()).containsExactly("missing.xml");
+        assertThat(s3.objects("target")).containsOnlyKeys("copy/a/1.xml", "copy/a/b c+2.xml");
+    }
+
+    @Test
+    void shouldNotConsumeTheKeysOnTheCallerThread() throws InterruptedException {
+        s3.put("source", "1.xml", "1".getBytes(UTF_8));
+        CountDownLatch release = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        Stream<String> keys = Stream
+            .of("1.xml")
+            .peek(key -> {
+                assertThat(Thread.currentThread()).isNotSameAs(caller);
+                await(release);
+            });
+        S3BatchCopyEngine engine = new S3BatchCopyEngine(s3, null, () -> "account", scheduler, executor, null, 100, Duration.ofMillis(10));
+
+        // returns while the key stream is blocked
+        var future = engine.copy(new BatchCopyRequest("source", keys, "target", ""));
+        assertThat(future).isNotDone();
+        release.countDown();
+
+        assertThat(future.join().getSucceededTasks()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRunABatchOperationsJob() {
+        AWSS3Control control = mock(AWSS3Control.class);
+        CreateJobResult created = mock(CreateJobResult.class);
+        when(created.getJobId()).thenReturn("42");
+        when(control.createJob(any())).thenReturn(created);
+        DescribeJobResult active = describe(JobStatus.Active.toString(), null);
+        JobProgressSummary progress = mock(JobProgressSummary.class);
+        when(progress.getTotalNumberOfTasks()).thenReturn(2L);
+        when(progress.getNumberOfTasksSucceeded()).thenReturn(1L);
+        when(progress.getNumberOfTasksFailed()).thenReturn(1L);
+        DescribeJobResult complete = describe(JobStatus.Complete.toString(), progress);
+        when(control.describeJob(any())).thenReturn(active, complete);
+        s3.put("reports", "batch/job-42/results/1.csv", "source,b%20c%2B2.xml,,failed,404,404,NoSuchKey\n".getBytes(UTF_8));
+        S3BatchCopyEngine engine = new S3BatchCopyEngine(s3, control, () -> "account", scheduler, executor, null, 0, Duration.ofMillis(10));
+
+        BatchCopyReport report = engine
+            .copy(
+                new BatchCopyRequest("source", Stream.of("1.xml", "b c+2.xml"), "target", "copy")
+                    .withManifestBucket("reports")
+                    .withManifestKey("batch/manifest.csv")
+                    .withReportBucket("reports")
+                    .withReportPrefix("batch")
+            )
+            .join();
+
+        assertThat(report.isClientSide()).isFalse();
+        assertThat(report.getStatus()).isEqualTo(JobStatus.Complete.toString());
+        assertThat(report.getSucceededTasks()).isEqualTo(1);
+        assertThat(report.getFailedKeys()).containsExactly("b c+2.xml");
+        assertThat(new String(s3.get("reports", "batch/manifest.csv"), UTF_8)).isEqualTo("source,1.xml\nsource,b%20c%2B2.xml\n");
+    }
+
+    private static DescribeJobResult describe(String status, JobProgressSummary progress) {
+        JobDescriptor job = mock(JobDescriptor.class);
+        when(job.getJobId()).thenReturn("42");
+        when(job.getStatus()).thenReturn(status);
+        when(job.getProgressSummary()).thenReturn(progress);
+        when(job.getFailureReasons()).thenReturn(List.of());
+        DescribeJobResult result = mock(DescribeJobResult.class);
+        when(result.getJob()).thenReturn(job);
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.demat.invoice.aws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link S3ObjectListingIterator}.
+ */
+class S3ObjectListingIteratorTest {
+
+    private static final String BUCKET = "archives";
+
+    private final InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+
+    private final List<String> keys = IntStream.range(0, 35).mapToObj(i -> String.format("in/%03d", i)).collect(Collectors.toList());
+
+    @BeforeEach
+    void putObjects() {
+        keys.forEach(key -> s3.put(BUCKET, key, new byte[0]));
+        s3.put(BUCKET, "out/000", new byte[0]);
+    }
+
+    @Test
+    void shouldFetchThePagesOnDemand() {
+        S3ObjectListingIterator iterator = new S3ObjectListingIterator(s3, request(), null);
+
+        assertThat(s3.getListings()).isZero();
+        assertThat(next(iterator, 10)).isEqualTo(keys.subList(0, 10));
+        assertThat(s3.getListings()).isEqualTo(1);
+        assertThat(next(iterator, 1)).containsExactly(keys.get(10));
+        assertThat(s3.getListings()).isEqualTo(2);
+        assertThat(next(iterator, 24)).isEqualTo(keys.subList(11, 35));
+        assertThat(iterator.hasNext()).isFalse();
+        assertThat(s3.getListings()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldPrefetchTheNextPageInOrder() {
+        List<Integer> listingsAtPrefetch = new ArrayList<>();
+        Function<Supplier<ListObjectsV2Result>, CompletableFuture<ListObjectsV2Result>> prefetcher = fetch -> {
+            listingsAtPrefetch.add(s3.getListings());
+            return CompletableFuture.supplyAsync(fetch);
+        };
+        S3ObjectListingIterator iterator = new S3ObjectListingIterator(s3, request(), prefetcher);
+
+        assertThat(next(iterator, 1)).containsExactly(keys.get(0));
+        // the second page is requested as soon as the first one is read
+        assertThat(listingsAtPrefetch).containsExactly(1);
+        assertThat(next(iterator, 34)).isEqualTo(keys.subList(1, 35));
+        assertThat(iterator.hasNext()).isFalse();
+        // no prefetch after the last page
+        assertThat(listingsAtPrefetch).hasSize(3);
+        assertThat(s3.getListings()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldFetchARejectedPrefetchOnDemand() {
+        S3ObjectListingIterator iterator = new S3ObjectListingIterator(
+            s3,
+            request(),
+            fetch -> CompletableFuture.failedFuture(new RejectedExecutionException())
+        );
+
+        assertThat(next(iterator, 35)).isEqualTo(keys);
+        assertThat(iterator.hasNext()).isFalse();
+        assertThat(s3.getListings()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldCancelThePendingPrefetchOnClose() {
+        CompletableFuture<ListObjectsV2Result> pending = new CompletableFuture<>();
+        S3ObjectListingIterator iterator = new S3ObjectListingIterator(s3, request(), fetch -> pending);
+
+        assertThat(iterator.hasNext()).isTrue();
+        iterator.close();
+
+        assertThat(pending).isCancelled();
+    }
+
+    @Test
+    void shouldStreamTheArchivesOfAService() {
+        InMemoryS3Service service = new InMemoryS3Service(s3, false, 1024 * 1024, 1024 * 1024);
+        try (Stream<S3ObjectSummary> archives = service.streamArchives(request(), true)) {
+            assertThat(archives.map(S3ObjectSummary::getKey)).containsExactlyElementsOf(keys);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static ListObjectsV2Request request() {
+        return new ListObjectsV2Request().withBucketName(BUCKET).withPrefix("in/").withMaxKeys(10);
+    }
+
+    private static List<String> next(S3ObjectListingIterator iterator, int count) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(iterator.next().getKey());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,139 @@
+package com.demat.invoice.aws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.transfer.Transfer;
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Unit tests for {@link S3TransferMonitor}.
+ */
+class S3TransferMonitorTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final S3TransferMonitor monitor = new S3TransferMonitor(provider(registry));
+
+    @Test
+    void shouldSnapshotTheProgressOfATransfer() {
+        TransferProgress progress = progress(1000, 250);
+        monitor.track("amazon", transfer("Uploading to bucket/key", progress, false));
+
+        List<TransferProgressSnapshot> transfers = monitor.getTransfers();
+
+        assertThat(transfers).hasSize(1);
+        TransferProgressSnapshot snapshot = transfers.get(0);
+        assertThat(snapshot.getService()).isEqualTo("amazon");
+        assertThat(snapshot.getDescription()).isEqualTo("Uploading to bucket/key");
+        assertThat(snapshot.getState()).isEqualTo(TransferState.InProgress.name());
+        assertThat(snapshot.getBytesTransferred()).isEqualTo(250);
+        assertThat(snapshot.getTotalBytes()).isEqualTo(1000);
+        assertThat(snapshot.getPercentTransferred()).isEqualTo(25.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ProgressEventType.class, names = { "TRANSFER_COMPLETED_EVENT", "TRANSFER_FAILED_EVENT", "TRANSFER_CANCELED_EVENT" })
+    void shouldUntrackATransferOnItsEndEvent(ProgressEventType type) {
+        Transfer transfer = transfer("Downloading", progress(1000, 0), false);
+        monitor.track("amazon", transfer);
+        ProgressListener listener = listener(transfer);
+
+        listener.progressChanged(new ProgressEvent(ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT, 100));
+        listener.progressChanged(new ProgressEvent(ProgressEventType.TRANSFER_PART_COMPLETED_EVENT));
+        assertThat(monitor.getTransfers()).hasSize(1);
+
+        listener.progressChanged(new ProgressEvent(type));
+        assertThat(monitor.getTransfers()).isEmpty();
+    }
+
+    @Test
+    void shouldNotKeepATransferOverBeforeBeingTracked() {
+        monitor.track("amazon", transfer("Copying", progress(1000, 1000), true));
+
+        assertThat(monitor.getTransfers()).isEmpty();
+    }
+
+    @Test
+    void shouldUntrackATransferNotRunByATransferManager() {
+        long id = monitor.track("amazon", "Uploading to lock/key", progress(1000, 500));
+        monitor.track("generix", "Uploading to other/key", progress(10, 0));
+        assertThat(monitor.getTransfers()).hasSize(2);
+
+        monitor.untrack(id);
+
+        assertThat(monitor.getTransfers()).extracting(TransferProgressSnapshot::getService).containsExactly("generix");
+    }
+
+    @Test
+    void shouldPublishTheAggregatedProgress() {
+        monitor.track("amazon", "first", progress(1000, 400));
+        long id = monitor.track("amazon", "second", progress(-1, 100));
+
+        assertThat(gauge("s3.transfers.bytes", "transferred")).isEqualTo(500.0);
+        // an unknown size is not counted
+        assertThat(gauge("s3.transfers.bytes", "total")).isEqualTo(1000.0);
+        assertThat(registry.get("s3.transfers.throughput").gauge().value()).isPositive();
+        assertThat(registry.get("s3.transfers.eta").gauge().value()).isNotNegative();
+
+        monitor.untrack(id);
+        assertThat(gauge("s3.transfers.bytes", "transferred")).isEqualTo(400.0);
+    }
+
+    @Test
+    void shouldEmitTheProgressWhileWatched() {
+        monitor.track("amazon", "first", progress(1000, 400));
+
+        List<TransferProgressSnapshot> transfers = monitor.watch(Duration.ofMillis(10)).blockFirst(Duration.ofSeconds(5));
+
+        assertThat(transfers).extracting(TransferProgressSnapshot::getDescription).containsExactly("first");
+    }
+
+    private double gauge(String name, String type) {
+        return registry.get(name).tag("type", type).gauge().value();
+    }
+
+    private static TransferProgress progress(long total, long transferred) {
+        TransferProgress progress = new TransferProgress();
+        progress.setTotalBytesToTransfer(total);
+        progress.updateProgress(transferred);
+        return progress;
+    }
+
+    private static Transfer transfer(String description, TransferProgress progress, boolean done) {
+        Transfer transfer = mock(Transfer.class);
+        when(transfer.getDescription()).thenReturn(description);
+        when(transfer.getProgress()).thenReturn(progress);
+        when(transfer.getState()).thenReturn(done ? TransferState.Completed : TransferState.InProgress);
+        when(transfer.isDone()).thenReturn(done);
+        return transfer;
+    }
+
+    private static ProgressListener listener(Transfer transfer) {
+        ArgumentCaptor<ProgressListener> listener = ArgumentCaptor.forClass(ProgressListener.class);
+        verify(transfer).addProgressListener(listener.capture());
+        return listener.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<MeterRegistry> provider(MeterRegistry registry) {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(registry);
+        return provider;
+    }
+}
@@ -0,0 +1,169 @@
+package com.demat.invoice.beans;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.stream;
+import static org.apache.commons.lang3.ArrayUtils.isNotEmpty;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.demat.invoice.utils.ContentTypeDetector;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.commons.io.FilenameUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.http.MediaType;
+
+/**
+ * Unit tests for {@link FileType}, the lookups being compared with the scans of all the types they replace.
+ */
+class FileTypeTest {
+
+    @TempDir
+    Path tempDir;
+
+    static Stream<String> fileNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (FileType type : FileType.values()) {
+            if (isNotBlank(type.getExtension())) {
+                names.add("file" + type.getExtension());
+                names.add("FILE" + type.getExtension().toUpperCase());
+                // potential matches (ex: xdoc -> doc), never found as the extensions are declared with their dot
+                names.add("file.x" + type.getExtension().substring(1));
+                names.add("file." + type.getExtension().substring(1) + "x");
+            }
+        }
+        names.add("file.unknown");
+        names.add("file.a");
+        names.add("archive.tar.gz");
+        names.add("no-extension");
+        return names.stream();
+    }
+
+    static Stream<String> mediaTypes() {
+        Set<String> mediaTypes = new LinkedHashSet<>();
+        for (FileType type : FileType.values()) {
+            for (String mime : type.getMimes()) {
+                if (isNotBlank(mime)) {
+                    mediaTypes.add(mime);
+                    mediaTypes.add(MediaType.valueOf(mime).getType() + "/*");
+                }
+            }
+        }
+        mediaTypes.add(MediaType.ALL_VALUE);
+        mediaTypes.add("unknown/*");
+        mediaTypes.add("unknown/type");
+        mediaTypes.add("application/*+xml");
+        mediaTypes.add("text/*;q=0.5");
+        mediaTypes.add("text/xml;charset=UTF-8");
+        return mediaTypes.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNames")
+    void shouldFindTheTypeOfAnExtensionLikeTheScan(String name) {
+        File file = tempDir.resolve(name).toFile();
+
+        assertThat(FileType.getType(file, false)).isEqualTo(legacyType(file));
+    }
+
+    @ParameterizedTest
+    @MethodSource("mediaTypes")
+    void shouldFindTheTypeOfAMediaTypeLikeTheScan(String mediaType) {
+        MediaType parsed = MediaType.valueOf(mediaType);
+
+        assertThat(FileType.valueOf(parsed)).isEqualTo(legacyValueOf(parsed));
+    }
+
+    @Test
+    void shouldFindTheTypeOfAContentLikeTheScan() throws IOException {
+        List<Path> files = new ArrayList<>();
+        files.add(Files.write(tempDir.resolve("xml"), "<?xml version=\"1.0\"?><invoice/>".getBytes(UTF_8)));
+        files.add(Files.write(tempDir.resolve("pdf"), "%PDF-1.4\n%EOF\n".getBytes(UTF_8)));
+        files.add(Files.write(tempDir.resolve("text"), "plain text".getBytes(UTF_8)));
+        files.add(Files.write(tempDir.resolve("html"), "<html><body>invoice</body></html>".getBytes(UTF_8)));
+        files.add(Files.write(tempDir.resolve("png"), new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' }));
+        files.add(Files.write(tempDir.resolve("binary"), new byte[] { 0, 1, 2, 3 }));
+
+        Set<FileType> types = new LinkedHashSet<>();
+        for (Path file : files) {
+            String contentType = ContentTypeDetector.getDefault().detect(file);
+            FileType type = FileType.getType(file.toFile(), true);
+            assertThat(type).as(file + " : " + contentType).isEqualTo(legacyContentType(contentType));
+            types.add(type);
+        }
+        assertThat(types).contains(FileType.XML, FileType.PDF, FileType.PNG);
+    }
+
+    @Test
+    void shouldHandleTheMissingInputs() {
+        assertThat(FileType.getType(null, true)).isNull();
+        assertThat(FileType.valueOf((MediaType) null)).isEqualTo(FileType.UNKNOWN);
+    }
+
+    /**
+     * Extension resolution before the lookup tables: the first type with the same extension, else the single type whose extension is
+     * contained in the file extension.
+     */
+    private static FileType legacyType(File file) {
+        String ext = FilenameUtils.getExtension(file.getAbsolutePath());
+        if (isNotBlank(ext)) {
+            ext = ext.toLowerCase();
+            String dotext = "." + ext;
+            List<FileType> potentialTypes = new ArrayList<>();
+            for (FileType type : FileType.values()) {
+                if (isNotBlank(type.getExtension())) {
+                    if (type.getExtension().equalsIgnoreCase(dotext)) {
+                        return type;
+                    }
+                    if (ext.length() > 3 && ext.contains(type.getExtension())) {
+                        potentialTypes.add(type);
+                    }
+                }
+            }
+            if (potentialTypes.size() == 1) {
+                return potentialTypes.get(0);
+            }
+        }
+        return FileType.UNKNOWN;
+    }
+
+    /**
+     * Content type resolution before the lookup tables: the first type having a mime containing the content type.
+     */
+    private static FileType legacyContentType(String contentType) {
+        if (!isNotBlank(contentType)) {
+            return FileType.UNKNOWN;
+        }
+        return stream(FileType.values())
+            .filter(type -> isNotEmpty(type.getMimes()) && stream(type.getMimes()).anyMatch(mime -> isNotBlank(mime) && mime.contains(contentType)))
+            .findFirst()
+            .orElse(FileType.UNKNOWN);
+    }
+
+    /**
+     * Media type resolution before the lookup tables: the first type having the same mime, or a mime compatible with a wildcard media
+     * type.
+     */
+    private static FileType legacyValueOf(MediaType mediaType) {
+        boolean concrete = mediaType.isConcrete();
+        for (FileType ft : FileType.values()) {
+            if (
+                stream(ft.getMimes())
+                    .anyMatch(mime -> (concrete && mime.equals(mediaType.toString())) || (!concrete && mediaType.isCompatibleWith(MediaType.valueOf(mime))))
+            ) {
+                return ft;
+            }
+        }
+        return FileType.UNKNOWN;
+    }
+}
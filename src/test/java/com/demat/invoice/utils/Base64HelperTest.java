@@ -0,0 +1,134 @@
+package com.demat.invoice.utils;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link Base64Helper}.
+ */
+class Base64HelperTest {
+
+    /** Sizes around the empty, padded and block (3 KiB) cases */
+    private static final int[] SIZES = { 0, 1, 2, 3, 4, 5, 3071, 3072, 3073, 6144, 10000 };
+
+    private final Random random = new Random(42);
+
+    @Test
+    void shouldEncodeAndDecodeLikeTheJdk() {
+        for (int size : SIZES) {
+            byte[] data = bytes(size);
+            byte[] encoded = Base64.getEncoder().encode(data);
+
+            assertThat(Base64Helper.encode(data)).as("size %d", size).isEqualTo(encoded);
+            assertThat(Base64Helper.decode(encoded)).as("size %d", size).isEqualTo(data);
+            assertThat(Base64Helper.decode(new String(encoded, ISO_8859_1))).as("size %d", size).isEqualTo(new String(data, ISO_8859_1));
+        }
+    }
+
+    @Test
+    void shouldIgnoreTheLineSeparators() {
+        byte[] data = bytes(1000);
+
+        assertThat(Base64Helper.decode(Base64.getMimeEncoder().encode(data))).isEqualTo(data);
+        assertThat(Base64Helper.decode(Base64.getMimeEncoder().encodeToString(data))).isEqualTo(new String(data, ISO_8859_1));
+    }
+
+    @Test
+    void shouldDecodeMalformedStringsLeniently() {
+        assertThat(Base64Helper.decode("Q")).isEmpty();
+        assertThat(Base64Helper.decode("QQ")).isEqualTo("A");
+        assertThat(Base64Helper.decode("QQ==QQ==")).isEqualTo("A\u0004\u0010");
+        assertThat(Base64Helper.decodeWithPrefix("{SHA}QQ==QQ==")).isEqualTo("A\u0004\u0010");
+    }
+
+    @Test
+    void shouldEncodeAndDecodeWithPrefix() {
+        String encoded = Base64Helper.encodeWithPrefix("secret");
+
+        assertThat(encoded).isEqualTo("{SHA}c2VjcmV0");
+        assertThat(Base64Helper.isSHAPrefixed(encoded)).isTrue();
+        assertThat(Base64Helper.decodeWithPrefix(encoded)).isEqualTo("secret");
+        assertThat(Base64Helper.decodeWithPrefix("secret")).isEqualTo("secret");
+    }
+
+    @Test
+    void shouldCheckTheAlphabet() {
+        assertThat(Base64Helper.isArrayByteBase64("c2VjcmV0+/==".getBytes(ISO_8859_1))).isTrue();
+        assertThat(Base64Helper.isArrayByteBase64("c2Vj cmV0".getBytes(ISO_8859_1))).isFalse();
+        assertThat(Base64Helper.isArrayByteBase64(new byte[] { (byte) 0xC3 })).isFalse();
+        assertThat(Base64Helper.isArrayByteBase64(new byte[0])).isFalse();
+    }
+
+    @Test
+    void shouldEncodeAndDecodeBuffersLikeTheJdk() {
+        for (int size : SIZES) {
+            byte[] data = bytes(size);
+            byte[] encoded = Base64.getEncoder().encode(data);
+
+            ByteBuffer base64 = ByteBuffer.allocate(Base64Helper.encodedLength(size));
+            assertThat(Base64Helper.encode(ByteBuffer.wrap(data), base64)).as("size %d", size).isEqualTo(encoded.length);
+            assertThat(base64.array()).as("size %d", size).isEqualTo(encoded);
+
+            assertThat(Base64Helper.decodedLength(ByteBuffer.wrap(encoded))).as("size %d", size).isEqualTo(size);
+            ByteBuffer decoded = ByteBuffer.allocateDirect(size);
+            assertThat(Base64Helper.decode(ByteBuffer.wrap(encoded), decoded)).as("size %d", size).isEqualTo(size);
+            decoded.flip();
+            byte[] actual = new byte[size];
+            decoded.get(actual);
+            assertThat(actual).as("size %d", size).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void shouldNotWriteIntoATooSmallBuffer() {
+        ByteBuffer src = ByteBuffer.wrap(bytes(10));
+        ByteBuffer dst = ByteBuffer.allocate(15);
+
+        assertThatThrownBy(() -> Base64Helper.encode(src, dst)).isInstanceOf(BufferOverflowException.class);
+        assertThat(src.position()).isZero();
+        assertThat(dst.position()).isZero();
+        assertThatThrownBy(() -> Base64Helper.decode(ByteBuffer.wrap("c2VjcmV0".getBytes(ISO_8859_1)), ByteBuffer.allocate(5)))
+            .isInstanceOf(BufferOverflowException.class);
+    }
+
+    @Test
+    void shouldRejectInvalidBuffers() {
+        assertThatThrownBy(() -> Base64Helper.decode(ByteBuffer.wrap("c2Vj*mV0".getBytes(ISO_8859_1)), ByteBuffer.allocate(6)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldEncodeAndDecodeStreamsLikeTheJdk() throws IOException {
+        for (int size : SIZES) {
+            byte[] data = bytes(size);
+
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            try (OutputStream out = Base64Helper.encodingStream(encoded)) {
+                out.write(data);
+            }
+            assertThat(encoded.toByteArray()).as("size %d", size).isEqualTo(Base64.getEncoder().encode(data));
+
+            try (InputStream in = Base64Helper.decodingStream(new ByteArrayInputStream(Base64.getMimeEncoder().encode(data)))) {
+                assertThat(in.readAllBytes()).as("size %d", size).isEqualTo(data);
+            }
+        }
+    }
+
+    private byte[] bytes(int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,84 @@
+package com.demat.invoice.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.mime.MediaType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link ContentTypeDetector}.
+ */
+class ContentTypeDetectorTest {
+
+    private static final String DOCX = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger containerDetections = new AtomicInteger();
+
+    /** Default detector completed by a container detector, as provided by the Tika parsers */
+    private final Detector detector = (input, metadata) -> {
+        if (input instanceof TikaInputStream && ((TikaInputStream) input).hasFile()) {
+            containerDetections.incrementAndGet();
+            try (ZipFile zip = new ZipFile(((TikaInputStream) input).getFile())) {
+                if (zip.getEntry("word/document.xml") != null) {
+                    return MediaType.parse(DOCX);
+                }
+            } catch (IOException e) {
+                // not a zip
+            }
+        }
+        return TikaConfig.getDefaultConfig().getDetector().detect(input, metadata);
+    };
+
+    @Test
+    void shouldDetectTheTypeFromThePrefix() throws IOException {
+        ContentTypeDetector contentTypes = new ContentTypeDetector(1, detector);
+
+        assertThat(contentTypes.detect(file("invoice.xml", "<?xml version=\"1.0\"?><invoice/>".getBytes(UTF_8)))).isEqualTo("application/xml");
+        assertThat(contentTypes.detect(file("invoice", "%PDF-1.4\n%âãÏÓ\n".getBytes(UTF_8)))).isEqualTo("application/pdf");
+        assertThat(containerDetections).hasValue(0);
+    }
+
+    @Test
+    void shouldDetectTheTypeOfAContainerFromItsEntries() throws IOException {
+        Path docx = tempDir.resolve("report.bin");
+        try (OutputStream out = Files.newOutputStream(docx); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+            zip.write("<Types/>".getBytes(UTF_8));
+            zip.putNextEntry(new ZipEntry("word/document.xml"));
+            zip.write("<document/>".getBytes(UTF_8));
+        }
+        ContentTypeDetector contentTypes = new ContentTypeDetector(1, detector);
+
+        assertThat(contentTypes.detect(docx)).isEqualTo(DOCX);
+        assertThat(containerDetections).hasValue(1);
+        // cached
+        assertThat(contentTypes.detect(docx)).isEqualTo(DOCX);
+        assertThat(containerDetections).hasValue(1);
+    }
+
+    @Test
+    void shouldNotFindTheTypeOfAMissingFile() {
+        assertThat(ContentTypeDetector.getDefault().detect(tempDir.resolve("missing.xml"))).isNull();
+        assertThat(ContentTypeDetector.getDefault().detect(tempDir)).isNull();
+    }
+
+    private Path file(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content);
+    }
+}
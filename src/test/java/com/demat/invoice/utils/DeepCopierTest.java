@@ -0,0 +1,279 @@
+package com.demat.invoice.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link DeepCopier}.
+ */
+class DeepCopierTest {
+
+    private final AtomicInteger adapted = new AtomicInteger();
+
+    /** Skipping the time zones and adapting the dates, as the default instance of {@link GsonHelper} */
+    private final Gson gson = new GsonBuilder()
+        .setExclusionStrategies(
+            new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return TimeZone.class.isAssignableFrom(field.getDeclaredClass());
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> clazz) {
+                    return false;
+                }
+            }
+        )
+        .registerTypeAdapter(
+            LocalDate.class,
+            new TypeAdapter<LocalDate>() {
+                @Override
+                public void write(JsonWriter out, LocalDate date) throws IOException {
+                    out.value(date.toString());
+                }
+
+                @Override
+                public LocalDate read(JsonReader in) throws IOException {
+                    return LocalDate.parse(in.nextString());
+                }
+            }
+        )
+        .registerTypeAdapter(
+            Amount.class,
+            (JsonSerializer<Amount>) (amount, type, context) -> {
+                adapted.incrementAndGet();
+                return new JsonPrimitive(amount.value + " " + amount.currency);
+            }
+        )
+        .registerTypeAdapter(
+            Amount.class,
+            (JsonDeserializer<Amount>) (json, type, context) -> {
+                String[] parts = json.getAsString().split(" ");
+                return new Amount(new BigDecimal(parts[0]), parts[1]);
+            }
+        )
+        .create();
+
+    private final DeepCopier copier = new DeepCopier(gson, Collections.singletonList(Amount.class));
+
+    @Test
+    void shouldCopyLikeTheJsonRoundTrip() throws CloneNotSupportedException {
+        Invoice invoice = invoice("INV-1");
+
+        Invoice copy = copier.copy(invoice);
+
+        // the round trip loses the comparator of the tags
+        assertThat(copy)
+            .isNotSameAs(invoice)
+            .usingRecursiveComparison()
+            .ignoringFields("tags")
+            .isEqualTo(gson.fromJson(gson.toJson(invoice), Invoice.class));
+        assertThat(copy.lines).isNotSameAs(invoice.lines);
+        assertThat(copy.lines.get(0)).isNotSameAs(invoice.lines.get(0));
+        assertThat(copy.attributes).isNotSameAs(invoice.attributes).isEqualTo(invoice.attributes);
+        assertThat(copy.issued).isNotSameAs(invoice.issued).isEqualTo(invoice.issued);
+        assertThat(copy.codes).isNotSameAs(invoice.codes).isEqualTo(invoice.codes);
+        assertThat(copy.tags).isNotSameAs(invoice.tags).containsExactly("urgent", "b2b");
+        // immutable values are shared
+        assertThat(copy.number).isSameAs(invoice.number);
+        assertThat(copy.due).isSameAs(invoice.due);
+    }
+
+    @Test
+    void shouldKeepTheComparatorOfSortedCollections() throws CloneNotSupportedException {
+        Invoice invoice = invoice("INV-1");
+
+        Invoice copy = copier.copy(invoice);
+
+        assertThat(copy.tags.comparator()).isSameAs(invoice.tags.comparator());
+    }
+
+    @Test
+    void shouldSkipTheFieldsIgnoredByGson() throws CloneNotSupportedException {
+        Invoice invoice = invoice("INV-1");
+        invoice.cached = "cached";
+        invoice.timeZone = TimeZone.getTimeZone("Europe/Paris");
+
+        Invoice copy = copier.copy(invoice);
+
+        assertThat(copy.cached).isNull();
+        assertThat(copy.timeZone).isNull();
+    }
+
+    @Test
+    void shouldCopyTheCyclesAndTheSharedReferencesOnce() throws CloneNotSupportedException {
+        Invoice invoice = invoice("INV-1");
+        Invoice credit = invoice("CRN-1");
+        invoice.related = credit;
+        credit.related = invoice;
+        invoice.lines.add(invoice.lines.get(0));
+
+        Invoice copy = copier.copy(invoice);
+
+        assertThat(copy.related).isNotSameAs(credit);
+        assertThat(copy.related.number).isEqualTo("CRN-1");
+        assertThat(copy.related.related).isSameAs(copy);
+        assertThat(copy.lines.get(1)).isSameAs(copy.lines.get(0));
+    }
+
+    @Test
+    void shouldKeepTheRuntimeTypes() throws CloneNotSupportedException {
+        Invoice invoice = invoice("INV-1");
+        invoice.lines.add(new DiscountLine("discount", 5));
+
+        Invoice copy = copier.copy(invoice);
+
+        assertThat(copy.lines.get(1)).isInstanceOf(DiscountLine.class);
+        assertThat(((DiscountLine) copy.lines.get(1)).rate).isEqualTo(5);
+    }
+
+    @Test
+    void shouldCopyTheAdaptedTypesThroughGson() throws CloneNotSupportedException {
+        Invoice invoice = invoice("INV-1");
+
+        Invoice copy = copier.copy(invoice);
+
+        assertThat(adapted).hasValue(2);
+        assertThat(copy.total).isNotSameAs(invoice.total).usingRecursiveComparison().isEqualTo(invoice.total);
+        assertThat(copy.lines.get(0).amount).isNotSameAs(invoice.lines.get(0).amount);
+    }
+
+    @Test
+    void shouldCopyTheAnnotatedTypesThroughGson() throws CloneNotSupportedException {
+        Reference reference = new Reference("ref");
+
+        Reference copy = copier.copy(reference);
+
+        assertThat(copy).isNotSameAs(reference);
+        assertThat(copy.value).isEqualTo("REF");
+    }
+
+    @Test
+    void shouldCopyUnmodifiableCollections() throws CloneNotSupportedException {
+        List<Object> list = Collections.unmodifiableList(Arrays.asList("a", new Date(0)));
+
+        List<Object> copy = copier.copy(list);
+
+        assertThat(copy).isInstanceOf(ArrayList.class).isEqualTo(list);
+        assertThat(copy.get(1)).isNotSameAs(list.get(1));
+        assertThat(copier.<Object>copy(null)).isNull();
+    }
+
+    private static Invoice invoice(String number) {
+        Invoice invoice = new Invoice();
+        invoice.number = number;
+        invoice.issued = new Date(1_600_000_000_000L);
+        invoice.due = LocalDate.of(2021, 1, 31);
+        invoice.total = new Amount(new BigDecimal("120.50"), "EUR");
+        invoice.lines = new ArrayList<>(Collections.singletonList(new Line("service", new Amount(new BigDecimal("100.42"), "EUR"))));
+        invoice.attributes = new HashMap<>(Map.of("channel", "edi"));
+        invoice.codes = new int[] { 1, 2, 3 };
+        invoice.tags = new TreeSet<>(Comparator.reverseOrder());
+        invoice.tags.addAll(Arrays.asList("b2b", "urgent"));
+        return invoice;
+    }
+
+    static class Invoice {
+
+        String number;
+        Date issued;
+        LocalDate due;
+        Amount total;
+        List<Line> lines;
+        Map<String, String> attributes;
+        int[] codes;
+        TreeSet<String> tags;
+        Invoice related;
+        transient String cached;
+        TimeZone timeZone;
+    }
+
+    static class Line {
+
+        String label;
+        Amount amount;
+
+        Line() {}
+
+        Line(String label, Amount amount) {
+            this.label = label;
+            this.amount = amount;
+        }
+    }
+
+    static class DiscountLine extends Line {
+
+        int rate;
+
+        DiscountLine() {}
+
+        DiscountLine(String label, int rate) {
+            super(label, null);
+            this.rate = rate;
+        }
+    }
+
+    static class Amount {
+
+        BigDecimal value;
+        String currency;
+
+        Amount() {}
+
+        Amount(BigDecimal value, String currency) {
+            this.value = value;
+            this.currency = currency;
+        }
+    }
+
+    /** Upper cased when read by Gson */
+    @JsonAdapter(Reference.Adapter.class)
+    static class Reference {
+
+        String value;
+
+        Reference(String value) {
+            this.value = value;
+        }
+
+        static class Adapter extends TypeAdapter<Reference> {
+
+            @Override
+            public void write(JsonWriter out, Reference reference) throws IOException {
+                out.value(reference.value);
+            }
+
+            @Override
+            public Reference read(JsonReader in) throws IOException {
+                return new Reference(in.nextString().toUpperCase());
+            }
+        }
+    }
+}
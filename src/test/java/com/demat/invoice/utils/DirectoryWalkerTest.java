@@ -0,0 +1,168 @@
+package com.demat.invoice.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link DirectoryWalker}.
+ */
+class DirectoryWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DirectoryWalker walker = new DirectoryWalker(4);
+
+    @BeforeEach
+    void createTree() throws IOException {
+        for (String directory : Arrays.asList(
+            "in/acme/invoices/2021",
+            "in/acme/invoices/2022",
+            "in/acme/orders",
+            "in/globex/invoices",
+            "in/globex/archive/invoices/old",
+            "out/acme/invoices",
+            "out/invoices",
+            "invoices/in"
+        )) {
+            Files.createDirectories(tempDir.resolve(directory));
+        }
+        Files.createFile(tempDir.resolve("in/acme/invoices/invoice.xml"));
+        Files.createFile(tempDir.resolve("in/readme.txt"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "*",
+            "in",
+            "in/*",
+            "in/*/invoices",
+            "*/*/invoices",
+            "in/acme/invoices/*",
+            "**",
+            "**/invoices",
+            "in/**",
+            "in/**/invoices",
+            "**/*/invoices",
+            "**/invoices/*",
+            "*/**/invoices/*",
+            "in/missing",
+            "in/readme.txt",
+        }
+    )
+    void shouldFindTheDirectoriesOfThePreviousImplementation(String pattern) {
+        assertThat(find(tempDir, pattern)).containsExactlyInAnyOrderElementsOf(legacyFind(tempDir, pattern));
+    }
+
+    @Test
+    void shouldMatchTheBaseWithAnEmptyPattern() {
+        assertThat(find(tempDir, "")).containsExactly(tempDir);
+        assertThat(find(tempDir, "//")).containsExactly(tempDir);
+        assertThat(find(tempDir.resolve("missing"), "")).isEmpty();
+    }
+
+    @Test
+    void shouldMatchButNotWalkLinksBelowAnyLevels() throws IOException {
+        Path link = Files.createSymbolicLink(tempDir.resolve("out/link"), tempDir.resolve("in"));
+
+        assertThat(find(tempDir, "out/**")).contains(link).noneMatch(path -> path.startsWith(link) && !path.equals(link));
+        assertThat(find(tempDir, "out/*/acme")).containsExactly(link.resolve("acme"));
+    }
+
+    @Test
+    void shouldStopWhenTheStreamIsClosed() {
+        try (Stream<Path> directories = walker.find(tempDir, "**")) {
+            assertThat(directories.findFirst()).isPresent();
+        }
+    }
+
+    @Test
+    void shouldRejectTooManySegments() {
+        String pattern = String.join("/", Collections.nCopies(Long.SIZE, "a"));
+
+        assertThatThrownBy(() -> walker.find(tempDir, pattern)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldCountTheVisitedDirectories() {
+        find(tempDir, "in/acme/invoices");
+
+        DirectoryWalker.Statistics statistics = walker.getStatistics();
+        assertThat(statistics.getWalks()).isEqualTo(1);
+        assertThat(statistics.getMatches()).isEqualTo(1);
+        // literal segments: only the directories on the path are visited
+        assertThat(statistics.getDirectories()).isEqualTo(3);
+    }
+
+    private Set<Path> find(Path base, String pattern) {
+        try (Stream<Path> directories = walker.find(base, pattern)) {
+            return directories.collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Previous implementation of {@link FileHelper#getDirectoriesByPattern(String, String)}, walking a level of the tree per segment.
+     */
+    private static Set<Path> legacyFind(Path base, String pattern) {
+        List<File> current = Collections.singletonList(base.toFile());
+        String[] segments = pattern.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if ("**".equals(segment)) {
+                String[] end = Arrays.copyOfRange(segments, i + 1, segments.length);
+                return current.stream().flatMap(file -> legacyFilter(file.toPath(), end)).collect(Collectors.toSet());
+            }
+            List<File> next = new ArrayList<>();
+            for (File file : current) {
+                for (File child : file.listFiles(File::isDirectory)) {
+                    if ("*".equals(segment) || segment.equals(child.getName())) {
+                        next.add(child);
+                    }
+                }
+            }
+            current = next;
+        }
+        return current.stream().map(File::toPath).collect(Collectors.toSet());
+    }
+
+    private static Stream<Path> legacyFilter(Path start, String[] end) {
+        int count = start.getNameCount();
+        try (Stream<Path> paths = Files.walk(start, 20)) {
+            return paths
+                .filter(Files::isDirectory)
+                .filter(p -> p.getNameCount() > count + end.length)
+                .filter(p -> {
+                    Path current = p;
+                    for (int i = end.length - 1; i >= 0; i--) {
+                        if (!"*".equals(end[i]) && !end[i].equals(current.getFileName().toString())) {
+                            return false;
+                        }
+                        current = current.getParent();
+                    }
+                    return true;
+                })
+                .collect(Collectors.toList())
+                .stream();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.demat.invoice.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.demat.invoice.utils.GsonHelper.GsonAdapter;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * Unit tests for {@link GsonRegistry} and {@link GsonRegistryListener}.
+ */
+class GsonRegistryTest {
+
+    private final GsonRegistry registry = GsonRegistry.getInstance();
+
+    private final GenericApplicationContext context = new GenericApplicationContext();
+
+    @AfterEach
+    void resetContext() {
+        context.close();
+        new SpringContextHelper().setApplicationContext(null);
+        registry.refresh();
+    }
+
+    @Test
+    void shouldLoadTheAdaptersOfTheRefreshedContext() {
+        GsonAdapter<?> adapter = mock(GsonAdapter.class);
+        GsonAdapterProvider provider = new GsonAdapterProvider();
+        provider.getAdapters().put(StringBuilder.class, adapter);
+        context.registerBean(GsonAdapterProvider.class, () -> provider);
+        context.registerBean(GsonRegistryListener.class);
+        new SpringContextHelper().setApplicationContext(context);
+
+        context.refresh();
+
+        Map<Class<?>, GsonAdapter<?>> adapters = registry.getAdapters();
+        assertThat(adapters).containsOnly(Map.entry(StringBuilder.class, adapter));
+        // not dropped when the context is closed
+        context.close();
+        assertThat(registry.getAdapters()).isSameAs(adapters);
+    }
+
+    @Test
+    void shouldBoundTheInstancesBuiltForNewExclusionStrategies() {
+        ExclusionStrategy shared = new ExcludeNothing();
+        Gson gson = registry.get(1d, false, shared);
+
+        for (int i = 0; i < GsonRegistry.MAX_INSTANCES * 2; i++) {
+            registry.get(1d, false, new ExcludeNothing());
+        }
+
+        assertThat(registry.size()).isLessThanOrEqualTo(GsonRegistry.MAX_INSTANCES);
+        assertThat(registry.get(0d, false)).isSameAs(registry.get(0d, false));
+        assertThat(registry.get(1d, false, new ExcludeNothing())).isNotSameAs(gson);
+    }
+
+    @Test
+    void shouldNotFailWhenTheContextIsClosed() {
+        context.refresh();
+        context.close();
+        new SpringContextHelper().setApplicationContext(context);
+        registry.refresh();
+
+        assertThat(registry.getAdapters()).isEqualTo(Collections.emptyMap());
+        assertThat(registry.get(0d, false)).isSameAs(registry.get(0d, false));
+    }
+
+    private static final class ExcludeNothing implements ExclusionStrategy {
+
+        @Override
+        public boolean shouldSkipField(FieldAttributes f) {
+            return false;
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> clazz) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.demat.invoice.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.demat.invoice.utils.JsonValidator.Result;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link JsonValidator}.
+ */
+class JsonValidatorTest {
+
+    private final JsonValidator validator = new JsonValidator(4, 64);
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "",
+            " ",
+            "{}",
+            "[]",
+            "{\"a\":1}",
+            "[1,\"b\",true,null,{\"c\":[]}]",
+            " { \"a\" : [ 1.5e3 , -2 ] } ",
+            "{'a':'b'}",
+            "{a:b}",
+            "{\"a\"=1;\"b\"=>2}",
+            "[1,]",
+            "[,]",
+            "[1 2]",
+            "// comment\n{}",
+            "# comment\n[]",
+            "[NaN, Infinity]",
+            "{\"a\":\"\\u00e9\"}",
+            "{\"a\":\"\\u00zz\"}",
+            "{\"a\":\"\\x\"}",
+            "{",
+            "[1",
+            "{\"a\"}",
+            "{\"a\":}",
+            "{} {}",
+            "{} x",
+            "[] ]",
+            "}",
+            "1",
+            "\"text\"",
+            "true",
+            "null",
+            "text",
+        }
+    )
+    void shouldAcceptTheStructuresGsonParses(String json) {
+        assertThat(validator.validate(json).isStructure()).isEqualTo(isGsonStructure(json));
+        assertThat(GsonHelper.isJson(json)).isEqualTo(isGsonStructure(json));
+    }
+
+    @Test
+    void shouldTellTheKindOfValue() throws IOException {
+        assertThat(validator.validate("{\"a\":[1]}")).isEqualTo(Result.OBJECT);
+        assertThat(validator.validate("[{}]")).isEqualTo(Result.ARRAY);
+        assertThat(validator.validate("12")).isEqualTo(Result.VALUE);
+        assertThat(validator.validate("null")).isEqualTo(Result.VALUE);
+        assertThat(validator.validate("")).isEqualTo(Result.MALFORMED);
+        assertThat(validator.validate((CharSequence) null)).isEqualTo(Result.MALFORMED);
+        assertThat(validator.validate(new StringReader("[{}]"))).isEqualTo(Result.ARRAY);
+    }
+
+    @Test
+    void shouldStopBeyondTheMaximumDepth() throws IOException {
+        assertThat(validator.validate("[[[[1]]]]")).isEqualTo(Result.ARRAY);
+        assertThat(validator.validate("[[[[[1]]]]]")).isEqualTo(Result.TOO_DEEP);
+        assertThat(validator.validate("{\"a\":{\"b\":{\"c\":{\"d\":{}}}}}")).isEqualTo(Result.TOO_DEEP);
+        // the depth is checked before the end of the document is read
+        assertThat(validator.validate("[[[[[")).isEqualTo(Result.TOO_DEEP);
+        assertThat(validator.validate(new StringReader("[[[[[1]]]]]"))).isEqualTo(Result.TOO_DEEP);
+    }
+
+    @Test
+    void shouldStopBeyondTheMaximumLength() throws IOException {
+        String json = "[\"" + "a".repeat(60) + "\"]";
+        String longer = "[\"" + "a".repeat(61) + "\"]";
+
+        assertThat(validator.validate(json)).isEqualTo(Result.ARRAY);
+        assertThat(validator.validate(longer)).isEqualTo(Result.TOO_LARGE);
+        assertThat(validator.validate(new StringReader(json))).isEqualTo(Result.ARRAY);
+        assertThat(validator.validate(new StringReader(longer))).isEqualTo(Result.TOO_LARGE);
+    }
+
+    /**
+     * Previous implementation of {@link GsonHelper#isJson(CharSequence)}, building the tree. The number format of an invalid unicode escape
+     * was not caught.
+     */
+    private static boolean isGsonStructure(String json) {
+        try {
+            JsonElement element = new Gson().fromJson(json, JsonElement.class);
+            return !element.isJsonPrimitive() && !element.isJsonNull();
+        } catch (NullPointerException | JsonParseException | NumberFormatException e) {
+            return false;
+        }
+    }
+}
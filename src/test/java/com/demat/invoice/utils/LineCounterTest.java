@@ -0,0 +1,94 @@
+package com.demat.invoice.utils;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link LineCounter}.
+ */
+class LineCounterTest {
+
+    /** Size of the chunks counted in parallel */
+    private static final int CHUNK_SIZE = 32 * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "",
+            "a",
+            "\n",
+            "\r",
+            "\r\n",
+            "\n\n",
+            "\n\r",
+            "a\nb",
+            "a\nb\n",
+            "a\r\nb\r\n",
+            "a\rb\rc",
+            "a\r\r\nb\n\r",
+            "é\nà\r\nü",
+            "line 1 of an invoice\nline 2 of an invoice\nline 3 of an invoice\n",
+        }
+    )
+    void shouldCountTheLinesOfFilesLines(String content) throws IOException {
+        Path file = Files.write(tempDir.resolve("file.txt"), content.getBytes(UTF_8));
+
+        assertThat(LineCounter.count(file)).isEqualTo(linesOf(file));
+    }
+
+    @Test
+    void shouldCountTheLinesOfRandomContents() throws IOException {
+        Random random = new Random(42);
+        byte[] alphabet = { 'a', ' ', '\n', '\r', (byte) 0xC3, (byte) 0xA9, (byte) 0x8A, (byte) 0x8D };
+        for (int size : new int[] { 1, 7, 8, 9, 15, 16, 17, 1000, 65537 }) {
+            byte[] content = new byte[size];
+            for (int i = 0; i < size; i++) {
+                content[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            Path file = Files.write(tempDir.resolve("random-" + size + ".txt"), content);
+
+            assertThat(LineCounter.count(file)).as("size %d", size).isEqualTo(linesOf(file));
+        }
+    }
+
+    @Test
+    void shouldCountACarriageReturnLineFeedSplitBetweenChunks() throws IOException {
+        byte[] content = new byte[CHUNK_SIZE + 2];
+        Arrays.fill(content, (byte) 'a');
+        content[CHUNK_SIZE / 2] = '\n';
+        content[CHUNK_SIZE - 1] = '\r';
+        content[CHUNK_SIZE] = '\n';
+        Path file = Files.write(tempDir.resolve("large.txt"), content);
+
+        assertThat(LineCounter.count(file)).isEqualTo(3).isEqualTo(linesOf(file));
+    }
+
+    @Test
+    void shouldFailOnAMissingFile() {
+        assertThatThrownBy(() -> LineCounter.count(tempDir.resolve("missing.txt"))).isInstanceOf(NoSuchFileException.class);
+    }
+
+    /** Reference count, the bytes being decoded one to one */
+    private static long linesOf(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file, ISO_8859_1)) {
+            return lines.count();
+        }
+    }
+}
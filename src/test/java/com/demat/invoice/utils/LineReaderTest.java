@@ -0,0 +1,135 @@
+package com.demat.invoice.utils;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.apache.tools.ant.filters.HeadFilter;
+import org.apache.tools.ant.filters.TailFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Unit tests for {@link LineReader}, compared with the Ant head and tail filters it replaces.
+ */
+class LineReaderTest {
+
+    /** Size of the blocks read by the line reader */
+    private static final int BLOCK_SIZE = 8 * 1024;
+
+    private static final long[] LINES = { -1, 0, 1, 2, 3, 10 };
+
+    private static final long[] SKIPS = { 0, 1, 2, 5 };
+
+    @TempDir
+    Path tempDir;
+
+    static Stream<Arguments> contents() {
+        return Stream
+            .of(
+                "",
+                "a",
+                "\n",
+                "\r",
+                "\r\n",
+                "\n\r",
+                "a\nb\nc\n",
+                "a\nb\nc",
+                "a\r\nb\r\nc\r\n",
+                "a\rb\rc",
+                "a\rb\rc\r",
+                "a\nb\rc\r\nd\n\re",
+                "\n\n\r\r\n\n",
+                "ligne é\nligne è\r\nfin"
+            )
+            .flatMap(content -> Stream.of(ISO_8859_1, UTF_8, UTF_16LE, UTF_16).map(charset -> Arguments.of(content, charset)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("contents")
+    void shouldReadLikeTheAntFilters(String content, Charset charset) throws Exception {
+        assertSameAsAnt(content, charset);
+    }
+
+    @Test
+    void shouldReadLinesSplitBetweenTwoBlocks() throws Exception {
+        String filler = "x".repeat(BLOCK_SIZE - 1);
+        // \r\n split between the first two blocks, lone \r and \n at the end of the second block
+        assertSameAsAnt(filler + "\r\n" + filler.substring(2) + "\r" + "y\n" + "z", ISO_8859_1);
+        assertSameAsAnt(filler + "\r" + "y".repeat(BLOCK_SIZE - 1) + "\r\n", ISO_8859_1);
+        assertSameAsAnt(filler + "\n" + "\r".repeat(BLOCK_SIZE) + "\n", ISO_8859_1);
+    }
+
+    @Test
+    void shouldReadRandomContents() throws Exception {
+        Random random = new Random(42);
+        String[] tokens = { "\n", "\r", "\r\n", "a", "bc", "x".repeat(3000) };
+        for (int i = 0; i < 20; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int j = random.nextInt(40); j > 0; j--) {
+                content.append(tokens[random.nextInt(tokens.length)]);
+            }
+            assertSameAsAnt(content.toString(), UTF_8);
+        }
+    }
+
+    private void assertSameAsAnt(String content, Charset charset) throws Exception {
+        Path file = Files.write(tempDir.resolve("lines.txt"), content.getBytes(charset));
+        for (long lines : LINES) {
+            for (long skip : SKIPS) {
+                assertThat(LineReader.head(file, lines, skip, charset))
+                    .as("head lines=%d skip=%d of %s", lines, skip, escape(content))
+                    .isEqualTo(antHead(content, lines, skip));
+                assertThat(LineReader.tail(file, lines, skip, charset))
+                    .as("tail lines=%d skip=%d of %s", lines, skip, escape(content))
+                    .isEqualTo(antTail(content, lines, skip));
+            }
+        }
+    }
+
+    private static String antHead(String content, long lines, long skip) throws IOException {
+        HeadFilter filter = new HeadFilter();
+        filter.setLines(lines);
+        filter.setSkip(skip);
+        return read(filter.chain(new StringReader(content)));
+    }
+
+    private static String antTail(String content, long lines, long skip) throws IOException {
+        TailFilter filter = new TailFilter();
+        filter.setLines(lines);
+        filter.setSkip(skip);
+        try {
+            return read(filter.chain(new StringReader(content)));
+        } catch (NoSuchElementException e) {
+            // Ant fails when the file has fewer lines than the skipped ones, the line reader returns no line
+            return "";
+        }
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int c; (c = reader.read()) != -1;) {
+            content.append((char) c);
+        }
+        return content.toString();
+    }
+
+    private static String escape(String content) {
+        String escaped = content.replace("\r", "\\r").replace("\n", "\\n");
+        return escaped.length() > 40 ? escaped.substring(0, 40) + "..." : escaped;
+    }
+}
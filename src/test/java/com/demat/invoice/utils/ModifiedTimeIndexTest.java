@@ -0,0 +1,122 @@
+package com.demat.invoice.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link ModifiedTimeIndex}.
+ */
+class ModifiedTimeIndexTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path tempDir;
+
+    private ModifiedTimeIndex index;
+
+    @BeforeEach
+    void index() throws IOException {
+        write(tempDir.resolve("root.txt"), 1_000);
+        write(Files.createDirectories(tempDir.resolve("sub")).resolve("sub.txt"), 2_000);
+        index = ModifiedTimeIndex.watch(tempDir);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void shouldIndexTheExistingFiles() throws IOException {
+        assertThat(index.getLatestModifiedTime()).isEqualTo(time(2_000));
+        assertThat(index.getLatestModifiedTime()).isEqualTo(FileHelper.getLatestModifiedTime(tempDir));
+        assertThat(index.getRescans()).isEqualTo(1);
+        assertThat(index.isStale()).isFalse();
+    }
+
+    @Test
+    void shouldFollowACreatedFile() throws IOException {
+        write(tempDir.resolve("new.txt"), 3_000);
+
+        awaitLatest(3_000);
+    }
+
+    @Test
+    void shouldFollowAModifiedFile() throws IOException {
+        Files.setLastModifiedTime(tempDir.resolve("root.txt"), time(4_000));
+        awaitLatest(4_000);
+
+        // the youngest file gets older: the other directories are looked at
+        Files.setLastModifiedTime(tempDir.resolve("root.txt"), time(500));
+        awaitLatest(2_000);
+    }
+
+    @Test
+    void shouldFollowADeletedFile() throws IOException {
+        Files.delete(tempDir.resolve("sub/sub.txt"));
+
+        awaitLatest(1_000);
+    }
+
+    @Test
+    void shouldIndexANewSubdirectory() throws IOException {
+        Path directory = Files.createDirectories(tempDir.resolve("new/deep"));
+        write(directory.resolve("deep.txt"), 5_000);
+        awaitLatest(5_000);
+
+        // the new directories are watched too
+        write(directory.resolve("deeper.txt"), 6_000);
+        awaitLatest(6_000);
+        assertThat(index.getRescans()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldForgetADeletedSubdirectory() throws IOException {
+        FileUtils.deleteDirectory(tempDir.resolve("sub").toFile());
+
+        awaitLatest(1_000);
+        assertThat(index.getRescans()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldStopFollowingTheTreeOnceClosed() throws IOException, InterruptedException {
+        index.close();
+        write(tempDir.resolve("new.txt"), 3_000);
+        Thread.sleep(200);
+
+        assertThat(index.getLatestModifiedTime()).isEqualTo(time(2_000));
+    }
+
+    @Test
+    void shouldRejectAFile() {
+        assertThatThrownBy(() -> ModifiedTimeIndex.watch(tempDir.resolve("root.txt"))).isInstanceOf(NotDirectoryException.class);
+    }
+
+    private void awaitLatest(long millis) {
+        await().atMost(TIMEOUT).untilAsserted(() -> assertThat(index.getLatestModifiedTime()).isEqualTo(time(millis)));
+    }
+
+    private static void write(Path file, long millis) throws IOException {
+        Files.write(file, "content".getBytes(UTF_8));
+        Files.setLastModifiedTime(file, time(millis));
+    }
+
+    private static FileTime time(long millis) {
+        return FileTime.fromMillis(millis);
+    }
+}
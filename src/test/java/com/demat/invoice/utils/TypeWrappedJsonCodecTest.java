@@ -0,0 +1,139 @@
+package com.demat.invoice.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TypeWrappedJsonCodec}.
+ */
+class TypeWrappedJsonCodecTest {
+
+    private final Gson gson = new Gson();
+
+    private final TypeWrappedJsonCodec codec = new TypeWrappedJsonCodec(gson);
+
+    @Test
+    void shouldWriteTheElementsAsObjects() throws IOException {
+        StringWriter json = new StringWriter();
+        codec.write(Arrays.asList(new Invoice("INV-1", 10.5), null, "text"), null, json);
+
+        assertThat(json.toString())
+            .isEqualTo(
+                "[{\"type\":\"" +
+                Invoice.class.getName() +
+                "\",\"value\":{\"number\":\"INV-1\",\"amount\":10.5}},{\"type\":\"java.lang.String\",\"value\":\"text\"}]"
+            );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReadWhatItWrites() throws IOException {
+        List<Object> objects = Arrays.asList(
+            new Invoice("INV-1", 10.5),
+            "text",
+            Arrays.asList(new Invoice("INV-2", 20), 3L),
+            new Object[] { new Invoice("INV-3", 30) }
+        );
+        StringWriter json = new StringWriter();
+        codec.write(objects, null, json);
+
+        List<Object> read = codec.readList(new StringReader(json.toString()));
+
+        assertThat(read).hasSize(4);
+        assertThat(read.subList(0, 2)).containsExactly(new Invoice("INV-1", 10.5), "text");
+        assertThat((List<Object>) read.get(2)).containsExactly(new Invoice("INV-2", 20), 3L);
+        assertThat((Object[]) read.get(3)).containsExactly(new Invoice("INV-3", 30));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReadTheFormerStringFormat() {
+        List<Object> objects = Arrays.asList(
+            new Invoice("INV-1", 10.5),
+            "text",
+            Arrays.asList(new Invoice("INV-2", 20), new Invoice("INV-3", 30))
+        );
+        String legacy = GsonHelper.toTypeWrappedJsonList(objects, null, gson);
+
+        List<Object> read = codec.readList(new StringReader(legacy));
+
+        assertThat(read).hasSize(3);
+        assertThat(read.subList(0, 2)).containsExactly(new Invoice("INV-1", 10.5), "text");
+        assertThat((List<Object>) read.get(2)).containsExactly(new Invoice("INV-2", 20), new Invoice("INV-3", 30));
+        assertThat(GsonHelper.<Object>fromTypeWrappedJsonList(new StringReader(legacy), gson)).hasSize(3);
+    }
+
+    @Test
+    void shouldReadTheValueBeforeTheType() {
+        String json = "[{\"value\":{\"number\":\"INV-1\",\"amount\":1},\"type\":\"" + Invoice.class.getName() + "\"}]";
+
+        assertThat(codec.<Invoice>readList(new StringReader(json))).containsExactly(new Invoice("INV-1", 1));
+    }
+
+    @Test
+    void shouldSkipTheUnreadableStringElements() {
+        String json = "[\"{\\\"type\\\":\\\"com.acme.Unknown\\\",\\\"value\\\":{}}\", null, \"{\\\"type\\\":\\\"java.lang.String\\\",\\\"value\\\":\\\"ok\\\"}\"]";
+
+        assertThat(codec.<String>readList(new StringReader(json))).containsExactly("ok");
+    }
+
+    @Test
+    void shouldFailOnAnUnknownObjectType() {
+        String json = "[{\"type\":\"com.acme.Unknown\",\"value\":{}}]";
+
+        assertThatThrownBy(() -> codec.readList(new StringReader(json))).isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void shouldReadTheElementsLazily() {
+        String json =
+            "[{\"type\":\"java.lang.String\",\"value\":\"first\"},{\"type\":\"java.lang.String\",\"value\":\"second\"},{\"type\":\"java.lang.String\",";
+
+        try (Stream<String> elements = codec.read(new StringReader(json))) {
+            assertThat(elements.limit(2).collect(Collectors.toList())).containsExactly("first", "second");
+        }
+    }
+
+    static class Invoice {
+
+        private String number;
+
+        private double amount;
+
+        Invoice(String number, double amount) {
+            this.number = number;
+            this.amount = amount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Invoice)) {
+                return false;
+            }
+            Invoice invoice = (Invoice) o;
+            return Double.compare(invoice.amount, amount) == 0 && Objects.equals(number, invoice.number);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(number, amount);
+        }
+
+        @Override
+        public String toString() {
+            return number + ":" + amount;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.demat.invoice.utils;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link ZipBuilder}, the archives being read back with {@link ZipFile}.
+ */
+class ZipBuilderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldArchiveStoredAndDeflatedEntries() throws IOException {
+        byte[] pdf = random(100_000);
+        byte[] xml = "<invoice>test</invoice>\n".repeat(10_000).getBytes(UTF_8);
+        byte[] large = "<line/>\n".repeat(1_200_000).getBytes(UTF_8);
+        Path zip = build(
+            new ZipBuilder()
+                .add(file("invoice.pdf", pdf))
+                .add(file("invoice.xml", xml))
+                .add(file("large.xml", large))
+        );
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertThat(Collections.list(zipFile.entries())).extracting(ZipEntry::getName).containsExactly("invoice.pdf", "invoice.xml", "large.xml");
+            assertEntry(zipFile, "invoice.pdf", ZipEntry.STORED, pdf);
+            assertEntry(zipFile, "invoice.xml", ZipEntry.DEFLATED, xml);
+            assertEntry(zipFile, "large.xml", ZipEntry.DEFLATED, large);
+            assertThat(zipFile.getEntry("large.xml").getCompressedSize()).isLessThan(large.length);
+        }
+    }
+
+    @Test
+    void shouldArchiveEmptyFiles() throws IOException {
+        Path zip = build(new ZipBuilder().add(file("empty.pdf", new byte[0])).add(file("empty.xml", new byte[0])));
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEntry(zipFile, "empty.pdf", ZipEntry.STORED, new byte[0]);
+            assertEntry(zipFile, "empty.xml", ZipEntry.DEFLATED, new byte[0]);
+        }
+    }
+
+    @Test
+    void shouldEncodeTheNamesInUtf8() throws IOException {
+        byte[] content = "<facture/>".getBytes(UTF_8);
+        Path zip = build(new ZipBuilder().add("dossier/facture-été-請求書.xml", file("facture.xml", content)));
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile(), UTF_8)) {
+            assertEntry(zipFile, "dossier/facture-été-請求書.xml", ZipEntry.DEFLATED, content);
+        }
+        // the UTF-8 flag is honoured whatever the charset of the reader
+        try (ZipFile zipFile = new ZipFile(zip.toFile(), ISO_8859_1)) {
+            assertThat(zipFile.getEntry("dossier/facture-été-請求書.xml")).isNotNull();
+        }
+    }
+
+    @Test
+    void shouldSkipTheUnreadableFiles() throws IOException {
+        byte[] content = "<invoice/>".getBytes(UTF_8);
+        File unreadable = file("unreadable.xml", content);
+        ZipBuilder builder = new ZipBuilder().add(unreadable).add(file("invoice.xml", content));
+        // deleted once added, as a file removed or locked by another process
+        Files.delete(unreadable.toPath());
+
+        Path zip = build(builder);
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(1);
+            assertEntry(zipFile, "invoice.xml", ZipEntry.DEFLATED, content);
+        }
+    }
+
+    @Test
+    void shouldWriteZip64EntriesOver4Gb() throws IOException {
+        long size = 0x1_0000_0000L + 1;
+        File huge = tempDir.resolve("huge.pdf").toFile();
+        try (RandomAccessFile raf = new RandomAccessFile(huge, "rw")) {
+            // sparse file of zeros
+            raf.setLength(size);
+        }
+        byte[] tail = "<invoice/>".getBytes(UTF_8);
+        Path zip = tempDir.resolve("huge.zip");
+        try (FileChannel channel = FileChannel.open(zip, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            new ZipBuilder().add(huge).add(file("tail.xml", tail)).writeTo(new SparseOutputStream(channel));
+        }
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            ZipEntry entry = zipFile.getEntry("huge.pdf");
+            assertThat(entry.getSize()).isEqualTo(size);
+            assertThat(entry.getCompressedSize()).isEqualTo(size);
+            assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+            // entry located after the 4 GB offset
+            assertEntry(zipFile, "tail.xml", ZipEntry.DEFLATED, tail);
+        }
+    }
+
+    private Path build(ZipBuilder builder) throws IOException {
+        Path zip = tempDir.resolve("archive.zip");
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            builder.writeTo(out);
+        }
+        return zip;
+    }
+
+    private File file(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content).toFile();
+    }
+
+    private static void assertEntry(ZipFile zipFile, String name, int method, byte[] content) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        assertThat(entry).as(name).isNotNull();
+        assertThat(entry.getMethod()).as(name).isEqualTo(method);
+        assertThat(entry.getSize()).as(name).isEqualTo(content.length);
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            // the CRC is checked by the inflater stream at the end of the entry
+            assertThat(in.readAllBytes()).as(name).isEqualTo(content);
+        }
+    }
+
+    private static byte[] random(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    /** Writes the blocks of zeros as holes, so a 4 GB archive takes no disk space */
+    private static class SparseOutputStream extends OutputStream {
+
+        private final FileChannel channel;
+
+        SparseOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            boolean zeros = len >= 4096;
+            for (int i = off; zeros && i < off + len; i++) {
+                zeros = b[i] == 0;
+            }
+            if (zeros) {
+                channel.position(channel.position() + len);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.demat.invoice.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link ZipExtractor}.
+ */
+class ZipExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ZipExtractor extractor = new ZipExtractor(2);
+
+    @Test
+    void shouldExtractTheIncludedEntries() throws IOException {
+        Path zip = zip("in/a.xml", "in/sub/b.xml", "out/c.txt", "../slip.xml");
+        Path destination = tempDir.resolve("dest");
+
+        ZipExtractor.Report report = extractor.extract(zip, destination, "in/, ../*");
+
+        assertThat(report.getFiles()).isEqualTo(2);
+        assertThat(report.getBytes()).isEqualTo("in/a.xml".length() + "in/sub/b.xml".length());
+        assertThat(destination.resolve("in/sub/b.xml")).hasContent("in/sub/b.xml");
+        assertThat(destination.resolve("out/c.txt")).doesNotExist();
+        assertThat(tempDir.resolve("slip.xml")).doesNotExist();
+    }
+
+    @Test
+    void shouldFailWhenAnEntryCannotBeWritten() throws IOException {
+        Path zip = zip("a.xml", "b.xml", "c.xml");
+        Path destination = tempDir.resolve("dest");
+        // a directory where a file is expected
+        Files.createDirectories(destination.resolve("b.xml/child"));
+
+        assertThatThrownBy(() -> extractor.extract(zip, destination, null)).isInstanceOf(IOException.class);
+
+        // the archive is closed and can be extracted again
+        Files.delete(destination.resolve("b.xml/child"));
+        Files.delete(destination.resolve("b.xml"));
+        assertThat(extractor.extract(zip, destination, null).getFiles()).isEqualTo(3);
+    }
+
+    private Path zip(String... names) throws IOException {
+        Path zip = tempDir.resolve("archive.zip");
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (String name : names) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write(name.getBytes(UTF_8));
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
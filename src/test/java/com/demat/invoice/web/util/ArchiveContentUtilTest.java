@@ -0,0 +1,85 @@
+package com.demat.invoice.web.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.demat.invoice.aws.service.S3Service;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+/**
+ * Unit tests for {@link ArchiveContentUtil}.
+ */
+class ArchiveContentUtilTest {
+
+    private final S3Service s3Service = mock(S3Service.class);
+
+    @Test
+    void shouldStreamTheArchiveContent() {
+        byte[] content = "<invoice>0123456789</invoice>".getBytes(StandardCharsets.UTF_8);
+        when(s3Service.readArchiveStreamAsync("bucket", "key"))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(new ByteArrayInputStream(content))));
+
+        String read = DataBufferUtils
+            .join(ArchiveContentUtil.readArchiveContent(s3Service, "bucket", "key", DefaultDataBufferFactory.sharedInstance, 4))
+            .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+            .block();
+
+        assertThat(read).isEqualTo("<invoice>0123456789</invoice>");
+    }
+
+    @Test
+    void shouldCloseTheContentWhenCancelledWhileReading() {
+        TrackedInputStream content = new TrackedInputStream(new byte[64]);
+        when(s3Service.readArchiveStreamAsync("bucket", "key")).thenReturn(CompletableFuture.completedFuture(Optional.of(content)));
+
+        ArchiveContentUtil.readArchiveContent(s3Service, "bucket", "key", DefaultDataBufferFactory.sharedInstance, 4).take(1).blockLast();
+
+        assertThat(content.closed).isTrue();
+    }
+
+    @Test
+    void shouldCloseTheContentOpenedAfterACancellation() {
+        TrackedInputStream content = new TrackedInputStream(new byte[64]);
+        CompletableFuture<Optional<InputStream>> opening = new CompletableFuture<>();
+        when(s3Service.readArchiveStreamAsync("bucket", "key")).thenReturn(opening);
+
+        ArchiveContentUtil.readArchiveContent(s3Service, "bucket", "key", DefaultDataBufferFactory.sharedInstance, 4).subscribe().dispose();
+        opening.complete(Optional.of(content));
+
+        assertThat(content.closed).isTrue();
+    }
+
+    @Test
+    void shouldFailOnMissingArchive() {
+        when(s3Service.readArchiveStreamAsync("bucket", "missing")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        assertThatThrownBy(() ->
+                ArchiveContentUtil.readArchiveContent(s3Service, "bucket", "missing", DefaultDataBufferFactory.sharedInstance, 4).blockLast()
+            )
+            .hasCauseInstanceOf(FileNotFoundException.class);
+    }
+
+    private static class TrackedInputStream extends ByteArrayInputStream {
+
+        private volatile boolean closed;
+
+        TrackedInputStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}